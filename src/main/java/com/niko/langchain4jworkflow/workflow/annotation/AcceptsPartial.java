@@ -0,0 +1,14 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 节点接受部分输入
+ * 依赖的流式节点开始生成时即可执行，无需等待其完成；节点通过PartialText类型的状态变量读取流。
+ * 节点会阻塞等待令牌，因此FUNCTION节点必须同时声明@Async。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AcceptsPartial {
+}
@@ -0,0 +1,18 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 指定节点运行的执行池
+ * 覆盖节点类型的默认映射（workflow.pool-mapping），例如让调用外部服务的FUNCTION节点运行在io池上。
+ * 声明在类上时作用于该工作流的所有节点，方法上的声明优先。
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Bulkhead {
+    /**
+     * 执行池名称，需在workflow.pools中配置
+     */
+    String value();
+}
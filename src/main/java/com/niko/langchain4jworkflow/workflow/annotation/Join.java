@@ -0,0 +1,18 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * JOIN节点的归约配置
+ * 节点方法作为归约函数，签名为(accumulator, result)或(accumulator, branch, result)，
+ * 每个上游节点完成时以其结果调用一次，返回值作为新的累加值写入output变量（默认为节点名称）。
+ * completeWhen表达式在每次归约后求值，为true时不再等待其余上游节点。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Join {
+    String output() default "";
+
+    String completeWhen() default "";
+}
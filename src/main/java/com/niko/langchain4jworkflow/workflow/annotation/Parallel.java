@@ -0,0 +1,26 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * PARALLEL节点的映射配置
+ * 对items变量中的每个元素执行一次节点方法，元素以item变量名绑定到方法参数，
+ * 按元素顺序收集的返回值写入output变量（默认为节点名称）。
+ * waitForAll为false时，quorum个元素成功即完成节点并取消其余执行。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Parallel {
+    String items();
+
+    String item() default "item";
+
+    String output() default "";
+
+    int maxConcurrency() default 16;
+
+    boolean waitForAll() default true;
+
+    int quorum() default 1;
+}
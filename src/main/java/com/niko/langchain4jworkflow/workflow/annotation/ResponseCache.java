@@ -0,0 +1,23 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * AI节点的响应缓存设置
+ * 相同模型参数和提示词的调用默认复用缓存的响应（workflow.ai.response-cache），
+ * 温度大于0的调用默认不缓存。声明在类上时作用于该工作流的所有节点，方法上的声明优先。
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResponseCache {
+    /**
+     * 是否使用响应缓存
+     */
+    boolean enabled() default true;
+
+    /**
+     * 温度大于0时是否仍然缓存，适用于输出可以接受重复的节点
+     */
+    boolean allowSampling() default false;
+}
@@ -0,0 +1,23 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * AI节点使用语义缓存
+ * 提示词与之前某次调用的余弦相似度达到阈值时复用其响应，需要开启workflow.ai.semantic-cache。
+ * 只适用于相近措辞的提示词可以得到相同回答的节点，例如分类和抽取。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SemanticCache {
+    /**
+     * 余弦相似度阈值，取值(0, 1]，默认使用workflow.ai.semantic-cache.threshold
+     */
+    double threshold() default -1;
+
+    /**
+     * 聊天模型温度大于0时是否仍使用语义缓存，默认不使用
+     */
+    boolean allowSampling() default false;
+}
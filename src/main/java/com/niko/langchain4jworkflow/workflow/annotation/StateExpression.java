@@ -0,0 +1,14 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 以SpEL表达式计算节点方法参数
+ * 表达式的根对象提供variables、state、context和var('name')，例如：variables['score'] * 100
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface StateExpression {
+    String value();
+}
@@ -0,0 +1,15 @@
+package com.niko.langchain4jworkflow.workflow.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * AI节点以流式方式生成
+ * 生成开始时节点的输出变量（默认为节点名称）即被设置为PartialText，
+ * 每个令牌作为NodeTokenEvent发布；需要配置StreamingChatLanguageModel。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Streaming {
+    String output() default "";
+}
@@ -5,10 +5,16 @@ import com.niko.langchain4jworkflow.workflow.core.*;
 import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
 import com.niko.langchain4jworkflow.workflow.metrics.MicrometerMetricsRegistry;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -20,6 +26,11 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
 @Slf4j
 @Configuration
 @EnableAsync
@@ -35,22 +46,222 @@ public class WorkflowAutoConfiguration {
     @ConditionalOnMissingBean
     public WorkflowEngine workflowEngine(
             WorkflowRegistry registry,
-            ThreadPoolTaskExecutor asyncExecutor,
-            WorkflowCache cache,
+            NodeExecutor nodeExecutor,
             MetricsRegistry metricsRegistry,
-            ChatLanguageModel chatModel) {
+            ChatLanguageModel chatModel,
+            ApplicationEventPublisher eventPublisher,
+            CriticalPathEstimator criticalPathEstimator) {
 
-        return AnnotationBasedWorkflowEngine.builder()
-                .registry(registry)
-                .executor(asyncExecutor)
-                .cache(cache)
-                .metrics(metricsRegistry)
+        WorkflowProperties.Scheduler scheduler = properties.getScheduler();
+        return DefaultWorkflowEngine.builder()
+                .workflowRegistry(registry)
+                .nodeExecutor(nodeExecutor)
+                .metricsRegistry(metricsRegistry)
                 .chatModel(chatModel)
-                .properties(properties)
-                .applicationContext(applicationContext)
+                .eventPublisher(eventPublisher)
+                .criticalPathEstimator(scheduler.isCriticalPathFirst() ? criticalPathEstimator : null)
+                .maxParallelism(scheduler.getMaxParallelism())
+                .fusionDetail(scheduler.isFuseChains() ? scheduler.getFusionDetail() : null)
                 .build();
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public AdmissionController admissionController(MetricsRegistry metricsRegistry) {
+        WorkflowProperties.Admission admission = properties.getAdmission();
+        return new AdmissionController(
+                admission.getMaxConcurrentExecutions(),
+                admission.getMaxConcurrentPerWorkflow(),
+                admission.getQueueCapacity(),
+                metricsRegistry);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ExecutionCollapser executionCollapser(MetricsRegistry metricsRegistry) {
+        return new ExecutionCollapser(properties.getCollapsing().isEnabled(), metricsRegistry);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CriticalPathEstimator criticalPathEstimator(MetricsRegistry metricsRegistry) {
+        return new CriticalPathEstimator(metricsRegistry);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public NodeExecutor nodeExecutor(
+            ChatLanguageModel chatModel,
+            ObjectProvider<StreamingChatLanguageModel> streamingChatModel,
+            @Qualifier("nodeTaskExecutor") Executor nodeTaskExecutor,
+            ExecutorPools executorPools,
+            ApplicationEventPublisher eventPublisher,
+            MetricsRegistry metricsRegistry,
+            ObjectProvider<WorkflowCache> workflowCache,
+            ObjectProvider<LlmResponseCache> responseCache,
+            ObjectProvider<SemanticResponseCache> semanticCache,
+            ObjectProvider<LlmCallLimiter> llmCallLimiter) {
+        NodeExecutor executor = new CompositeNodeExecutor(
+                chatModel,
+                streamingChatModel.getIfAvailable(),
+                responseCache.getIfAvailable(),
+                semanticCache.getIfAvailable(),
+                llmCallLimiter.getIfAvailable(),
+                new DefaultNodeExecutor(executorPools),
+                executorPools);
+        // 按节点的@Retry配置重试失败的执行，退避等待不占用线程
+        executor = new RetryingNodeExecutor(
+                executor,
+                nodeTaskExecutor,
+                TimerWheel.shared(),
+                eventPublisher,
+                metricsRegistry);
+        // 按节点的@Cache配置缓存结果，命中或共享进行中的计算时不再重试和执行
+        WorkflowCache cache = workflowCache.getIfAvailable();
+        return cache != null
+                ? new CachingNodeExecutor(executor, cache, metricsRegistry)
+                : executor;
+    }
+
+    /**
+     * AI节点的响应缓存
+     * 缓存键使用与chatLanguageModel相同的模型参数，节点上声明的模型参数不参与计算
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "workflow.ai.response-cache.enabled", havingValue = "true", matchIfMissing = true)
+    public LlmResponseCache llmResponseCache(MetricsRegistry metricsRegistry) {
+        WorkflowProperties.AI ai = properties.getAi();
+        WorkflowProperties.ResponseCache cache = ai.getResponseCache();
+        return LlmResponseCache.builder()
+                .maxSize(cache.getMaxSize())
+                .ttl(cache.getTtl())
+                .directory(cache.getDirectory() != null ? Path.of(cache.getDirectory()) : null)
+                .allowSampling(cache.isAllowSampling())
+                .defaultModel(ai.getModelName())
+                .defaultTemperature(ai.getTemperature())
+                .defaultMaxTokens(ai.getMaxTokens())
+                .metricsRegistry(metricsRegistry)
+                .build();
+    }
+
+    /**
+     * AI节点模型调用的限流器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "workflow.ai.limiter.enabled", havingValue = "true", matchIfMissing = true)
+    public LlmCallLimiter llmCallLimiter(MetricsRegistry metricsRegistry) {
+        WorkflowProperties.Limiter limiter = properties.getAi().getLimiter();
+        LlmCallLimiter callLimiter = new LlmCallLimiter(
+                properties.getAi().getModelName(),
+                limits(limiter.getDefaults()),
+                TimerWheel.shared(),
+                metricsRegistry);
+        limiter.getModels().forEach((model, limit) -> callLimiter.limit(model, limits(limit)));
+        return callLimiter;
+    }
+
+    private static LlmCallLimiter.Limits limits(WorkflowProperties.ModelLimit limit) {
+        return new LlmCallLimiter.Limits(
+                limit.getRequestsPerMinute(),
+                limit.getTokensPerMinute(),
+                limit.getInitialConcurrency(),
+                limit.getMinConcurrency(),
+                limit.getMaxConcurrency(),
+                limit.getBackoffRatio());
+    }
+
+    /**
+     * @SemanticCache节点的语义缓存，需显式开启
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "workflow.ai.semantic-cache.enabled", havingValue = "true")
+    public SemanticResponseCache semanticResponseCache(
+            EmbeddingModel embeddingModel,
+            MetricsRegistry metricsRegistry) {
+        WorkflowProperties.AI ai = properties.getAi();
+        WorkflowProperties.SemanticCache cache = ai.getSemanticCache();
+        return SemanticResponseCache.builder()
+                .embeddingModel(embeddingModel)
+                .maxSize(cache.getMaxSize())
+                .defaultThreshold(cache.getThreshold())
+                .allowSampling(cache.isAllowSampling())
+                .defaultModel(ai.getModelName())
+                .defaultTemperature(ai.getTemperature())
+                .defaultMaxTokens(ai.getMaxTokens())
+                .metricsRegistry(metricsRegistry)
+                .build();
+    }
+
+    /**
+     * 语义缓存使用的向量模型，可以替换为进程内模型
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "workflow.ai.semantic-cache.enabled", havingValue = "true")
+    public EmbeddingModel embeddingModel() {
+        return OpenAiEmbeddingModel.builder()
+                .baseUrl(properties.getAi().getBaseUrl())
+                .apiKey(properties.getAi().getOpenAiApiKey())
+                .modelName(properties.getAi().getSemanticCache().getEmbeddingModelName())
+                .timeout(properties.getAi().getTimeout())
+                .build();
+    }
+
+    /**
+     * 按节点类型隔离的执行池
+     * async池（nodeTaskExecutor）作为默认池，workflow.pools中的每一项创建一个独立的有界线程池；
+     * 节点运行在虚拟线程上时不应用pool-mapping，未声明@Bulkhead的节点都使用虚拟线程
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    public ExecutorPools executorPools(
+            @Qualifier("nodeTaskExecutor") Executor nodeTaskExecutor,
+            MetricsRegistry metricsRegistry) {
+        ExecutorPools pools = new ExecutorPools(nodeTaskExecutor, metricsRegistry);
+        properties.getPools().forEach((name, pool) -> pools.newPool(
+                name,
+                pool.getCorePoolSize(),
+                pool.getMaxPoolSize(),
+                pool.getQueueCapacity(),
+                pool.getKeepAliveTime()));
+        if (usesVirtualThreads()) {
+            log.info("Workflow nodes run on virtual threads, pool-mapping is not applied");
+        } else {
+            properties.getPoolMapping().forEach(pools::map);
+        }
+        return pools;
+    }
+
+    /**
+     * 节点执行器
+     * virtual模式下在JDK 21+上为每次节点调用使用一个虚拟线程，阻塞的LLM调用无需占用池化线程；
+     * 不支持虚拟线程时回退到平台线程池
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "nodeTaskExecutor")
+    public Executor nodeTaskExecutor(ThreadPoolTaskExecutor asyncExecutor) {
+        WorkflowProperties.Async async = properties.getAsync();
+        if (async.getMode() == WorkflowProperties.Async.Mode.VIRTUAL) {
+            Optional<ExecutorService> virtual =
+                    VirtualThreadSupport.newVirtualThreadPerTaskExecutor(async.getThreadNamePrefix());
+            if (virtual.isPresent()) {
+                log.info("Workflow nodes will run on virtual threads");
+                return virtual.get();
+            }
+            log.warn("Virtual threads are not supported by this JVM ({}), using platform thread pool",
+                    Runtime.version());
+        }
+        return asyncExecutor;
+    }
+
+    private boolean usesVirtualThreads() {
+        return properties.getAsync().getMode() == WorkflowProperties.Async.Mode.VIRTUAL
+                && VirtualThreadSupport.isAvailable();
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public WorkflowRegistry workflowRegistry() {
@@ -103,6 +314,22 @@ public class WorkflowAutoConfiguration {
                 .build();
     }
 
+    /**
+     * @Streaming节点使用的流式模型，与chatLanguageModel使用相同的连接配置
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public StreamingChatLanguageModel streamingChatLanguageModel() {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(properties.getAi().getBaseUrl())
+                .apiKey(properties.getAi().getOpenAiApiKey())
+                .modelName(properties.getAi().getModelName())
+                .maxTokens(properties.getAi().getMaxTokens())
+                .temperature(properties.getAi().getTemperature())
+                .timeout(properties.getAi().getTimeout())
+                .build();
+    }
+
     @Bean
     public WorkflowAspect workflowAspect(
             WorkflowEngine workflowEngine,
@@ -22,7 +22,7 @@ public class WorkflowBeanPostProcessor implements BeanPostProcessor {
         Class<?> clazz = bean.getClass();
         if (clazz.isAnnotationPresent(Workflow.class)) {
             log.debug("Found workflow bean: {}", beanName);
-            scanner.scanWorkflow(clazz)
+            scanner.scanWorkflow(clazz, bean)
                     .ifPresent(workflow -> {
                         log.info("Registering workflow: {}", workflow.getName());
                         registry.register(workflow);
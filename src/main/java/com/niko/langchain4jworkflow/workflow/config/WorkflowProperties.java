@@ -1,9 +1,14 @@
 package com.niko.langchain4jworkflow.workflow.config;
 
+import com.niko.langchain4jworkflow.workflow.core.FusionDetail;
+import com.niko.langchain4jworkflow.workflow.core.NodeType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Data
 @ConfigurationProperties(prefix = "workflow")
@@ -13,6 +18,21 @@ public class WorkflowProperties {
     private Async async = new Async();
     private Cache cache = new Cache();
     private Monitor monitor = new Monitor();
+    private Scheduler scheduler = new Scheduler();
+    private Admission admission = new Admission();
+    private Collapsing collapsing = new Collapsing();
+
+    /**
+     * 命名执行池，例如cpu、io、llm；未配置时所有节点共用async池
+     */
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    /**
+     * 节点类型到执行池的默认映射，未映射的类型使用async池
+     * 只在平台线程模式下生效；async.mode为virtual且JVM支持虚拟线程时不应用映射，
+     * 所有未声明@Bulkhead的节点都运行在虚拟线程上
+     */
+    private Map<NodeType, String> poolMapping = new EnumMap<>(NodeType.class);
 
     @Data
     public static class AI {
@@ -22,15 +42,113 @@ public class WorkflowProperties {
         private Double temperature = 0.7;
         private Duration timeout = Duration.ofSeconds(30);
         private String baseUrl ;
+        private ResponseCache responseCache = new ResponseCache();
+        private SemanticCache semanticCache = new SemanticCache();
+        private Limiter limiter = new Limiter();
+    }
+
+    @Data
+    public static class ResponseCache {
+        private boolean enabled = true;
+        private long maxSize = 10000L;
+        private Duration ttl = Duration.ofHours(24);
+
+        /**
+         * 磁盘层目录，为空时只缓存在内存中
+         */
+        private String directory;
+
+        /**
+         * 是否缓存温度大于0的调用，单个节点可以通过@ResponseCache(allowSampling = true)放开
+         */
+        private boolean allowSampling = false;
+    }
+
+    @Data
+    public static class SemanticCache {
+        /**
+         * 是否开启语义缓存，开启后只有声明@SemanticCache的节点使用，默认关闭
+         */
+        private boolean enabled = false;
+        private String embeddingModelName = "text-embedding-3-small";
+        private int maxSize = 5000;
+
+        /**
+         * 节点未指定阈值时的余弦相似度阈值
+         */
+        private double threshold = 0.95;
+
+        /**
+         * 聊天模型温度大于0时是否使用语义缓存，单个节点可以通过@SemanticCache(allowSampling = true)放开
+         */
+        private boolean allowSampling = false;
+    }
+
+    @Data
+    public static class Limiter {
+        private boolean enabled = true;
+
+        /**
+         * 未在models中单独配置的模型使用的限制
+         */
+        private ModelLimit defaults = new ModelLimit();
+
+        /**
+         * 按模型名称的限制
+         */
+        private Map<String, ModelLimit> models = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class ModelLimit {
+        /**
+         * 每分钟请求数，0表示不限制
+         */
+        private int requestsPerMinute = 0;
+
+        /**
+         * 每分钟token数，0表示不限制
+         */
+        private int tokensPerMinute = 0;
+
+        private int initialConcurrency = 8;
+        private int minConcurrency = 1;
+        private int maxConcurrency = 32;
+
+        /**
+         * 模型返回429或调用超时时并发上限的收缩比例
+         */
+        private double backoffRatio = 0.5;
     }
 
     @Data
     public static class Async {
+        /**
+         * 节点执行模式：platform使用线程池，virtual在JDK 21+上为每次节点调用创建虚拟线程
+         */
+        private Mode mode = Mode.PLATFORM;
         private int corePoolSize = 5;
         private int maxPoolSize = 10;
         private int queueCapacity = 25;
         private String threadNamePrefix = "workflow-async-";
         private Duration keepAliveTime = Duration.ofMinutes(1);
+
+        public enum Mode {
+            PLATFORM,
+            VIRTUAL
+        }
+    }
+
+    @Data
+    public static class Pool {
+        private int corePoolSize = 4;
+        private int maxPoolSize = 8;
+
+        /**
+         * 等待队列容量，队列满且线程数达到上限时新任务被拒绝
+         */
+        private int queueCapacity = 100;
+        private Duration keepAliveTime = Duration.ofMinutes(1);
     }
 
     @Data
@@ -48,4 +166,53 @@ public class WorkflowProperties {
         private String metricPrefix = "workflow";
         private boolean detailedMetrics = true;
     }
+
+    @Data
+    public static class Scheduler {
+        /**
+         * 是否按剩余关键路径长度优先执行就绪节点
+         */
+        private boolean criticalPathFirst = true;
+
+        /**
+         * 单次执行的最大并行节点数，0表示不限制
+         */
+        private int maxParallelism = 0;
+
+        /**
+         * 是否将连续的同步FUNCTION节点融合为一个调度任务
+         */
+        private boolean fuseChains = true;
+
+        /**
+         * 融合链的事件和指标粒度
+         */
+        private FusionDetail fusionDetail = FusionDetail.NODE;
+    }
+
+    @Data
+    public static class Admission {
+        /**
+         * 全局最大并发执行数，0表示不限制
+         */
+        private int maxConcurrentExecutions = 100;
+
+        /**
+         * 单个工作流的最大并发执行数，0表示不限制
+         */
+        private int maxConcurrentPerWorkflow = 0;
+
+        /**
+         * 等待队列容量，队列满时新的执行请求被拒绝
+         */
+        private int queueCapacity = 200;
+    }
+
+    @Data
+    public static class Collapsing {
+        /**
+         * 是否合并相同工作流、相同输入的并发执行，默认关闭
+         */
+        private boolean enabled = false;
+    }
 }
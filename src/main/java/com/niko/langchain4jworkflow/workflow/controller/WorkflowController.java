@@ -4,8 +4,10 @@ import com.niko.langchain4jworkflow.workflow.model.*;
 import com.niko.langchain4jworkflow.workflow.service.WorkflowService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -64,6 +66,12 @@ public class WorkflowController {
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping(value = "/executions/{executionId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamExecution(
+            @PathVariable String executionId) {
+        return workflowService.streamExecution(executionId);
+    }
+
     @GetMapping("/executions/{executionId}")
     public ResponseEntity<WorkflowResponse> getExecutionStatus(
             @PathVariable String executionId) {
@@ -1,12 +1,19 @@
 package com.niko.langchain4jworkflow.workflow.core;
 
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -14,6 +21,31 @@ public class AINodeExecutor implements NodeExecutor {
     private final ChatLanguageModel chatModel;
     private final DefaultNodeExecutor defaultExecutor;
 
+    /**
+     * 阻塞的模型调用在节点对应的执行池上运行：@Bulkhead或pool-mapping指定的池，未指定时为async池
+     */
+    private final ExecutorPools pools;
+
+    /**
+     * 流式模型，为空时@Streaming节点也按完整响应生成
+     */
+    private final StreamingChatLanguageModel streamingModel;
+
+    /**
+     * 响应缓存，为空时每次都调用模型
+     */
+    private final LlmResponseCache responseCache;
+
+    /**
+     * 语义缓存，只用于声明@SemanticCache的节点，为空时不使用
+     */
+    private final SemanticResponseCache semanticCache;
+
+    /**
+     * 按模型限制请求速率和并发，为空时不限制
+     */
+    private final LlmCallLimiter limiter;
+
     @Override
     public CompletableFuture<WorkflowState> execute(
             Node node,
@@ -27,17 +59,47 @@ public class AINodeExecutor implements NodeExecutor {
         try {
             state.recordNodeStart(node.getName());
 
-            // 构建 AI 提示
-            String prompt = buildPrompt(node, state);
+            // 按预编译的模板渲染 AI 提示
+            PromptTemplate.Rendered rendered = template(node).render(state::getVariable);
+            String prompt = rendered.text();
+            int estimatedTokens = rendered.estimatedTokens();
 
-            // 异步执行 AI 调用
-            return CompletableFuture.supplyAsync(() -> {
-                String response = chatModel.generate(prompt);
-                Map<String, Object> outputs = new HashMap<>();
-                outputs.put("response", response);
-                state.recordNodeCompletion(node.getName(), outputs);
-                return state;
-            });
+            // 精确命中缓存时在当前线程直接完成，不占用llm池
+            String workflowName = context != null ? context.getWorkflowName() : null;
+            LlmResponseCache.Key key = responseCache != null
+                    ? responseCache.keyFor(node, workflowName, prompt)
+                    : null;
+            String cached = key != null ? responseCache.get(key) : null;
+            boolean streaming = node.getConfig().isStreaming() && streamingModel != null;
+            if (cached != null) {
+                return streaming
+                        ? replayStreaming(node, state, context, cached)
+                        : CompletableFuture.completedFuture(complete(node, state, cached));
+            }
+
+            // 语义查找需要计算向量，和模型调用一起在执行池上进行
+            SemanticResponseCache semantic = semanticCache != null && semanticCache.appliesTo(node, workflowName)
+                    ? semanticCache
+                    : null;
+            if (streaming) {
+                return generateStreaming(node, state, context, prompt, estimatedTokens, key, semantic);
+            }
+
+            if (limiter != null) {
+                return generateLimited(node, state, workflowName, prompt, estimatedTokens, key, semantic);
+            }
+
+            // 异步执行 AI 调用，超时或取消时中断阻塞的模型调用
+            return InterruptibleFuture.supplyAsync(() -> {
+                SemanticResponseCache.Lookup similar = semantic != null
+                        ? semantic.lookup(node, workflowName, prompt)
+                        : null;
+                String response = similar != null && similar.response() != null
+                        ? similar.response()
+                        : chatModel.generate(prompt);
+                store(key, similar, response);
+                return complete(node, state, response);
+            }, pools.forNode(node));
 
         } catch (Exception e) {
             state.recordNodeError(node.getName(), e);
@@ -47,26 +109,317 @@ public class AINodeExecutor implements NodeExecutor {
         }
     }
 
-    private String buildPrompt(Node node, WorkflowState state) {
-        StringBuilder prompt = new StringBuilder();
+    /**
+     * 经限流器的模型调用
+     * 语义查找未命中后才申请许可，排队期间不占用执行池线程；
+     * 节点超时或取消时退出排队或中断调用，超时按限流计入并发上限的调整
+     */
+    private CompletableFuture<WorkflowState> generateLimited(
+            Node node,
+            WorkflowState state,
+            String workflowName,
+            String prompt,
+            int estimatedTokens,
+            LlmResponseCache.Key key,
+            SemanticResponseCache semantic) {
+
+        Executor pool = pools.forNode(node);
+        CompletableFuture<WorkflowState> result = new CompletableFuture<>();
+        CompletableFuture<SemanticResponseCache.Lookup> lookup = semantic != null
+                ? InterruptibleFuture.supplyAsync(() -> semantic.lookup(node, workflowName, prompt), pool)
+                : CompletableFuture.completedFuture(null);
+        if (lookup instanceof InterruptibleFuture<SemanticResponseCache.Lookup> interruptible) {
+            interruptible.bind(result);
+        }
+
+        lookup.whenComplete((similar, lookupError) -> {
+            if (lookupError != null) {
+                result.completeExceptionally(lookupError);
+                return;
+            }
+            if (similar != null && similar.response() != null) {
+                finish(result, node, state, key, similar, similar.response());
+                return;
+            }
+            acquire(workflowName, estimatedTokens, result).whenComplete((permit, acquireError) -> {
+                if (acquireError != null) {
+                    result.completeExceptionally(acquireError);
+                    return;
+                }
+                InterruptibleFuture<Response<AiMessage>> call;
+                try {
+                    call = InterruptibleFuture.supplyAsync(
+                            () -> chatModel.generate(UserMessage.from(prompt)), pool);
+                } catch (RuntimeException e) {
+                    permit.release(e, null);
+                    result.completeExceptionally(e);
+                    return;
+                }
+                call.bind(result);
+                call.whenComplete((response, callError) -> {
+                    permit.release(outcome(result, callError), totalTokens(response));
+                    if (callError != null) {
+                        result.completeExceptionally(callError);
+                    } else {
+                        finish(result, node, state, key, similar, response.content().text());
+                    }
+                });
+            });
+        });
+        return result;
+    }
+
+    private void finish(
+            CompletableFuture<WorkflowState> result,
+            Node node,
+            WorkflowState state,
+            LlmResponseCache.Key key,
+            SemanticResponseCache.Lookup similar,
+            String response) {
+        try {
+            store(key, similar, response);
+            result.complete(complete(node, state, response));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 申请调用许可，owner以异常完成（超时、取消）时退出排队
+     * 所有AI节点共用同一个聊天模型，节点上声明的模型不会被使用，因此总是排在该模型的通道上
+     */
+    private CompletableFuture<LlmCallLimiter.Permit> acquire(
+            String workflowName,
+            int estimatedTokens,
+            CompletableFuture<?> owner) {
+        CompletableFuture<LlmCallLimiter.Permit> permit =
+                limiter.acquire(null, workflowName, estimatedTokens);
+        owner.whenComplete((completed, error) -> {
+            if (error != null) {
+                permit.cancel(false);
+            }
+        });
+        return permit;
+    }
+
+    private static Integer totalTokens(Response<AiMessage> response) {
+        return response != null && response.tokenUsage() != null
+                ? response.tokenUsage().totalTokenCount()
+                : null;
+    }
+
+    /**
+     * 许可释放时的调用结果：节点已超时或被取消时以其原因为准，而不是中断引起的错误
+     */
+    private static Throwable outcome(CompletableFuture<?> owner, Throwable error) {
+        Throwable ownerError = owner.isCompletedExceptionally()
+                ? owner.handle((completed, e) -> e).getNow(null)
+                : null;
+        return ownerError != null ? ownerError : error;
+    }
+
+    private void store(LlmResponseCache.Key key, SemanticResponseCache.Lookup similar, String response) {
+        if (key != null) {
+            responseCache.put(key, response);
+        }
+        if (similar != null) {
+            semanticCache.put(similar, response);
+        }
+    }
+
+    private static WorkflowState complete(Node node, WorkflowState state, String response) {
+        Map<String, Object> outputs = new HashMap<>();
+        outputs.put("response", response);
+        state.recordNodeCompletion(node.getName(), outputs);
+        return state;
+    }
+
+    /**
+     * 以缓存的响应完成流式节点
+     * 下游节点和订阅者看到的与一次只有一个令牌的流式生成相同
+     */
+    private CompletableFuture<WorkflowState> replayStreaming(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context,
+            String response) {
 
-        // 添加系统提示
-        if (node.getConfig().getSystemPrompt() != null) {
-            prompt.append(node.getConfig().getSystemPrompt())
-                    .append("\n\n");
+        PartialText partial = startStream(node, state, context);
+        replay(node, partial, context, response);
+        return CompletableFuture.completedFuture(complete(node, state, response));
+    }
+
+    private static void replay(Node node, PartialText partial, WorkflowContext context, String response) {
+        StreamListener listener = context != null ? context.getStreamListener() : null;
+        if (partial.append(response) >= 0 && listener != null) {
+            listener.onToken(node.getName(), response, 0);
         }
+        partial.complete(response);
+    }
 
-        // 添加上下文变量
-        node.getInputs().forEach((key, type) -> {
-            Object value = state.getVariable(key);
-            if (value != null) {
-                prompt.append(key)
-                        .append(": ")
-                        .append(value)
-                        .append("\n");
+    private static PartialText startStream(Node node, WorkflowState state, WorkflowContext context) {
+        PartialText partial = new PartialText();
+        String variable = node.getConfig().getResultVariable() != null
+                ? node.getConfig().getResultVariable()
+                : node.getName();
+        state.setVariable(variable, partial);
+        StreamListener listener = context != null ? context.getStreamListener() : null;
+        if (listener != null) {
+            listener.onStreamStart(node.getName());
+        }
+        return partial;
+    }
+
+    /**
+     * 流式生成
+     * 生成开始前即把PartialText写入输出变量并通知监听器，接受部分输入的下游节点可以立即开始；
+     * 每个令牌追加到PartialText并转发给监听器，完成时以完整文本记录节点输出
+     */
+    private CompletableFuture<WorkflowState> generateStreaming(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context,
+            String prompt,
+            int estimatedTokens,
+            LlmResponseCache.Key key,
+            SemanticResponseCache semantic) {
+
+        String nodeName = node.getName();
+        PartialText partial = startStream(node, state, context);
+        CompletableFuture<WorkflowState> future = new CompletableFuture<>();
+        // 超时或取消时结束流，之后到达的令牌被丢弃
+        future.whenComplete((completed, error) -> {
+            if (error != null) {
+                partial.fail(error);
             }
         });
 
-        return prompt.toString();
+        Runnable generation = () -> {
+            try {
+                SemanticResponseCache.Lookup similar = semantic != null
+                        ? semantic.lookup(node, context != null ? context.getWorkflowName() : null, prompt)
+                        : null;
+                if (similar != null && similar.response() != null) {
+                    replay(node, partial, context, similar.response());
+                    store(key, similar, similar.response());
+                    state.recordNodeCompletion(nodeName, Map.of("response", similar.response()));
+                    future.complete(state);
+                    return;
+                }
+                if (limiter == null) {
+                    stream(node, state, context, prompt, key, similar, partial, future, null);
+                    return;
+                }
+                Executor pool = pools.forNode(node);
+                acquire(context != null ? context.getWorkflowName() : null, estimatedTokens, future)
+                        .whenComplete((permit, error) -> {
+                            if (error != null) {
+                                fail(node, state, partial, future, error);
+                                return;
+                            }
+                            try {
+                                pool.execute(() -> stream(
+                                        node, state, context, prompt, key, similar, partial, future, permit));
+                            } catch (RuntimeException e) {
+                                permit.release(e, null);
+                                fail(node, state, partial, future, e);
+                            }
+                        });
+            } catch (RuntimeException e) {
+                fail(node, state, partial, future, e);
+            }
+        };
+        try {
+            pools.forNode(node).execute(generation);
+        } catch (RuntimeException e) {
+            // 执行池拒绝时PartialText已经发布，必须一起失败，否则等待部分输入的下游节点会一直挂起
+            fail(node, state, partial, future, e);
+        }
+        return future;
+    }
+
+    /**
+     * 调用流式模型，permit不为空时在生成结束后释放
+     */
+    private void stream(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context,
+            String prompt,
+            LlmResponseCache.Key key,
+            SemanticResponseCache.Lookup similar,
+            PartialText partial,
+            CompletableFuture<WorkflowState> future,
+            LlmCallLimiter.Permit permit) {
+
+        String nodeName = node.getName();
+        StreamListener listener = context != null ? context.getStreamListener() : null;
+        try {
+            streamingModel.generate(prompt, new StreamingResponseHandler<AiMessage>() {
+                @Override
+                public void onNext(String token) {
+                    int index = partial.append(token);
+                    if (index >= 0 && listener != null) {
+                        listener.onToken(nodeName, token, index);
+                    }
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    if (permit != null) {
+                        permit.release(outcome(future, null), totalTokens(response));
+                    }
+                    String text = response != null && response.content() != null
+                            ? response.content().text()
+                            : null;
+                    partial.complete(text);
+                    if (!future.isDone()) {
+                        store(key, similar, partial.snapshot());
+                    }
+                    state.recordNodeCompletion(nodeName, Map.of("response", partial.snapshot()));
+                    future.complete(state);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (permit != null) {
+                        permit.release(error, null);
+                    }
+                    fail(node, state, partial, future, error);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (permit != null) {
+                permit.release(e, null);
+            }
+            fail(node, state, partial, future, e);
+        }
+    }
+
+    private static void fail(
+            Node node,
+            WorkflowState state,
+            PartialText partial,
+            CompletableFuture<WorkflowState> future,
+            Throwable error) {
+        partial.fail(error);
+        if (future.completeExceptionally(error)) {
+            state.recordNodeError(node.getName(), error);
+        }
+    }
+
+    /**
+     * 节点的提示词模板，扫描时未生成（例如通过API创建的节点）的在首次执行时生成并保存
+     */
+    private static PromptTemplate template(Node node) {
+        Node.NodeConfig config = node.getConfig();
+        PromptTemplate template = config.getPromptTemplate();
+        if (template == null) {
+            template = PromptTemplate.forNode(
+                    config.getSystemPrompt(),
+                    node.getInputs() != null ? node.getInputs().keySet() : List.of());
+            config.setPromptTemplate(template);
+        }
+        return template;
     }
 }
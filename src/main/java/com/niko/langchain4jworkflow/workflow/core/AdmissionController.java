@@ -0,0 +1,231 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.AdmissionRejectedException;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 工作流准入控制器
+ * 位于WorkflowEngine.execute之前，限制全局并发执行数和单个工作流的并发执行数。
+ * 超出限制的执行进入有界等待队列，队列满时立即以AdmissionRejectedException拒绝，
+ * 而不是在执行中途被线程池拒绝。各项限制为0时表示不限制。
+ */
+@Slf4j
+public class AdmissionController {
+    private static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final int maxConcurrentExecutions;
+    private final int maxConcurrentPerWorkflow;
+    private final int queueCapacity;
+    private final MetricsRegistry metricsRegistry;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+    private final Map<String, Integer> runningPerWorkflow = new HashMap<>();
+    private int running;
+
+    /**
+     * 执行耗时的指数加权平均（毫秒），用于估算Retry-After
+     */
+    private volatile double averageMillis = MIN_RETRY_AFTER.toMillis();
+
+    public AdmissionController(
+            int maxConcurrentExecutions,
+            int maxConcurrentPerWorkflow,
+            int queueCapacity,
+            MetricsRegistry metricsRegistry) {
+        this.maxConcurrentExecutions = maxConcurrentExecutions;
+        this.maxConcurrentPerWorkflow = maxConcurrentPerWorkflow;
+        this.queueCapacity = queueCapacity;
+        this.metricsRegistry = metricsRegistry;
+
+        metricsRegistry.registerGauge("admission.queue.depth", this::getQueueDepth);
+        metricsRegistry.registerGauge("admission.running", this::getRunning);
+    }
+
+    /**
+     * 提交一次工作流执行
+     * 有空闲容量时立即在调用线程启动，否则进入等待队列
+     * @param workflowName 工作流名称
+     * @param execution 启动执行的函数
+     * @return 执行完成时完成的Future对象
+     * @throws AdmissionRejectedException 并发与等待队列均已满时
+     */
+    public <T> CompletableFuture<T> submit(
+            String workflowName,
+            Supplier<CompletableFuture<T>> execution) {
+
+        Pending<T> pending = new Pending<>(workflowName, execution);
+        synchronized (lock) {
+            // 有容量时排队项只可能被各自的单工作流上限阻塞，同名工作流排队时不能插队
+            if (hasCapacity(workflowName) && !isQueued(workflowName)) {
+                acquire(workflowName);
+            } else if (queueCapacity <= 0 || queue.size() < queueCapacity) {
+                queue.addLast(pending);
+                // 排队期间被取消或超时的项立即移出队列，不再占用容量和队列深度
+                pending.result.whenComplete((result, error) -> {
+                    if (error != null) {
+                        synchronized (lock) {
+                            queue.remove(pending);
+                        }
+                    }
+                });
+                log.debug("Workflow {} queued for admission, queue depth {}",
+                        workflowName, queue.size());
+                return pending.result;
+            } else {
+                Duration retryAfter = estimateRetryAfter();
+                metricsRegistry.incrementCounter(
+                        "admission.rejections",
+                        "workflow", workflowName);
+                throw new AdmissionRejectedException(workflowName, retryAfter);
+            }
+        }
+
+        // 立即启动：启动失败直接抛给调用方
+        try {
+            start(pending, false);
+        } catch (RuntimeException e) {
+            release(workflowName, 0);
+            throw e;
+        }
+        return pending.result;
+    }
+
+    /**
+     * 当前等待队列长度
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * 当前正在执行的数量
+     */
+    public int getRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    private boolean hasCapacity(String workflowName) {
+        if (maxConcurrentExecutions > 0 && running >= maxConcurrentExecutions) {
+            return false;
+        }
+        return maxConcurrentPerWorkflow <= 0
+                || runningPerWorkflow.getOrDefault(workflowName, 0) < maxConcurrentPerWorkflow;
+    }
+
+    private boolean isQueued(String workflowName) {
+        for (Pending<?> pending : queue) {
+            if (pending.workflowName.equals(workflowName) && !pending.result.isDone()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void acquire(String workflowName) {
+        running++;
+        runningPerWorkflow.merge(workflowName, 1, Integer::sum);
+    }
+
+    private <T> void start(Pending<T> pending, boolean queued) {
+        long startNanos = System.nanoTime();
+        if (queued) {
+            metricsRegistry.recordDuration(
+                    "admission.wait",
+                    Duration.ofNanos(startNanos - pending.enqueuedAt),
+                    "workflow", pending.workflowName);
+        }
+
+        CompletableFuture<T> execution = pending.execution.get();
+        execution.whenComplete((result, error) -> {
+            release(pending.workflowName, System.nanoTime() - startNanos);
+            if (error != null) {
+                pending.result.completeExceptionally(error);
+            } else {
+                pending.result.complete(result);
+            }
+        });
+    }
+
+    private void release(String workflowName, long elapsedNanos) {
+        if (elapsedNanos > 0) {
+            averageMillis = averageMillis * 0.8 + (elapsedNanos / 1_000_000.0) * 0.2;
+        }
+
+        Pending<?> next;
+        synchronized (lock) {
+            running--;
+            runningPerWorkflow.computeIfPresent(workflowName, (k, v) -> v > 1 ? v - 1 : null);
+            next = pollAdmissible();
+        }
+        while (next != null) {
+            try {
+                start(next, true);
+            } catch (RuntimeException e) {
+                log.error("Failed to start queued workflow execution: {}", next.workflowName, e);
+                next.result.completeExceptionally(e);
+                synchronized (lock) {
+                    running--;
+                    runningPerWorkflow.computeIfPresent(next.workflowName, (k, v) -> v > 1 ? v - 1 : null);
+                }
+            }
+            synchronized (lock) {
+                next = pollAdmissible();
+            }
+        }
+    }
+
+    /**
+     * 按FIFO顺序取出第一个可以启动的排队执行，跳过已取消的项和已达到单工作流上限的项
+     */
+    private Pending<?> pollAdmissible() {
+        Iterator<Pending<?>> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (maxConcurrentExecutions > 0 && running >= maxConcurrentExecutions) {
+                return null;
+            }
+            Pending<?> candidate = iterator.next();
+            if (candidate.result.isDone()) {
+                iterator.remove();
+                continue;
+            }
+            if (hasCapacity(candidate.workflowName)) {
+                iterator.remove();
+                acquire(candidate.workflowName);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private Duration estimateRetryAfter() {
+        int slots = maxConcurrentExecutions > 0 ? maxConcurrentExecutions : Math.max(running, 1);
+        long millis = (long) (averageMillis * (queue.size() + 1) / slots);
+        return millis < MIN_RETRY_AFTER.toMillis() ? MIN_RETRY_AFTER : Duration.ofMillis(millis);
+    }
+
+    private static final class Pending<T> {
+        private final String workflowName;
+        private final Supplier<CompletableFuture<T>> execution;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+
+        private Pending(String workflowName, Supplier<CompletableFuture<T>> execution) {
+            this.workflowName = workflowName;
+            this.execution = execution;
+        }
+    }
+}
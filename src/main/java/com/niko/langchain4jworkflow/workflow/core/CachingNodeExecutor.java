@@ -0,0 +1,228 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点结果缓存执行器
+ * 声明了@Cache的节点，其输出和写入的变量按"工作流/节点/输入哈希"（或@Cache的key表达式）缓存到WorkflowCache，
+ * 命中时直接回放到当前状态而不再执行节点。
+ * 同一个键未命中的并发执行共享一次进行中的计算（single-flight），避免同时击穿到模型或下游服务；
+ * 进行中的计算失败时，等待者各自执行一次节点。失败的结果不会被缓存。
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CachingNodeExecutor implements NodeExecutor {
+    private static final String KEY_PREFIX = "node:";
+
+    private final NodeExecutor delegate;
+    private final WorkflowCache cache;
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * 进行中的计算，按缓存键索引
+     */
+    private final ConcurrentMap<String, CompletableFuture<CachedResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Override
+    public CompletableFuture<WorkflowState> execute(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context) {
+
+        Node.CacheConfig cacheConfig = node.getConfig() != null
+                ? node.getConfig().getCacheConfig()
+                : null;
+        if (cacheConfig == null) {
+            return delegate.execute(node, state, context);
+        }
+
+        String key;
+        try {
+            key = cacheKey(node, cacheConfig, state, context);
+        } catch (Exception e) {
+            log.warn("Failed to compute cache key for node {}, executing without cache",
+                    node.getName(), e);
+            return delegate.execute(node, state, context);
+        }
+
+        Object cached = cache.get(key).orElse(null);
+        if (cached instanceof CachedResult result) {
+            record(node, context, true);
+            return CompletableFuture.completedFuture(result.applyTo(node, state));
+        }
+
+        CompletableFuture<CachedResult> shared = new CompletableFuture<>();
+        CompletableFuture<CachedResult> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            // 共享进行中的计算；取消返回的Future不会影响计算本身
+            // 共享的计算成功才算命中，失败时自行执行，计为未命中
+            return existing.handle((result, error) -> {
+                        record(node, context, error == null);
+                        return error == null
+                                ? CompletableFuture.completedFuture(result.applyTo(node, state))
+                                : delegate.execute(node, state, context);
+                    })
+                    .thenCompose(future -> future);
+        }
+
+        record(node, context, false);
+        return compute(node, state, context, cacheConfig, key, shared);
+    }
+
+    /**
+     * 获取节点结果缓存的统计信息
+     * 命中数包括成功共享进行中计算的执行，共享的计算失败后自行执行的计为未命中；淘汰数和大小来自底层缓存
+     */
+    public CacheStats getStats() {
+        CacheStats backing = cache.getStats();
+        return CacheStats.builder()
+                .hitCount(hits.get())
+                .missCount(misses.get())
+                .evictionCount(backing.getEvictionCount())
+                .size(backing.getSize())
+                .build();
+    }
+
+    private CompletableFuture<WorkflowState> compute(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context,
+            Node.CacheConfig cacheConfig,
+            String key,
+            CompletableFuture<CachedResult> shared) {
+
+        // 在分支上执行，以便收集节点写入的变量
+        WorkflowState branch = state.clone();
+        CompletableFuture<WorkflowState> attempt;
+        try {
+            attempt = delegate.execute(node, branch, context);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+            throw e;
+        }
+
+        CompletableFuture<WorkflowState> result = new CompletableFuture<>();
+        // 回调中的任何异常都必须完成shared和result，否则等待者和调用方会一直挂起
+        attempt.whenComplete((completed, error) -> {
+            inFlight.remove(key, shared);
+            try {
+                // 无论成功与否都把分支上的执行记录合并回来
+                state.merge(branch);
+            } catch (RuntimeException e) {
+                shared.completeExceptionally(e);
+                result.completeExceptionally(e);
+                return;
+            }
+            if (error != null) {
+                shared.completeExceptionally(error);
+                result.completeExceptionally(error);
+                return;
+            }
+            CachedResult entry;
+            try {
+                entry = CachedResult.capture(node, branch);
+                cache.put(key, entry, cacheConfig.getTtl());
+            } catch (RuntimeException e) {
+                // 节点本身已成功，只是结果没有缓存；等待者各自重新执行
+                log.warn("Failed to cache result of node {}", node.getName(), e);
+                shared.completeExceptionally(e);
+                result.complete(state);
+                return;
+            }
+            shared.complete(entry);
+            result.complete(state);
+        });
+        // 超时或取消时停止进行中的计算，等待者会各自重新执行
+        result.whenComplete((completed, error) -> {
+            if (error != null) {
+                attempt.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static String cacheKey(
+            Node node,
+            Node.CacheConfig cacheConfig,
+            WorkflowState state,
+            WorkflowContext context) {
+
+        String prefix = KEY_PREFIX + context.getWorkflowName() + "/" + node.getName() + "/";
+        if (cacheConfig.getKey() != null) {
+            return prefix + cacheConfig.getKey().getValue(state, context, Object.class);
+        }
+        Object inputs;
+        if (node.getInvoker() != null) {
+            inputs = Arrays.asList(node.getInvoker().resolveInputs(state, context));
+        } else {
+            Map<String, Object> declared = new TreeMap<>();
+            if (node.getInputs() != null) {
+                node.getInputs().keySet().forEach(name -> declared.put(name, state.getVariable(name)));
+            }
+            inputs = declared;
+        }
+        return prefix + CanonicalHasher.hash(inputs);
+    }
+
+    private void record(Node node, WorkflowContext context, boolean hit) {
+        (hit ? hits : misses).incrementAndGet();
+        if (metricsRegistry != null) {
+            metricsRegistry.incrementCounter(
+                    hit ? "node.cache.hits" : "node.cache.misses",
+                    "workflow", context.getWorkflowName(),
+                    "node", node.getName());
+        }
+    }
+
+    /**
+     * 缓存的节点结果：节点输出、节点写入的变量，以及节点是否被跳过（条件不满足的CONDITIONAL节点）
+     */
+    private static final class CachedResult {
+        private final Map<String, Object> outputs;
+        private final Map<String, Object> variables;
+        private final boolean skipped;
+
+        private CachedResult(Map<String, Object> outputs, Map<String, Object> variables, boolean skipped) {
+            this.outputs = outputs;
+            this.variables = variables;
+            this.skipped = skipped;
+        }
+
+        static CachedResult capture(Node node, WorkflowState branch) {
+            WorkflowState.NodeExecutionInfo info = branch.getExecutionHistory().get(node.getName());
+            Map<String, Object> outputs = info != null && info.getOutputs() != null
+                    ? Map.copyOf(info.getOutputs())
+                    : Map.of();
+            Map<String, Object> variables = new HashMap<>();
+            branch.forEachChangedVariable(variables::put);
+            return new CachedResult(outputs, Map.copyOf(variables), info != null && info.isSkipped());
+        }
+
+        WorkflowState applyTo(Node node, WorkflowState state) {
+            variables.forEach(state::setVariable);
+            state.recordNodeStart(node.getName());
+            // 跳过的节点按跳过回放，调度器据此剪除下游节点
+            if (skipped) {
+                state.recordNodeSkipped(node.getName(), new HashMap<>(outputs));
+            } else {
+                state.recordNodeCompletion(node.getName(), new HashMap<>(outputs));
+            }
+            return state;
+        }
+    }
+}
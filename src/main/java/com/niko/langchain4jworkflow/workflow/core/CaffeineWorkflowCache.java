@@ -2,6 +2,7 @@ package com.niko.langchain4jworkflow.workflow.core;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.niko.langchain4jworkflow.workflow.config.CacheConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -16,9 +17,28 @@ public class CaffeineWorkflowCache implements WorkflowCache {
     private final Cache<String, Object> cache;
 
     public CaffeineWorkflowCache(CacheConfig config) {
+        // 默认有效期按写入时间计算，单个条目可以通过put(key, value, ttl)指定自己的有效期
+        Duration ttl = config.getTtl() != null ? config.getTtl() : Duration.ofNanos(Long.MAX_VALUE);
         Caffeine<Object, Object> builder = Caffeine.newBuilder()
                 .maximumSize(config.getMaxSize())
-                .expireAfterWrite(config.getTtl());
+                .expireAfter(new Expiry<Object, Object>() {
+                    @Override
+                    public long expireAfterCreate(Object key, Object value, long currentTime) {
+                        return ttl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(
+                            Object key, Object value, long currentTime, long currentDuration) {
+                        return ttl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(
+                            Object key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                });
 
         if (config.isSoftValues()) {
             builder.softValues();
@@ -36,6 +56,18 @@ public class CaffeineWorkflowCache implements WorkflowCache {
         cache.put(key, value);
     }
 
+    @Override
+    public void put(String key, Object value, Duration ttl) {
+        if (ttl == null) {
+            put(key, value);
+            return;
+        }
+        cache.policy().expireVariably()
+                .ifPresentOrElse(
+                        expiry -> expiry.put(key, value, ttl),
+                        () -> cache.put(key, value));
+    }
+
     @Override
     public Optional<Object> get(String key) {
         return Optional.ofNullable(cache.getIfPresent(key));
@@ -50,4 +82,15 @@ public class CaffeineWorkflowCache implements WorkflowCache {
     public void clear() {
         cache.invalidateAll();
     }
+
+    @Override
+    public CacheStats getStats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+        return CacheStats.builder()
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .size(cache.estimatedSize())
+                .build();
+    }
 }
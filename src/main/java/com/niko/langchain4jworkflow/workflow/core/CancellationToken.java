@@ -0,0 +1,56 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 协作式取消令牌
+ * 每次工作流执行对应一个令牌，并通过WorkflowContext传递给每个节点。
+ * 令牌只能被取消一次，取消时依次执行已注册的回调；取消后注册的回调立即执行。
+ * 长时间运行的节点方法可以通过isCancelled()或throwIfCancelled()主动检查。
+ */
+public final class CancellationToken {
+
+    private final CompletableFuture<String> signal = new CompletableFuture<>();
+
+    /**
+     * 取消
+     * @param reason 取消原因
+     * @return 本次调用是否真正触发了取消（重复取消返回false）
+     */
+    public boolean cancel(String reason) {
+        return signal.complete(reason != null ? reason : "cancelled");
+    }
+
+    /**
+     * 是否已被取消
+     */
+    public boolean isCancelled() {
+        return signal.isDone();
+    }
+
+    /**
+     * 获取取消原因
+     * @return 取消原因，未取消时返回null
+     */
+    public String getReason() {
+        return signal.getNow(null);
+    }
+
+    /**
+     * 已取消时抛出CancellationException
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException(getReason());
+        }
+    }
+
+    /**
+     * 注册取消回调
+     * @param callback 取消时执行的回调
+     */
+    public void onCancel(Runnable callback) {
+        signal.thenRun(callback);
+    }
+}
@@ -0,0 +1,59 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.experimental.UtilityClass;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 稳定哈希
+ * 将值序列化为规范化的JSON（映射按键排序、对象属性按字母排序）后计算SHA-256，
+ * 相同内容的输入在不同执行、不同实例之间得到相同的哈希，可用作缓存键。
+ * 没有可序列化属性的对象（例如只有私有字段的类）会被序列化为{}，不同内容的值得到相同的哈希，
+ * 因此这类值和无法序列化的值一样直接拒绝，调用方应放弃缓存或合并。
+ */
+@UtilityClass
+public class CanonicalHasher {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .enable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .findAndAddModules()
+            .build();
+
+    /**
+     * 计算值的稳定哈希
+     * @param value 任意可序列化的值
+     * @return 十六进制SHA-256
+     * @throws IllegalArgumentException 值（或其中的某个对象）无法序列化或没有可序列化的属性时
+     */
+    public static String hash(Object value) {
+        return sha256(canonicalize(value));
+    }
+
+    private static byte[] canonicalize(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            // 退回toString()可能让不同内容得到相同的哈希，不能用作缓存键
+            throw new IllegalArgumentException(
+                    "Value cannot be canonically serialized: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.expression.spel.support.StandardTypeConverter;
+import org.springframework.expression.spel.support.StandardTypeLocator;
+
+import java.util.List;
+
+/**
+ * 预编译的SpEL表达式
+ * 在扫描工作流时解析一次，以IMMEDIATE模式编译为字节码；
+ * 编译后的代码运行失败时（例如变量的实际类型发生变化）退回MIXED模式重新解析，之后按需解释执行。
+ * 所有表达式共享一个预先初始化的求值上下文，每次求值只创建一个包装状态的ExpressionRoot。
+ */
+@Slf4j
+public final class CompiledExpression {
+    private static final ClassLoader CLASS_LOADER = CompiledExpression.class.getClassLoader();
+
+    private static final SpelExpressionParser IMMEDIATE_PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, CLASS_LOADER));
+
+    private static final SpelExpressionParser MIXED_PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, CLASS_LOADER));
+
+    /**
+     * 共享的求值上下文，所有组件在此处初始化，求值期间只读
+     */
+    private static final EvaluationContext EVALUATION_CONTEXT = createEvaluationContext();
+
+    @Getter
+    private final String expressionString;
+    private volatile Expression expression;
+    private volatile boolean mixed;
+
+    private CompiledExpression(String expressionString, Expression expression) {
+        this.expressionString = expressionString;
+        this.expression = expression;
+    }
+
+    /**
+     * 解析表达式
+     * @param expressionString 表达式字符串
+     * @return 预编译的表达式
+     * @throws org.springframework.expression.ParseException 表达式语法错误
+     */
+    public static CompiledExpression parse(String expressionString) {
+        return new CompiledExpression(
+                expressionString, IMMEDIATE_PARSER.parseExpression(expressionString));
+    }
+
+    /**
+     * 求值
+     * @param state 工作流状态
+     * @param context 工作流上下文
+     * @param type 期望的结果类型
+     * @return 表达式结果
+     */
+    public <T> T getValue(WorkflowState state, WorkflowContext context, Class<T> type) {
+        ExpressionRoot root = new ExpressionRoot(state, context);
+        try {
+            return expression.getValue(EVALUATION_CONTEXT, root, type);
+        } catch (SpelEvaluationException e) {
+            if (mixed || e.getMessageCode() != SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION) {
+                throw e;
+            }
+            log.debug("Compiled expression failed, falling back to mixed mode: {}",
+                    expressionString, e);
+            expression = MIXED_PARSER.parseExpression(expressionString);
+            mixed = true;
+            return expression.getValue(EVALUATION_CONTEXT, root, type);
+        }
+    }
+
+    /**
+     * 以布尔值求值，结果为null时视为false
+     */
+    public boolean test(WorkflowState state, WorkflowContext context) {
+        return Boolean.TRUE.equals(getValue(state, context, Boolean.class));
+    }
+
+    private static EvaluationContext createEvaluationContext() {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        // 显式初始化，避免并发求值时惰性创建
+        context.setPropertyAccessors(List.of(new MapAccessor(), new ReflectivePropertyAccessor()));
+        context.setMethodResolvers(List.of(new ReflectiveMethodResolver()));
+        context.setTypeLocator(new StandardTypeLocator(CLASS_LOADER));
+        context.setTypeConverter(new StandardTypeConverter());
+        return context;
+    }
+
+    @Override
+    public String toString() {
+        return expressionString;
+    }
+}
@@ -1,11 +1,13 @@
 package com.niko.langchain4jworkflow.workflow.core;
 
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Slf4j
 public class CompositeNodeExecutor implements NodeExecutor {
@@ -14,15 +16,58 @@ public class CompositeNodeExecutor implements NodeExecutor {
 
     public CompositeNodeExecutor(
             ChatLanguageModel chatModel,
-            DefaultNodeExecutor defaultExecutor) {
+            DefaultNodeExecutor defaultExecutor,
+            Executor executor) {
+        this(chatModel, defaultExecutor, ExecutorPools.single(executor));
+    }
+
+    /**
+     * @param pools 按节点类型和@Bulkhead隔离的执行池
+     */
+    public CompositeNodeExecutor(
+            ChatLanguageModel chatModel,
+            DefaultNodeExecutor defaultExecutor,
+            ExecutorPools pools) {
+        this(chatModel, null, defaultExecutor, pools);
+    }
+
+    /**
+     * @param streamingModel @Streaming节点使用的流式模型，为空时按完整响应生成
+     * @param pools 按节点类型和@Bulkhead隔离的执行池
+     */
+    public CompositeNodeExecutor(
+            ChatLanguageModel chatModel,
+            StreamingChatLanguageModel streamingModel,
+            DefaultNodeExecutor defaultExecutor,
+            ExecutorPools pools) {
+        this(chatModel, streamingModel, null, null, null, defaultExecutor, pools);
+    }
+
+    /**
+     * @param streamingModel @Streaming节点使用的流式模型，为空时按完整响应生成
+     * @param responseCache AI节点的响应缓存，为空时每次都调用模型
+     * @param semanticCache @SemanticCache节点的语义缓存，为空时不使用
+     * @param limiter 模型调用的限流器，为空时不限制
+     * @param pools 按节点类型和@Bulkhead隔离的执行池
+     */
+    public CompositeNodeExecutor(
+            ChatLanguageModel chatModel,
+            StreamingChatLanguageModel streamingModel,
+            LlmResponseCache responseCache,
+            SemanticResponseCache semanticCache,
+            LlmCallLimiter limiter,
+            DefaultNodeExecutor defaultExecutor,
+            ExecutorPools pools) {
 
         this.defaultExecutor = defaultExecutor;
         this.executors = new EnumMap<>(NodeType.class);
 
         // 注册各种节点执行器
-        executors.put(NodeType.AI, new AINodeExecutor(chatModel, defaultExecutor));
+        executors.put(NodeType.AI, new AINodeExecutor(
+                chatModel, defaultExecutor, pools, streamingModel, responseCache, semanticCache, limiter));
         executors.put(NodeType.CONDITIONAL, new ConditionalNodeExecutor(defaultExecutor));
         executors.put(NodeType.PARALLEL, new ParallelNodeExecutor(defaultExecutor));
+        executors.put(NodeType.JOIN, new JoinNodeExecutor(defaultExecutor));
     }
 
     @Override
@@ -26,13 +26,13 @@ public class ConditionalNodeExecutor implements NodeExecutor {
             state.recordNodeStart(node.getName());
 
             // 评估条件
-            boolean conditionMet = evaluateCondition(node, state);
+            boolean conditionMet = evaluateCondition(node, state, context);
 
             if (!conditionMet) {
-                // 如果条件不满足，记录完成并返回当前状态
+                // 如果条件不满足，将节点记录为跳过，调度器据此剪除只依赖该分支的下游节点
                 Map<String, Object> outputs = new HashMap<>();
                 outputs.put("conditionMet", false);
-                state.recordNodeCompletion(node.getName(), outputs);
+                state.recordNodeSkipped(node.getName(), outputs);
                 return CompletableFuture.completedFuture(state);
             }
 
@@ -47,8 +47,13 @@ public class ConditionalNodeExecutor implements NodeExecutor {
         }
     }
 
-    private boolean evaluateCondition(Node node, WorkflowState state) {
-        // TODO: 实现条件评估逻辑
-        return true;
+    private boolean evaluateCondition(Node node, WorkflowState state, WorkflowContext context) {
+        CompiledExpression condition = node.getCondition();
+        if (condition == null) {
+            return true;
+        }
+        boolean met = condition.test(state, context);
+        log.debug("Condition '{}' of node {} evaluated to {}", condition, node.getName(), met);
+        return met;
     }
 }
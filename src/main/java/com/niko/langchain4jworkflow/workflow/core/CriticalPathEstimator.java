@@ -0,0 +1,109 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 关键路径估算器
+ * 根据节点的历史执行耗时（指数加权平均）估算每个节点到工作流结束的剩余关键路径长度，
+ * 调度器据此优先提交位于最长链上的就绪节点。
+ */
+@RequiredArgsConstructor
+public class CriticalPathEstimator {
+    /**
+     * 新样本的权重
+     */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * 无历史数据时AI节点的估计耗时（毫秒）
+     */
+    private static final double DEFAULT_AI_MILLIS = 1000.0;
+
+    /**
+     * 无历史数据时其他节点的估计耗时（毫秒）
+     */
+    private static final double DEFAULT_MILLIS = 1.0;
+
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * 工作流名/节点名 -> 平均耗时（毫秒）
+     */
+    private final Map<String, Double> estimates = new ConcurrentHashMap<>();
+
+    /**
+     * 记录节点执行耗时
+     * @param workflowName 工作流名称
+     * @param nodeName 节点名称
+     * @param duration 执行耗时
+     */
+    public void record(String workflowName, String nodeName, Duration duration) {
+        double millis = duration.toNanos() / 1_000_000.0;
+        estimates.merge(key(workflowName, nodeName), millis,
+                (previous, sample) -> previous * (1 - ALPHA) + sample * ALPHA);
+    }
+
+    /**
+     * 估算节点耗时（毫秒）
+     * 优先使用本地历史数据，其次使用指标注册表中的平均耗时，最后按节点类型取默认值
+     */
+    public double estimate(String workflowName, Node node) {
+        Double observed = observed(workflowName, node);
+        if (observed != null) {
+            return observed;
+        }
+        return node.getType() == NodeType.AI ? DEFAULT_AI_MILLIS : DEFAULT_MILLIS;
+    }
+
+    /**
+     * 获取节点的实测平均耗时（毫秒）
+     * @return 实测耗时，没有历史数据时返回null
+     */
+    public Double observed(String workflowName, Node node) {
+        Double estimate = estimates.get(key(workflowName, node.getName()));
+        if (estimate != null) {
+            return estimate;
+        }
+        if (metricsRegistry != null) {
+            Duration mean = metricsRegistry.getMeanDuration(
+                            "node.duration",
+                            "workflow", workflowName,
+                            "node", node.getName())
+                    .orElse(null);
+            if (mean != null) {
+                double millis = mean.toNanos() / 1_000_000.0;
+                estimates.putIfAbsent(key(workflowName, node.getName()), millis);
+                return millis;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 计算每个节点的剩余关键路径长度：节点自身耗时加上后继中最长的剩余路径
+     * @param workflowName 工作流名称
+     * @param plan 执行计划
+     * @return 按节点ID索引的剩余关键路径长度（毫秒）
+     */
+    public double[] rank(String workflowName, ExecutionPlan plan) {
+        double[] rank = new double[plan.size()];
+        // 节点ID即拓扑序，逆序遍历时后继已计算完毕
+        for (int id = plan.size() - 1; id >= 0; id--) {
+            double longest = 0;
+            for (int i = plan.successorStart(id); i < plan.successorEnd(id); i++) {
+                longest = Math.max(longest, rank[plan.successorAt(i)]);
+            }
+            rank[id] = estimate(workflowName, plan.node(id)) + longest;
+        }
+        return rank;
+    }
+
+    private static String key(String workflowName, String nodeName) {
+        return workflowName + '/' + nodeName;
+    }
+}
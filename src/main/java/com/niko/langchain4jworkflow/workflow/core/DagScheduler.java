@@ -0,0 +1,489 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DAG调度器
+ * 每次工作流执行创建一个实例，基于执行计划和原子入度计数器驱动节点调度：
+ * 前驱节点完成时递减后继的剩余入度，使计数归零的那个前驱负责将后继放入就绪队列，
+ * 因此汇聚节点恰好执行一次，且无需重新扫描依赖。
+ * 就绪队列按节点优先级（剩余关键路径长度）排序，可选地限制单次执行的最大并行节点数。
+ * 执行失败或被取消时，仍在运行的节点Future会被取消，以便释放其占用的线程。
+ * 节点被跳过（条件不满足）时不计入后继的有效前驱；所有前驱均被跳过的后继不再执行，
+ * 直接记录为跳过并继续向下剪枝，因此未选中分支的整个下游子图都不会运行。
+ * 汇聚（JOIN）节点的每个前驱完成时立即归约其结果；归约报告提前完成时汇聚节点立即就绪，
+ * 其余前驱完成后不再归约，也不会再次调度该节点。
+ * 流式节点开始输出时，声明接受部分输入的后继不再等待它完成，该前驱即视为已满足；
+ * 流式节点最终完成时不再重复释放这些后继。
+ * 启用链融合时，链头的任务负责执行整条融合链，链头完成后链上成员依次直接释放，不再进入就绪队列。
+ */
+@Slf4j
+public class DagScheduler {
+
+    /**
+     * 节点任务，负责执行单个节点
+     */
+    @FunctionalInterface
+    public interface NodeTask {
+        /**
+         * 执行节点
+         * @param nodeId 执行计划中的节点ID
+         * @return 包含节点执行后状态的Future对象
+         */
+        CompletableFuture<WorkflowState> run(int nodeId);
+    }
+
+    /**
+     * 汇聚任务，在汇聚节点的前驱完成时归约其结果
+     */
+    @FunctionalInterface
+    public interface JoinTask {
+        /**
+         * 归约一个已完成的前驱
+         * 同一汇聚节点的调用是串行的
+         * @param joinId 汇聚节点ID
+         * @param upstreamId 已完成的前驱节点ID
+         * @return 是否已满足提前完成条件
+         */
+        boolean accumulate(int joinId, int upstreamId);
+    }
+
+    private final ExecutionPlan plan;
+    private final WorkflowState state;
+    private final NodeTask task;
+    private final JoinTask joinTask;
+
+    /**
+     * 是否按执行计划中的融合链调度
+     */
+    private final boolean fuseChains;
+
+    /**
+     * 汇聚节点的归约锁，非汇聚节点为null；未设置汇聚任务时整个数组为null
+     */
+    private final Object[] joinLocks;
+
+    /**
+     * 汇聚节点是否已放入就绪队列，保证提前完成与入度归零只调度一次
+     */
+    private final AtomicIntegerArray joinReady;
+
+    /**
+     * 节点是否已提前释放接受部分输入的后继，按节点ID索引
+     */
+    private final AtomicIntegerArray streamed;
+
+    /**
+     * 每个节点剩余未完成的前驱数量
+     */
+    private final AtomicIntegerArray remaining;
+
+    /**
+     * 每个节点已完成且未被跳过的前驱数量
+     */
+    private final AtomicIntegerArray live;
+
+    /**
+     * 尚未结束的节点数量，归零时整个执行完成
+     */
+    private final AtomicInteger pending;
+
+    /**
+     * 就绪队列，访问需持有自身的锁
+     */
+    private final ReadyQueue ready;
+
+    /**
+     * 最大并行节点数，0表示不限制
+     */
+    private final int maxParallelism;
+
+    /**
+     * 正在执行的节点数，受ready锁保护
+     */
+    private int inFlight;
+
+    /**
+     * 正在异步执行的节点Future，按节点ID索引
+     */
+    private final AtomicReferenceArray<CompletableFuture<WorkflowState>> running;
+
+    private final CompletableFuture<WorkflowState> completion = new CompletableFuture<>();
+
+    public DagScheduler(ExecutionPlan plan, WorkflowState state, NodeTask task) {
+        this(plan, state, task, null, 0);
+    }
+
+    /**
+     * @param priorities 按节点ID索引的优先级，值越大越先执行；为空时按拓扑序执行
+     * @param maxParallelism 最大并行节点数，0表示不限制
+     */
+    public DagScheduler(
+            ExecutionPlan plan,
+            WorkflowState state,
+            NodeTask task,
+            double[] priorities,
+            int maxParallelism) {
+        this(plan, state, task, null, priorities, maxParallelism);
+    }
+
+    /**
+     * @param joinTask 汇聚节点的归约任务，为空时汇聚节点与普通节点一样等待所有前驱
+     * @param priorities 按节点ID索引的优先级，值越大越先执行；为空时按拓扑序执行
+     * @param maxParallelism 最大并行节点数，0表示不限制
+     */
+    public DagScheduler(
+            ExecutionPlan plan,
+            WorkflowState state,
+            NodeTask task,
+            JoinTask joinTask,
+            double[] priorities,
+            int maxParallelism) {
+        this(plan, state, task, joinTask, priorities, maxParallelism, false);
+    }
+
+    /**
+     * @param joinTask 汇聚节点的归约任务，为空时汇聚节点与普通节点一样等待所有前驱
+     * @param priorities 按节点ID索引的优先级，值越大越先执行；为空时按拓扑序执行
+     * @param maxParallelism 最大并行节点数，0表示不限制
+     * @param fuseChains 是否按融合链调度，为true时任务需在链头的Future中执行完整条链
+     */
+    public DagScheduler(
+            ExecutionPlan plan,
+            WorkflowState state,
+            NodeTask task,
+            JoinTask joinTask,
+            double[] priorities,
+            int maxParallelism,
+            boolean fuseChains) {
+        this.plan = plan;
+        this.state = state;
+        this.task = task;
+        this.joinTask = joinTask;
+        this.fuseChains = fuseChains;
+        this.joinLocks = joinTask != null ? joinLocks(plan) : null;
+        this.joinReady = joinLocks != null ? new AtomicIntegerArray(plan.size()) : null;
+        this.maxParallelism = maxParallelism;
+        int[] inDegrees = new int[plan.size()];
+        for (int id = 0; id < inDegrees.length; id++) {
+            inDegrees[id] = plan.inDegree(id);
+        }
+        this.remaining = new AtomicIntegerArray(inDegrees);
+        this.live = new AtomicIntegerArray(plan.size());
+        this.streamed = new AtomicIntegerArray(plan.size());
+        this.pending = new AtomicInteger(plan.size());
+        this.ready = new ReadyQueue(Math.max(plan.startNodeCount(), 4), priorities);
+        this.running = new AtomicReferenceArray<>(plan.size());
+    }
+
+    private static Object[] joinLocks(ExecutionPlan plan) {
+        Object[] locks = null;
+        for (int id = 0; id < plan.size(); id++) {
+            if (plan.node(id).getType() == NodeType.JOIN) {
+                if (locks == null) {
+                    locks = new Object[plan.size()];
+                }
+                locks[id] = new Object();
+            }
+        }
+        return locks;
+    }
+
+    /**
+     * 开始调度
+     * @return 所有节点执行完成时完成的Future对象
+     */
+    public CompletableFuture<WorkflowState> start() {
+        if (plan.size() == 0) {
+            completion.complete(state);
+            return completion;
+        }
+        synchronized (ready) {
+            for (int i = 0; i < plan.startNodeCount(); i++) {
+                ready.add(plan.startNodeAt(i));
+            }
+        }
+        dispatch();
+        return completion;
+    }
+
+    /**
+     * 节点开始流式输出，释放接受部分输入的后继
+     * 这些后继不再等待该节点完成，只要其余前驱都已完成即可执行
+     * @param nodeId 流式节点ID
+     */
+    public void releasePartial(int nodeId) {
+        if (nodeId < 0 || completion.isDone() || !streamed.compareAndSet(nodeId, 0, 1)) {
+            return;
+        }
+        boolean released = false;
+        for (int i = plan.successorStart(nodeId); i < plan.successorEnd(nodeId); i++) {
+            int successor = plan.successorAt(i);
+            if (!plan.acceptsPartial(successor)) {
+                continue;
+            }
+            live.incrementAndGet(successor);
+            if (remaining.decrementAndGet(successor) == 0 && live.get(successor) > 0) {
+                log.debug("Node {} starts on partial output of {}",
+                        plan.nameOf(successor), plan.nameOf(nodeId));
+                synchronized (ready) {
+                    ready.add(successor);
+                }
+                released = true;
+            }
+        }
+        if (released) {
+            dispatch();
+        }
+    }
+
+    /**
+     * 以指定原因终止执行，并取消所有正在运行的节点
+     * @param reason 终止原因
+     */
+    public void cancel(Throwable reason) {
+        fail(reason);
+    }
+
+    /**
+     * 按优先级取出就绪节点执行，直到队列为空或达到并行上限。
+     * 同步完成的节点直接在当前线程释放后继并继续循环，避免长链上的递归调用；
+     * 异步节点在完成回调中继续调度。
+     */
+    private void dispatch() {
+        while (!completion.isDone()) {
+            int nodeId;
+            synchronized (ready) {
+                if (ready.isEmpty() || (maxParallelism > 0 && inFlight >= maxParallelism)) {
+                    return;
+                }
+                nodeId = ready.poll();
+                inFlight++;
+            }
+
+            CompletableFuture<WorkflowState> future;
+            try {
+                future = task.run(nodeId);
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+
+            if (future.isDone()) {
+                if (!onNodeDone(nodeId, future)) {
+                    return;
+                }
+            } else {
+                running.set(nodeId, future);
+                if (completion.isDone()) {
+                    // 执行已经失败，调度前的检查与此处之间提交的节点不再需要
+                    cancelRunning();
+                }
+                future.whenComplete((result, error) -> {
+                    if (onNodeDone(nodeId, future)) {
+                        dispatch();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 处理已完成的节点
+     * @return 节点是否成功完成
+     */
+    private boolean onNodeDone(int nodeId, CompletableFuture<WorkflowState> future) {
+        running.compareAndSet(nodeId, future, null);
+        synchronized (ready) {
+            inFlight--;
+        }
+        WorkflowState result;
+        try {
+            result = future.join();
+        } catch (Throwable e) {
+            fail(e);
+            return false;
+        }
+        release(nodeId, result);
+        return true;
+    }
+
+    /**
+     * 节点完成后递减后继的剩余入度，将归零的后继加入就绪队列；
+     * 所有前驱均被跳过的后继直接记录为跳过，已随链头执行的融合链成员视为已完成，
+     * 两者都以显式栈继续释放其后继
+     */
+    private void release(int nodeId, WorkflowState result) {
+        state.merge(result);
+        int[] cascade = null;
+        int cascadeCount = 0;
+        int current = nodeId;
+        while (true) {
+            boolean skipped = state.isNodeSkipped(plan.node(current).getName());
+            int start = plan.successorStart(current);
+            int end = plan.successorEnd(current);
+            boolean partialReleased = streamed.get(current) != 0;
+            for (int i = start; i < end; i++) {
+                int successor = plan.successorAt(i);
+                if (partialReleased && plan.acceptsPartial(successor)) {
+                    continue;
+                }
+                boolean join = joinLocks != null && joinLocks[successor] != null;
+                boolean early = false;
+                if (join && !skipped) {
+                    try {
+                        early = accumulate(successor, current);
+                    } catch (Throwable e) {
+                        fail(e);
+                        return;
+                    }
+                }
+                // 先累计有效前驱再递减入度，使最后一个前驱能看到完整的计数
+                if (!skipped) {
+                    live.incrementAndGet(successor);
+                }
+                if (remaining.decrementAndGet(successor) != 0) {
+                    if (early) {
+                        log.debug("Join node {} completed early", plan.node(successor).getName());
+                        synchronized (ready) {
+                            ready.add(successor);
+                        }
+                    }
+                    continue;
+                }
+                // 被跳过的链头不会执行链上成员，成员按普通节点剪枝
+                boolean fused = fuseChains && !skipped && plan.fusedNext(current) == successor;
+                if (fused || live.get(successor) <= 0) {
+                    if (!fused) {
+                        String name = plan.node(successor).getName();
+                        log.debug("Pruning node {}: all predecessors were skipped", name);
+                        state.recordNodeSkipped(name, Map.of());
+                    }
+                    if (cascade == null) {
+                        cascade = new int[4];
+                    } else if (cascadeCount == cascade.length) {
+                        cascade = Arrays.copyOf(cascade, cascadeCount * 2);
+                    }
+                    cascade[cascadeCount++] = successor;
+                } else if (early || !join || joinReady.compareAndSet(successor, 0, 1)) {
+                    synchronized (ready) {
+                        ready.add(successor);
+                    }
+                }
+            }
+            if (pending.decrementAndGet() == 0) {
+                completion.complete(state);
+            }
+            if (cascadeCount == 0) {
+                return;
+            }
+            current = cascade[--cascadeCount];
+        }
+    }
+
+    /**
+     * 串行归约汇聚节点的一个前驱
+     * @return 本次归约是否触发了提前完成，只有触发者负责调度汇聚节点
+     */
+    private boolean accumulate(int joinId, int upstreamId) {
+        synchronized (joinLocks[joinId]) {
+            if (joinReady.get(joinId) != 0) {
+                return false;
+            }
+            return joinTask.accumulate(joinId, upstreamId) && joinReady.compareAndSet(joinId, 0, 1);
+        }
+    }
+
+    private void fail(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        if (completion.completeExceptionally(cause)) {
+            cancelRunning();
+        } else {
+            log.debug("Ignoring node failure after execution already finished: {}",
+                    cause.getMessage());
+        }
+    }
+
+    private void cancelRunning() {
+        for (int id = 0; id < running.length(); id++) {
+            CompletableFuture<WorkflowState> future = running.getAndSet(id, null);
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 基于二叉堆的就绪队列，优先级高者先出，优先级相同时ID小者（拓扑序靠前）先出
+     */
+    private static final class ReadyQueue {
+        private final double[] priorities;
+        private int[] heap;
+        private int size;
+
+        ReadyQueue(int capacity, double[] priorities) {
+            this.heap = new int[capacity];
+            this.priorities = priorities;
+        }
+
+        void add(int id) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(id, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = id;
+        }
+
+        int poll() {
+            int head = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && before(heap[right], heap[child])) {
+                    child = right;
+                }
+                if (!before(heap[child], last)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            if (size > 0) {
+                heap[i] = last;
+            }
+            return head;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        private boolean before(int a, int b) {
+            if (priorities != null && priorities[a] != priorities[b]) {
+                return priorities[a] > priorities[b];
+            }
+            return a < b;
+        }
+    }
+}
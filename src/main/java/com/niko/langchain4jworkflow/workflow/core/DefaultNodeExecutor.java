@@ -1,140 +1,120 @@
 package com.niko.langchain4jworkflow.workflow.core;
 
-import com.niko.langchain4jworkflow.workflow.annotation.StateVariable;
 import com.niko.langchain4jworkflow.workflow.exceptions.NodeExecutionException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.DefaultParameterNameDiscoverer;
-import org.springframework.core.ParameterNameDiscoverer;
-import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.Expression;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 @Slf4j
 @RequiredArgsConstructor
 public class DefaultNodeExecutor implements NodeExecutor {
-    private final SpelExpressionParser parser = new SpelExpressionParser();
-    private final ParameterNameDiscoverer parameterNameDiscoverer =
-            new DefaultParameterNameDiscoverer();
+    /**
+     * 异步节点的执行池，按节点类型或@Bulkhead选择
+     */
+    private final ExecutorPools pools;
+    /**
+     * 未在扫描时预编译的节点方法的调用器缓存
+     */
+    private final Map<Method, NodeInvoker> invokers = new ConcurrentHashMap<>();
+
+    /**
+     * 所有异步节点都在同一个执行器上运行
+     */
+    public DefaultNodeExecutor(Executor executor) {
+        this(ExecutorPools.single(executor));
+    }
 
     @Override
     public CompletableFuture<WorkflowState> execute(
             Node node,
             WorkflowState state,
             WorkflowContext context) {
+        return execute(node, state, context, node.getConfig().isAsync());
+    }
+
+    /**
+     * 在节点的执行池上执行，同步的节点方法也不占用调用线程
+     * 供并行映射节点让同步方法的元素并发运行
+     */
+    CompletableFuture<WorkflowState> executeOnPool(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context) {
+        return execute(node, state, context, true);
+    }
+
+    private CompletableFuture<WorkflowState> execute(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context,
+            boolean async) {
 
         try {
             state.recordNodeStart(node.getName());
-            Method method = node.getMethod();
-            Object[] args = resolveArguments(method, state, context);
-
-            CompletableFuture<Object> resultFuture;
-            if (node.getConfig().isAsync()) {
-                resultFuture = executeAsync(method, node.getTarget(), args);
-            } else {
-                resultFuture = CompletableFuture.completedFuture(
-                        method.invoke(node.getTarget(), args));
+            NodeInvoker invoker = resolveInvoker(node);
+            Object[] args = invoker.resolveArguments(state, context);
+
+            if (!async) {
+                // 同步节点在当前线程完成，只返回一个已完成的Future，不经过依赖阶段
+                Object result = invoke(node, invoker, args, "Execution failed");
+                return CompletableFuture.completedFuture(processResult(node, state, result));
             }
 
-            return resultFuture
+            InterruptibleFuture<Object> asyncTask = executeAsync(node, invoker, args);
+            CompletableFuture<WorkflowState> future = asyncTask
                     .thenApply(result -> processResult(node, state, result))
                     .exceptionally(throwable -> {
                         handleError(node, state, throwable);
                         throw new NodeExecutionException(
                                 node.getName(), "Execution failed", throwable);
                     });
+            // 返回的Future超时或被取消时中断正在运行的节点方法
+            return asyncTask.bind(future);
 
         } catch (Exception e) {
-            handleError(node, state, e);
-            CompletableFuture<WorkflowState> future = new CompletableFuture<>();
-            future.completeExceptionally(e);
-            return future;
+            recordError(node, state, e);
+            return CompletableFuture.failedFuture(e);
         }
     }
 
-    private Object[] resolveArguments(
-            Method method,
-            WorkflowState state,
-            WorkflowContext context) {
-
-        Parameter[] parameters = method.getParameters();
-        String[] parameterNames = parameterNameDiscoverer.getParameterNames(method);
-        Object[] args = new Object[parameters.length];
-
-        for (int i = 0; i < parameters.length; i++) {
-            Parameter param = parameters[i];
-            String paramName = parameterNames[i];
-            args[i] = resolveParameter(param, paramName, state, context);
+    /**
+     * 获取节点的调用器，扫描时未生成的按方法编译一次后缓存
+     */
+    private NodeInvoker resolveInvoker(Node node) {
+        NodeInvoker invoker = node.getInvoker();
+        if (invoker != null) {
+            return invoker;
         }
-
-        return args;
+        return invokers.computeIfAbsent(node.getMethod(), NodeInvoker::compile);
     }
 
-    private Object resolveParameter(
-            Parameter parameter,
-            String parameterName,
-            WorkflowState state,
-            WorkflowContext context) {
-
-        if (parameter.getType().equals(WorkflowState.class)) {
-            return state;
-        }
-        if (parameter.getType().equals(WorkflowContext.class)) {
-            return context;
-        }
-
-        // 处理@StateVariable注解
-        StateVariable stateVar = parameter.getAnnotation(StateVariable.class);
-        if (stateVar != null) {
-            String key = stateVar.value().isEmpty() ? parameterName : stateVar.value();
-            Object value = state.getVariable(key);
-            if (value == null && stateVar.required()) {
-                throw new IllegalArgumentException(
-                        "Required state variable not found: " + key);
-            }
-            return value;
-        }
-
-        // 处理SpEL表达式
-        String spelExpression = resolveSpelExpression(parameter);
-        if (spelExpression != null) {
-            EvaluationContext evalContext = createEvaluationContext(state, context);
-            Expression expression = parser.parseExpression(spelExpression);
-            return expression.getValue(evalContext, parameter.getType());
+    private static Object invoke(Node node, NodeInvoker invoker, Object[] args, String message) {
+        try {
+            return invoker.invoke(node.getTarget(), args);
+        } catch (Throwable e) {
+            // 保留节点方法抛出的原始异常，供重试策略按类型判断
+            throw new NodeExecutionException(node.getName(), message, e);
         }
-
-        return null;
     }
 
-    private CompletableFuture<Object> executeAsync(
-            Method method,
-            Object target,
+    private InterruptibleFuture<Object> executeAsync(
+            Node node,
+            NodeInvoker invoker,
             Object[] args) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return method.invoke(target, args);
-            } catch (Exception e) {
-                throw new NodeExecutionException(
-                        "Async execution failed", e.getMessage());
-            }
-        });
+        return InterruptibleFuture.supplyAsync(
+                () -> invoke(node, invoker, args, "Async execution failed"), pools.forNode(node));
     }
 
     private WorkflowState processResult(
             Node node,
             WorkflowState state,
             Object result) {
-        Map<String, Object> outputs = new HashMap<>();
-        if (result != null) {
-            outputs.put("result", result);
-        }
+        Map<String, Object> outputs = result != null ? Map.of("result", result) : Map.of();
         state.recordNodeCompletion(node.getName(), outputs);
         return state;
     }
@@ -143,8 +123,7 @@ public class DefaultNodeExecutor implements NodeExecutor {
             Node node,
             WorkflowState state,
             Throwable error) {
-        log.error("Node execution failed: {}", node.getName(), error);
-        state.recordNodeError(node.getName(), error);
+        recordError(node, state, error);
         if (error instanceof RuntimeException) {
             throw (RuntimeException) error;
         }
@@ -152,18 +131,8 @@ public class DefaultNodeExecutor implements NodeExecutor {
                 node.getName(), "Execution failed", error);
     }
 
-    private String resolveSpelExpression(Parameter parameter) {
-        // TODO: 添加自定义注解处理
-        return null;
-    }
-
-    private EvaluationContext createEvaluationContext(
-            WorkflowState state,
-            WorkflowContext context) {
-        StandardEvaluationContext evalContext = new StandardEvaluationContext();
-        evalContext.setVariable("state", state);
-        evalContext.setVariable("context", context);
-        evalContext.setVariable("variables", state.getVariables());
-        return evalContext;
+    private static void recordError(Node node, WorkflowState state, Throwable error) {
+        log.error("Node execution failed: {}", node.getName(), error);
+        state.recordNodeError(node.getName(), error);
     }
-}
\ No newline at end of file
+}
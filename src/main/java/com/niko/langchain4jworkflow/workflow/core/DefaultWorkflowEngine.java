@@ -9,14 +9,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Builder
@@ -28,16 +29,53 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
     private final ApplicationEventPublisher eventPublisher;
     private final ExecutorService executorService;
 
+    /**
+     * 关键路径估算器，为空时就绪节点按拓扑序执行
+     */
+    private final CriticalPathEstimator criticalPathEstimator;
+
+    /**
+     * 单次执行的最大并行节点数，0表示不限制
+     */
+    private final int maxParallelism;
+
+    /**
+     * 融合链的观测粒度，为空时不融合，每个节点单独调度
+     */
+    private final FusionDetail fusionDetail;
+
+    /**
+     * 未设置截止时间时的剩余预算
+     */
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
     // 存储活跃的工作流执行状态
     private final Map<String, ExecutionContext> activeExecutions = new ConcurrentHashMap<>();
 
+    /**
+     * 工作流未配置超时时使用的整体超时时间
+     */
     @Builder.Default
     private final Duration defaultTimeout = Duration.ofMinutes(5);
 
+    /**
+     * 驱动节点和工作流超时的时间轮
+     */
+    @Builder.Default
+    private final TimerWheel timerWheel = TimerWheel.shared();
+
     @Override
     public CompletableFuture<WorkflowState> execute(
             String workflowName,
             Map<String, Object> inputs) {
+        return execute(workflowName, inputs, ExecutionOptions.defaults());
+    }
+
+    @Override
+    public CompletableFuture<WorkflowState> execute(
+            String workflowName,
+            Map<String, Object> inputs,
+            ExecutionOptions options) {
 
         log.info("Starting workflow execution: {}", workflowName);
 
@@ -47,20 +85,46 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
                     .orElseThrow(() -> new WorkflowNotFoundException(workflowName));
 
             // 创建执行上下文
-            String executionId = generateExecutionId();
-            WorkflowState state = new WorkflowState(executionId);
+            String executionId = options.getExecutionId() != null
+                    ? options.getExecutionId()
+                    : generateExecutionId();
+            WorkflowState state = new WorkflowState(executionId, workflow.getVariableLayout());
             state.getVariables().putAll(inputs);
 
+            // 截止时间在执行开始时确定，并作为剩余预算传递给每个节点
+            Duration timeout = options.getTimeout() != null
+                    ? options.getTimeout()
+                    : resolveWorkflowTimeout(workflow);
+            CancellationToken cancellationToken = new CancellationToken();
+            Instant deadline = timeout != null ? Instant.now().plus(timeout) : null;
+            StreamRelay streamRelay = new StreamRelay(workflow.getName(), executionId, state,
+                    workflow.getExecutionPlan());
             ExecutionContext context = ExecutionContext.builder()
                     .workflow(workflow)
+                    .plan(workflow.getExecutionPlan())
                     .state(state)
+                    .cancellationToken(cancellationToken)
+                    .timeout(timeout)
+                    .deadline(deadline)
+                    .deadlineNanos(timeout != null ? System.nanoTime() + timeout.toNanos() : 0)
+                    .streamRelay(streamRelay)
+                    // 节点共享同一个只读的工作流上下文，不再为每个节点重新构建
+                    .workflowContext(WorkflowContext.builder()
+                            .workflowId(executionId)
+                            .workflowName(workflow.getName())
+                            .state(state)
+                            .cancellationToken(cancellationToken)
+                            .deadline(deadline)
+                            .streamListener(streamRelay)
+                            .build())
                     .build();
 
             // 记录活跃执行
             activeExecutions.put(executionId, context);
 
             // 发布工作流开始事件
-            publishWorkflowStartEvent(workflowName, executionId, inputs);
+            publishWorkflowStartEvent(workflowName, executionId, inputs,
+                    workflow.getExecutionPlan().hasStreamingNodes());
 
             // 开始执行
             return executeWorkflow(context)
@@ -90,13 +154,13 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
         }
 
         try {
-            context.cancel();
-            activeExecutions.remove(executionId);
+            // 取消令牌只生效一次，重复停止不会重复发布取消事件
+            if (context.cancel("Stopped by request")) {
+                log.info("Stopped workflow execution: {}", executionId);
 
-            log.info("Stopped workflow execution: {}", executionId);
-
-            // 发布工作流取消事件
-            publishWorkflowCancelEvent(context.getWorkflow().getName(), executionId);
+                // 发布工作流取消事件
+                publishWorkflowCancelEvent(context.getWorkflow().getName(), executionId);
+            }
 
         } catch (Exception e) {
             log.error("Failed to stop workflow execution: {}", executionId, e);
@@ -119,22 +183,44 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
 
         try {
             // 获取起始节点
-            List<String> startNodes = context.getWorkflow().getStartNodes();
-            if (startNodes.isEmpty()) {
+            ExecutionPlan plan = context.getPlan();
+            if (plan.startNodeCount() == 0) {
                 throw new InvalidWorkflowException("No start nodes defined");
             }
 
-            // 并行执行所有起始节点
-            List<CompletableFuture<WorkflowState>> futures = new ArrayList<>();
-            for (String nodeName : startNodes) {
-                Node node = context.getWorkflow().getNodes().get(nodeName);
-                futures.add(executeNode(node, context));
+            // 由调度器按入度计数驱动节点执行，每个节点恰好执行一次；
+            // 同时就绪的节点按剩余关键路径长度优先执行
+            double[] priorities = criticalPathEstimator != null
+                    ? criticalPathEstimator.rank(context.getWorkflow().getName(), plan)
+                    : null;
+            // 汇聚节点的前驱每完成一个即归约其结果
+            DagScheduler scheduler = new DagScheduler(plan, context.getState(),
+                    nodeId -> executeNode(nodeId, context),
+                    (joinId, upstreamId) -> JoinNodeExecutor.accumulate(
+                            plan.node(joinId),
+                            plan.nameOf(upstreamId),
+                            context.getState(),
+                            context.getWorkflowContext()),
+                    priorities,
+                    maxParallelism,
+                    fusionDetail != null);
+            context.getStreamRelay().attach(scheduler);
+
+            // 整体超时后终止调度并取消所有运行中的节点
+            Duration timeout = context.getTimeout();
+            TimerWheel.Task timer = timeout != null
+                    ? timerWheel.schedule(() -> scheduler.cancel(new TimeoutException(String.format(
+                            "Workflow '%s' timed out after %d ms",
+                            context.getWorkflow().getName(), timeout.toMillis()))), timeout)
+                    : null;
+            // 取消时停止提交就绪节点，并中断正在运行的节点
+            context.getCancellationToken().onCancel(() -> scheduler.cancel(
+                    new CancellationException(context.getCancellationToken().getReason())));
+            CompletableFuture<WorkflowState> completion = scheduler.start();
+            if (timer != null) {
+                completion.whenComplete((state, error) -> timer.cancel());
             }
-
-            // 等待所有节点完成
-            return CompletableFuture.allOf(
-                            futures.toArray(new CompletableFuture[0]))
-                    .thenApply(v -> mergeStates(context.getState(), futures));
+            return completion;
 
         } catch (Exception e) {
             log.error("Workflow execution failed", e);
@@ -144,32 +230,54 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
     }
 
     private CompletableFuture<WorkflowState> executeNode(
-            Node node,
+            int nodeId,
             ExecutionContext context) {
 
+        if (fusionDetail != null && context.getPlan().fusedNext(nodeId) >= 0) {
+            return executeChain(nodeId, context);
+        }
+        return executeNode(context.getPlan().node(nodeId), context, true);
+    }
+
+    /**
+     * 执行单个节点
+     * @param observed 成功时是否发布节点事件并记录节点指标；失败时总是发布错误事件
+     */
+    private CompletableFuture<WorkflowState> executeNode(
+            Node node,
+            ExecutionContext context,
+            boolean observed) {
+
         try {
-            // 检查节点是否可以执行
-            if (!canExecuteNode(node, context.getState())) {
-                return CompletableFuture.completedFuture(context.getState());
+            // 记录节点开始
+            if (observed) {
+                publishNodeStartEvent(
+                        context.getWorkflow().getName(),
+                        context.getState().getWorkflowId(),
+                        node.getName());
             }
 
-            // 记录节点开始
-            publishNodeStartEvent(
-                    context.getWorkflow().getName(),
-                    context.getState().getWorkflowId(),
-                    node.getName());
-
-            // 执行节点
-            return nodeExecutor.execute(node, context.getState(),
-                            buildWorkflowContext(context))
-                    .thenCompose(newState -> executeNextNodes(node, context, newState))
-                    .whenComplete((state, error) -> {
-                        if (error != null) {
-                            handleNodeError(node, context, error);
-                        } else {
-                            handleNodeSuccess(node, context, state);
-                        }
-                    });
+            // 剩余预算不足以完成节点时直接失败，不再占用执行器和模型配额
+            long remainingNanos = context.getRemainingNanos();
+            CompletableFuture<WorkflowState> future = checkBudget(node, context, remainingNanos);
+            if (future == null) {
+                // 执行节点，返回执行器自身的Future，使调度器的取消能够传递到节点任务
+                future = nodeExecutor.execute(node, context.getState(), context.getWorkflowContext());
+                if (!future.isDone()) {
+                    Duration timeout = effectiveTimeout(node, remainingNanos);
+                    if (timeout != null) {
+                        enforceNodeTimeout(node, context, future, timeout);
+                    }
+                }
+            }
+            // 同步完成的节点在当前线程直接处理结果，只有真正异步的节点才注册完成回调
+            if (future.isDone()) {
+                completeNode(node, context, future, observed);
+            } else {
+                CompletableFuture<WorkflowState> pending = future;
+                future.whenComplete((state, error) -> completeNode(node, context, pending, observed));
+            }
+            return future;
 
         } catch (Exception e) {
             log.error("Node execution failed: {}", node.getName(), e);
@@ -178,62 +286,202 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
         }
     }
 
-    private boolean canExecuteNode(Node node, WorkflowState state) {
-        // 检查依赖节点是否都已完成
-        if (node.getDependencies() != null) {
-            return node.getDependencies().stream()
-                    .allMatch(state::isNodeCompleted);
+    /**
+     * 执行一条融合链
+     * 成员节点在同一任务中依次执行，每个成员照常记录执行历史和预算检查；
+     * 按CHAIN粒度观测时，成功路径上只在链头发布开始事件、在链尾发布完成事件
+     */
+    private CompletableFuture<WorkflowState> executeChain(
+            int headId,
+            ExecutionContext context) {
+
+        boolean perNode = fusionDetail == FusionDetail.NODE;
+        if (perNode) {
+            return continueChain(headId, context, true);
         }
-        return true;
+
+        long started = System.nanoTime();
+        publishNodeStartEvent(
+                context.getWorkflow().getName(),
+                context.getState().getWorkflowId(),
+                context.getPlan().nameOf(headId));
+        CompletableFuture<WorkflowState> future = continueChain(headId, context, false);
+        if (future.isDone()) {
+            completeChain(headId, context, started, future);
+        } else {
+            future.whenComplete((state, error) -> completeChain(headId, context, started, future));
+        }
+        return future;
     }
 
-    private CompletableFuture<WorkflowState> executeNextNodes(
-            Node currentNode,
+    /**
+     * 从指定成员开始依次执行链上剩余节点
+     * 成员都是同步节点，通常整条链在当前线程完成；执行器仍返回未完成的Future时，
+     * 在其完成后继续执行剩余成员
+     */
+    private CompletableFuture<WorkflowState> continueChain(
+            int nodeId,
             ExecutionContext context,
-            WorkflowState state) {
+            boolean observed) {
+
+        ExecutionPlan plan = context.getPlan();
+        int id = nodeId;
+        while (true) {
+            // 链上的成员不经过调度器，取消后不再执行剩余成员
+            if (context.getCancellationToken().isCancelled()) {
+                return CompletableFuture.failedFuture(
+                        new CancellationException(context.getCancellationToken().getReason()));
+            }
+            CompletableFuture<WorkflowState> future = executeNode(plan.node(id), context, observed);
+            int next = plan.fusedNext(id);
+            if (next < 0 || future.isCompletedExceptionally()) {
+                return future;
+            }
+            if (!future.isDone()) {
+                return future.thenCompose(state -> continueChain(next, context, observed));
+            }
+            id = next;
+        }
+    }
+
+    private void completeChain(
+            int headId,
+            ExecutionContext context,
+            long started,
+            CompletableFuture<WorkflowState> future) {
 
-        // 找到所有依赖当前节点的后续节点
-        List<Node> nextNodes = findNextNodes(currentNode, context.getWorkflow());
-        if (nextNodes.isEmpty()) {
-            return CompletableFuture.completedFuture(state);
+        if (future.isCompletedExceptionally()) {
+            // 失败的成员已发布自身的错误事件
+            return;
         }
+        ExecutionPlan plan = context.getPlan();
+        int tailId = headId;
+        while (plan.fusedNext(tailId) >= 0) {
+            tailId = plan.fusedNext(tailId);
+        }
+        String workflowName = context.getWorkflow().getName();
+        String head = plan.nameOf(headId);
+        metricsRegistry.incrementCounter(
+                "chain.completions",
+                "workflow", workflowName,
+                "node", head);
+        metricsRegistry.recordDuration(
+                "chain.duration",
+                Duration.ofNanos(System.nanoTime() - started),
+                "workflow", workflowName,
+                "node", head);
+        publishNodeCompleteEvent(
+                workflowName,
+                context.getState().getWorkflowId(),
+                plan.nameOf(tailId),
+                future.join());
+    }
 
-        // 并行执行所有后续节点
-        List<CompletableFuture<WorkflowState>> futures = new ArrayList<>();
-        for (Node node : nextNodes) {
-            ExecutionContext nextContext = context.withState(state);
-            futures.add(executeNode(node, nextContext));
+    private void completeNode(
+            Node node,
+            ExecutionContext context,
+            CompletableFuture<WorkflowState> future,
+            boolean observed) {
+
+        if (!future.isCompletedExceptionally()) {
+            if (observed) {
+                handleNodeSuccess(node, context, future.join());
+            } else if (criticalPathEstimator != null) {
+                // 不发布节点指标时，关键路径和预算估算仍需要每个节点的耗时
+                WorkflowState.NodeExecutionInfo info =
+                        context.getState().getExecutionHistory().get(node.getName());
+                if (info != null && info.getEndTime() != null) {
+                    criticalPathEstimator.record(
+                            context.getWorkflow().getName(), node.getName(), info.getDuration());
+                }
+            }
+            return;
+        }
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            handleNodeError(node, context, e.getCause() != null ? e.getCause() : e);
+        } catch (CancellationException e) {
+            handleNodeError(node, context, e);
         }
+    }
+
+    /**
+     * 检查剩余预算
+     * 预算耗尽，或节点的实测平均耗时已超过剩余预算时，返回以TimeoutException失败的Future
+     * @return 预算不足时返回失败的Future，否则返回null
+     */
+    private CompletableFuture<WorkflowState> checkBudget(
+            Node node,
+            ExecutionContext context,
+            long remainingNanos) {
 
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> mergeStates(state, futures));
+        if (remainingNanos == NO_DEADLINE) {
+            return null;
+        }
+        String reason = null;
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(remainingNanos);
+        if (remainingNanos == 0) {
+            reason = "workflow deadline exceeded";
+        } else if (criticalPathEstimator != null) {
+            Double observed = criticalPathEstimator.observed(context.getWorkflow().getName(), node);
+            if (observed != null && observed > remainingMillis) {
+                reason = String.format("expected %d ms but only %d ms of budget remain",
+                        observed.longValue(), remainingMillis);
+            }
+        }
+        if (reason == null) {
+            return null;
+        }
+        TimeoutException error = new TimeoutException(String.format(
+                "Node '%s' skipped: %s", node.getName(), reason));
+        log.warn("{} ({})", error.getMessage(), context.getState().getWorkflowId());
+        context.getState().recordNodeStart(node.getName());
+        context.getState().recordNodeError(node.getName(), error);
+        return CompletableFuture.failedFuture(error);
     }
 
-    private List<Node> findNextNodes(Node currentNode, WorkflowDefinition workflow) {
-        return workflow.getNodes().values().stream()
-                .filter(node -> node.getDependencies() != null &&
-                        node.getDependencies().contains(currentNode.getName()))
-                .toList();
+    /**
+     * 节点的有效超时：节点配置的超时与剩余预算中较小者
+     */
+    private Duration effectiveTimeout(Node node, long remainingNanos) {
+        Duration configured = node.getConfig() != null ? node.getConfig().getTimeout() : null;
+        Duration remaining = remainingNanos != NO_DEADLINE ? Duration.ofNanos(remainingNanos) : null;
+        if (configured == null) {
+            return remaining;
+        }
+        return remaining != null && remaining.compareTo(configured) < 0 ? remaining : configured;
     }
 
-    private WorkflowState mergeStates(
-            WorkflowState baseState,
-            List<CompletableFuture<WorkflowState>> futures) {
-        futures.stream()
-                .map(CompletableFuture::join)
-                .forEach(state -> {
-                    baseState.getVariables().putAll(state.getVariables());
-                    baseState.getExecutionHistory().putAll(state.getExecutionHistory());
-                });
-        return baseState;
+    /**
+     * 节点超时后以TimeoutException完成节点Future，执行器据此中断正在运行的任务
+     */
+    private void enforceNodeTimeout(
+            Node node,
+            ExecutionContext context,
+            CompletableFuture<WorkflowState> future,
+            Duration timeout) {
+
+        TimerWheel.Task timer = timerWheel.schedule(() -> {
+            TimeoutException error = new TimeoutException(String.format(
+                    "Node '%s' timed out after %d ms", node.getName(), timeout.toMillis()));
+            if (future.completeExceptionally(error)) {
+                log.warn("Node execution timed out: {} ({})",
+                        node.getName(), context.getState().getWorkflowId());
+                context.getState().recordNodeError(node.getName(), error);
+            }
+        }, timeout);
+        future.whenComplete((state, error) -> timer.cancel());
     }
 
-    private WorkflowContext buildWorkflowContext(ExecutionContext context) {
-        return WorkflowContext.builder()
-                .workflowId(context.getState().getWorkflowId())
-                .workflowName(context.getWorkflow().getName())
-                .state(context.getState())
-                .build();
+    /**
+     * 工作流超时时间，未配置时使用默认超时
+     */
+    private Duration resolveWorkflowTimeout(WorkflowDefinition workflow) {
+        if (workflow.getConfig() != null && workflow.getConfig().getTimeout() != null) {
+            return workflow.getConfig().getTimeout();
+        }
+        return defaultTimeout;
     }
 
     private void handleSuccess(ExecutionContext context) {
@@ -259,8 +507,21 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
         String workflowName = context.getWorkflow().getName();
         String executionId = context.getState().getWorkflowId();
 
+        if (context.getCancellationToken().isCancelled()) {
+            // 取消不是执行错误，取消事件已在stop中发布
+            context.getState().markAsCancelled(context.getCancellationToken().getReason());
+            metricsRegistry.incrementCounter(
+                    "workflow.cancellations",
+                    "workflow", workflowName);
+            log.info("Workflow execution cancelled: {} ({})", workflowName, executionId);
+            return;
+        }
+
         // 更新状态
         context.getState().markAsFailed(error.getMessage());
+        if (unwrap(error) instanceof TimeoutException) {
+            context.getState().setStatus(WorkflowStatus.TIMEOUT);
+        }
 
         // 记录指标
         metricsRegistry.incrementCounter(
@@ -285,6 +546,7 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
                 "node.completions",
                 "workflow", context.getWorkflow().getName(),
                 "node", node.getName());
+        recordNodeDuration(node, context);
 
         // 发布节点完成事件
         publishNodeCompleteEvent(
@@ -294,6 +556,23 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
                 state);
     }
 
+    private void recordNodeDuration(Node node, ExecutionContext context) {
+        WorkflowState.NodeExecutionInfo info =
+                context.getState().getExecutionHistory().get(node.getName());
+        if (info == null || info.getEndTime() == null) {
+            return;
+        }
+        String workflowName = context.getWorkflow().getName();
+        metricsRegistry.recordDuration(
+                "node.duration",
+                info.getDuration(),
+                "workflow", workflowName,
+                "node", node.getName());
+        if (criticalPathEstimator != null) {
+            criticalPathEstimator.record(workflowName, node.getName(), info.getDuration());
+        }
+    }
+
     private void handleNodeError(
             Node node,
             ExecutionContext context,
@@ -320,8 +599,9 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
         }
     }
 
-    private void publishWorkflowStartEvent(String workflowName, String executionId, Map<String, Object> inputs) {
-        publishEvent(new WorkflowStartEvent(this, workflowName, executionId, inputs));
+    private void publishWorkflowStartEvent(
+            String workflowName, String executionId, Map<String, Object> inputs, boolean streaming) {
+        publishEvent(new WorkflowStartEvent(this, workflowName, executionId, inputs, streaming));
     }
 
     private void publishWorkflowCompleteEvent(String workflowName, String executionId, WorkflowState state) {
@@ -348,6 +628,13 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
         publishEvent(new NodeErrorEvent(this, workflowName, executionId, nodeName, error));
     }
 
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
     private String generateExecutionId() {
         return UUID.randomUUID().toString();
     }
@@ -362,32 +649,113 @@ public class DefaultWorkflowEngine implements WorkflowEngine {
 
     }
 
+    /**
+     * 转发一次执行中流式节点的输出：令牌作为NodeTokenEvent发布，首个令牌记录ai.first_token耗时，
+     * 流开始时由调度器提前释放接受部分输入的下游节点
+     */
+    private final class StreamRelay implements StreamListener {
+        private final String workflowName;
+        private final String executionId;
+        private final WorkflowState state;
+        private final ExecutionPlan plan;
+        private volatile DagScheduler scheduler;
+
+        StreamRelay(String workflowName, String executionId, WorkflowState state, ExecutionPlan plan) {
+            this.workflowName = workflowName;
+            this.executionId = executionId;
+            this.state = state;
+            this.plan = plan;
+        }
+
+        void attach(DagScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void onStreamStart(String nodeName) {
+            DagScheduler current = scheduler;
+            if (current != null) {
+                current.releasePartial(plan.idOf(nodeName));
+            }
+        }
+
+        @Override
+        public void onToken(String nodeName, String token, int index) {
+            if (index == 0) {
+                WorkflowState.NodeExecutionInfo info = state.getExecutionHistory().get(nodeName);
+                if (info != null && info.getStartTime() != null) {
+                    metricsRegistry.recordDuration(
+                            "ai.first_token",
+                            Duration.between(info.getStartTime(), Instant.now()),
+                            "workflow", workflowName,
+                            "node", nodeName);
+                }
+            }
+            publishEvent(new NodeTokenEvent(
+                    DefaultWorkflowEngine.this, workflowName, executionId, nodeName, token, index));
+        }
+    }
+
     @Builder
     private static class ExecutionContext {
         private final WorkflowDefinition workflow;
+        private final ExecutionPlan plan;
         private final WorkflowState state;
-        private final CompletableFuture<Void> cancellation;
+        private final CancellationToken cancellationToken;
+        private final Duration timeout;
+        private final Instant deadline;
+
+        /**
+         * 截止时间对应的System.nanoTime()读数，计算剩余预算时不分配对象
+         */
+        private final long deadlineNanos;
+        private final WorkflowContext workflowContext;
+        private final StreamRelay streamRelay;
 
         public WorkflowDefinition getWorkflow() {
             return workflow;
         }
 
+        public ExecutionPlan getPlan() {
+            return plan;
+        }
+
         public WorkflowState getState() {
             return state;
         }
 
-        public ExecutionContext withState(WorkflowState newState) {
-            return ExecutionContext.builder()
-                    .workflow(workflow)
-                    .state(newState)
-                    .cancellation(cancellation)
-                    .build();
+        public CancellationToken getCancellationToken() {
+            return cancellationToken;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public Instant getDeadline() {
+            return deadline;
         }
 
-        public void cancel() {
-            if (cancellation != null) {
-                cancellation.cancel(true);
+        public WorkflowContext getWorkflowContext() {
+            return workflowContext;
+        }
+
+        public StreamRelay getStreamRelay() {
+            return streamRelay;
+        }
+
+        /**
+         * 剩余时间预算（纳秒），未设置截止时间时返回NO_DEADLINE
+         */
+        public long getRemainingNanos() {
+            if (deadline == null) {
+                return NO_DEADLINE;
             }
+            return Math.max(0, deadlineNanos - System.nanoTime());
+        }
+
+        public boolean cancel(String reason) {
+            return cancellationToken.cancel(reason);
         }
     }
 }
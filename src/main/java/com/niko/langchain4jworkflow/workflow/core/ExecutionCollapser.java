@@ -0,0 +1,225 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 工作流执行合并器
+ * 工作流名称、定义版本（注册的定义实例）、超时和规范化输入哈希都相同的执行，
+ * 在已有执行进行中时挂到该执行上，而不是重新启动一次完整的执行。
+ * 每个调用方仍有自己的执行ID和结果：首个调用方的执行ID即共享执行在引擎中的ID，
+ * 其余调用方得到结果的独立副本。只有全部调用方都停止时才停止共享执行。
+ * 未启用或输入无法稳定哈希时执行直接启动。
+ */
+@Slf4j
+public class ExecutionCollapser {
+    private final boolean enabled;
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * 进行中的共享执行，按合并键索引
+     */
+    private final ConcurrentMap<Key, SharedRun> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 调用方执行ID到其挂载的共享执行
+     */
+    private final ConcurrentMap<String, SharedRun> subscriptions = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+
+    public ExecutionCollapser(boolean enabled, MetricsRegistry metricsRegistry) {
+        this.enabled = enabled;
+        this.metricsRegistry = metricsRegistry;
+
+        metricsRegistry.registerGauge("collapse.ratio", this::getCollapseRatio);
+        metricsRegistry.registerGauge("collapse.in_flight", inFlight::size);
+    }
+
+    /**
+     * 提交一次工作流执行
+     * @param definition 当前注册的工作流定义，为null时不合并
+     * @param inputs 执行输入
+     * @param timeout 请求指定的超时时间，可以为null
+     * @param executionId 调用方的执行ID
+     * @param launcher 以给定执行ID启动执行的函数
+     * @return 调用方自己的结果Future，取消它不会影响共享执行
+     */
+    public CompletableFuture<WorkflowState> submit(
+            WorkflowDefinition definition,
+            Map<String, Object> inputs,
+            Duration timeout,
+            String executionId,
+            Function<String, CompletableFuture<WorkflowState>> launcher) {
+
+        if (!enabled || definition == null) {
+            return launcher.apply(executionId);
+        }
+
+        String inputHash;
+        try {
+            inputHash = CanonicalHasher.hash(inputs);
+        } catch (IllegalArgumentException e) {
+            // 无法稳定哈希的输入不能判断是否相同，不合并
+            log.debug("Not collapsing execution {} of workflow {}: {}",
+                    executionId, definition.getName(), e.getMessage());
+            return launcher.apply(executionId);
+        }
+        Key key = new Key(definition, timeout, inputHash);
+        SharedRun created = new SharedRun(key, executionId);
+        // 挂载与共享执行完成时的移除都在映射上原子进行
+        SharedRun shared = inFlight.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return created;
+            }
+            existing.subscribers.add(executionId);
+            return existing;
+        });
+        subscriptions.put(executionId, shared);
+
+        if (shared == created) {
+            record(definition.getName(), false);
+            launch(shared, launcher);
+        } else {
+            record(definition.getName(), true);
+            log.debug("Execution {} of workflow {} collapsed into {}",
+                    executionId, definition.getName(), shared.runId);
+        }
+        return subscribe(shared, executionId);
+    }
+
+    /**
+     * 调用方停止执行时解除挂载
+     * @param executionId 调用方的执行ID
+     * @return 已无其他调用方时返回需要在引擎中停止的共享执行ID
+     */
+    public Optional<String> release(String executionId) {
+        SharedRun shared = subscriptions.remove(executionId);
+        if (shared == null) {
+            return Optional.of(executionId);
+        }
+        // 与挂载在映射上互斥，避免新调用方挂到即将取消的执行上
+        boolean[] last = new boolean[1];
+        inFlight.computeIfPresent(shared.key, (k, existing) -> {
+            if (existing != shared) {
+                return existing;
+            }
+            shared.subscribers.remove(executionId);
+            last[0] = shared.subscribers.isEmpty();
+            return last[0] ? null : shared;
+        });
+        if (!last[0]) {
+            return Optional.empty();
+        }
+        shared.run.cancel(true);
+        return Optional.of(shared.runId);
+    }
+
+    /**
+     * 获取调用方实际所在的执行ID
+     * @param executionId 调用方的执行ID
+     * @return 挂到共享执行上时返回共享执行的ID，否则返回调用方自身的ID
+     */
+    public String runIdOf(String executionId) {
+        SharedRun shared = subscriptions.get(executionId);
+        return shared != null ? shared.runId : executionId;
+    }
+
+    /**
+     * 挂到已有执行上的请求占全部请求的比例
+     */
+    public double getCollapseRatio() {
+        long total = requests.get();
+        return total == 0 ? 0.0 : (double) collapsed.get() / total;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void launch(
+            SharedRun shared,
+            Function<String, CompletableFuture<WorkflowState>> launcher) {
+
+        CompletableFuture<WorkflowState> run;
+        try {
+            run = launcher.apply(shared.runId);
+        } catch (RuntimeException e) {
+            // 启动失败（例如被准入控制拒绝）时已挂上的调用方一同失败
+            inFlight.remove(shared.key, shared);
+            shared.run.completeExceptionally(e);
+            shared.subscribers.forEach(subscriptions::remove);
+            throw e;
+        }
+        run.whenComplete((state, error) -> {
+            inFlight.remove(shared.key, shared);
+            if (error != null) {
+                shared.run.completeExceptionally(error);
+            } else {
+                shared.run.complete(state);
+            }
+        });
+        // 所有调用方都停止后取消引擎中的执行
+        shared.run.whenComplete((state, error) -> {
+            if (shared.run.isCancelled()) {
+                run.cancel(true);
+            }
+        });
+    }
+
+    private CompletableFuture<WorkflowState> subscribe(SharedRun shared, String executionId) {
+        CompletableFuture<WorkflowState> result = new CompletableFuture<>();
+        boolean leader = shared.runId.equals(executionId);
+        shared.run.whenComplete((state, error) -> {
+            subscriptions.remove(executionId, shared);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(leader ? state : state.clone());
+            }
+        });
+        return result;
+    }
+
+    private void record(String workflowName, boolean hit) {
+        requests.incrementAndGet();
+        metricsRegistry.incrementCounter("collapse.requests", "workflow", workflowName);
+        if (hit) {
+            collapsed.incrementAndGet();
+            metricsRegistry.incrementCounter("collapse.collapsed", "workflow", workflowName);
+        }
+    }
+
+    /**
+     * 合并键，工作流定义按实例比较，更新后重新注册的定义视为新版本
+     */
+    private record Key(WorkflowDefinition definition, Duration timeout, String inputHash) {
+    }
+
+    /**
+     * 共享执行及挂在其上的调用方
+     */
+    private static final class SharedRun {
+        private final Key key;
+        private final String runId;
+        private final Set<String> subscribers = ConcurrentHashMap.newKeySet();
+        private final CompletableFuture<WorkflowState> run = new CompletableFuture<>();
+
+        private SharedRun(Key key, String runId) {
+            this.key = key;
+            this.runId = runId;
+            subscribers.add(runId);
+        }
+    }
+}
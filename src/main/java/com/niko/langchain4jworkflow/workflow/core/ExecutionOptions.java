@@ -0,0 +1,32 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 单次工作流执行的选项
+ */
+@Getter
+@Builder
+public class ExecutionOptions {
+    private static final ExecutionOptions DEFAULTS = ExecutionOptions.builder().build();
+
+    /**
+     * 执行ID，为空时由引擎生成；调用方指定后可用同一ID停止执行或查询状态
+     */
+    private final String executionId;
+
+    /**
+     * 本次执行的整体超时时间，覆盖工作流配置；为空时使用工作流配置或引擎默认值
+     */
+    private final Duration timeout;
+
+    /**
+     * 默认选项
+     */
+    public static ExecutionOptions defaults() {
+        return DEFAULTS;
+    }
+}
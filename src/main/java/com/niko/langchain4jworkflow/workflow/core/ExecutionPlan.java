@@ -0,0 +1,412 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.CircularDependencyException;
+import com.niko.langchain4jworkflow.workflow.exceptions.InvalidWorkflowException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 工作流执行计划
+ * 由工作流定义在注册时编译得到的不可变结构。每个节点被分配一个稠密的整数ID（按拓扑序排列），
+ * 后继与前驱关系以CSR（压缩稀疏行）数组保存，调度时查找后继节点的开销与图规模无关。
+ * 编译时同时识别可融合的线性FUNCTION节点链，是否按链调度由引擎决定。
+ */
+public final class ExecutionPlan {
+    /**
+     * 按ID排列的节点
+     */
+    private final Node[] nodes;
+
+    /**
+     * 节点名称到ID的映射
+     */
+    private final Map<String, Integer> ids;
+
+    /**
+     * 后继节点偏移数组，节点i的后继位于 successors[successorOffsets[i] .. successorOffsets[i + 1])
+     */
+    private final int[] successorOffsets;
+    private final int[] successors;
+
+    /**
+     * 前驱节点偏移数组，节点i的前驱位于 predecessors[predecessorOffsets[i] .. predecessorOffsets[i + 1])
+     */
+    private final int[] predecessorOffsets;
+    private final int[] predecessors;
+
+    /**
+     * 起始节点（入度为0）ID
+     */
+    private final int[] startNodes;
+
+    /**
+     * 融合链中每个节点的下一个成员ID，不在链上或为链尾时为-1
+     */
+    private final int[] fusedNext;
+
+    /**
+     * 是否包含@Streaming节点
+     */
+    private final boolean streaming;
+
+    private ExecutionPlan(
+            Node[] nodes,
+            Map<String, Integer> ids,
+            int[] successorOffsets,
+            int[] successors,
+            int[] predecessorOffsets,
+            int[] predecessors,
+            int[] startNodes,
+            int[] fusedNext) {
+        this.nodes = nodes;
+        this.ids = ids;
+        this.successorOffsets = successorOffsets;
+        this.successors = successors;
+        this.predecessorOffsets = predecessorOffsets;
+        this.predecessors = predecessors;
+        this.startNodes = startNodes;
+        this.fusedNext = fusedNext;
+        this.streaming = Arrays.stream(nodes)
+                .anyMatch(node -> node.getConfig() != null && node.getConfig().isStreaming());
+    }
+
+    /**
+     * 编译工作流定义
+     * @param workflow 工作流定义
+     * @return 执行计划
+     * @throws InvalidWorkflowException 节点依赖了不存在的节点，或声明的起始节点与没有依赖的节点不一致时
+     * @throws CircularDependencyException 节点间存在循环依赖时
+     */
+    public static ExecutionPlan compile(WorkflowDefinition workflow) {
+        Map<String, Node> nodeMap = workflow.getNodes() != null ? workflow.getNodes() : Map.of();
+
+        // 按名称排序，保证ID分配与HashMap迭代顺序无关
+        String[] names = nodeMap.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        Map<String, Integer> provisional = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            provisional.put(names[i], i);
+        }
+
+        // 构建临时邻接表并校验依赖
+        int n = names.length;
+        int[] inDegree = new int[n];
+        List<List<Integer>> children = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            children.add(new ArrayList<>(2));
+        }
+        for (int i = 0; i < n; i++) {
+            Node node = nodeMap.get(names[i]);
+            for (String dep : dependenciesOf(node)) {
+                Integer parent = provisional.get(dep);
+                if (parent == null) {
+                    throw new InvalidWorkflowException(
+                            "Node " + names[i] + " depends on non-existent node: " + dep);
+                }
+                children.get(parent).add(i);
+                inDegree[i]++;
+            }
+        }
+
+        // Kahn拓扑排序，ID即拓扑序
+        int[] order = topologicalOrder(names, children, inDegree);
+        int[] idOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            idOf[order[i]] = i;
+        }
+
+        Node[] nodes = new Node[n];
+        Map<String, Integer> ids = new HashMap<>(n * 2);
+        for (int id = 0; id < n; id++) {
+            nodes[id] = nodeMap.get(names[order[id]]);
+            ids.put(names[order[id]], id);
+        }
+
+        for (Node node : nodes) {
+            if (acceptsPartial(node) && node.getType() == NodeType.FUNCTION && !node.getConfig().isAsync()) {
+                throw new InvalidWorkflowException(
+                        "Node " + node.getName() + " accepts partial input and must be asynchronous");
+            }
+        }
+
+        // 构建CSR数组
+        int[] successorOffsets = new int[n + 1];
+        int[] predecessorOffsets = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            successorOffsets[id + 1] = successorOffsets[id] + children.get(order[id]).size();
+            predecessorOffsets[id + 1] = predecessorOffsets[id] + dependenciesOf(nodes[id]).size();
+        }
+        int[] successors = new int[successorOffsets[n]];
+        int[] predecessors = new int[predecessorOffsets[n]];
+        List<Integer> starts = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            int s = successorOffsets[id];
+            for (int child : children.get(order[id])) {
+                successors[s++] = idOf[child];
+            }
+            Arrays.sort(successors, successorOffsets[id], successorOffsets[id + 1]);
+
+            int p = predecessorOffsets[id];
+            for (String dep : dependenciesOf(nodes[id])) {
+                predecessors[p++] = ids.get(dep);
+            }
+            if (predecessorOffsets[id] == predecessorOffsets[id + 1]) {
+                starts.add(id);
+            }
+        }
+
+        checkDeclaredStartNodes(workflow.getStartNodes(), nodes, starts);
+
+        return new ExecutionPlan(
+                nodes,
+                ids,
+                successorOffsets,
+                successors,
+                predecessorOffsets,
+                predecessors,
+                starts.stream().mapToInt(Integer::intValue).toArray(),
+                fuseChains(nodes, successorOffsets, successors, predecessorOffsets));
+    }
+
+    /**
+     * 校验定义中声明的起始节点
+     * 调度总是从入度为0的节点开始，声明的列表必须与之一致，否则声明中的起始节点会被静默忽略。
+     * 未声明（为null）时使用由依赖关系推导出的起始节点。
+     */
+    private static void checkDeclaredStartNodes(List<String> declared, Node[] nodes, List<Integer> starts) {
+        if (declared == null) {
+            return;
+        }
+        Set<String> expected = new TreeSet<>();
+        starts.forEach(id -> expected.add(nodes[id].getName()));
+        Set<String> actual = new TreeSet<>(declared);
+        if (!expected.equals(actual)) {
+            throw new InvalidWorkflowException("Declared start nodes " + actual
+                    + " do not match the nodes without dependencies " + expected);
+        }
+    }
+
+    /**
+     * 融合线性链：节点只有一个后继、后继只有一个前驱，且两者都可融合时，
+     * 后继并入该节点所在的链。极大链由链头作为一个任务调度，成员依次在同一线程执行。
+     */
+    private static int[] fuseChains(
+            Node[] nodes,
+            int[] successorOffsets,
+            int[] successors,
+            int[] predecessorOffsets) {
+        int[] fusedNext = new int[nodes.length];
+        Arrays.fill(fusedNext, -1);
+        for (int id = 0; id < nodes.length; id++) {
+            if (successorOffsets[id + 1] - successorOffsets[id] != 1 || !isFusible(nodes[id])) {
+                continue;
+            }
+            int successor = successors[successorOffsets[id]];
+            if (predecessorOffsets[successor + 1] - predecessorOffsets[successor] == 1
+                    && isFusible(nodes[successor])) {
+                fusedNext[id] = successor;
+            }
+        }
+        return fusedNext;
+    }
+
+    /**
+     * 可融合的节点：同步执行、无条件、无重试、无超时、无缓存的FUNCTION节点
+     */
+    static boolean isFusible(Node node) {
+        if (node.getType() != NodeType.FUNCTION || node.getCondition() != null) {
+            return false;
+        }
+        Node.NodeConfig config = node.getConfig();
+        return config == null
+                || (!config.isAsync()
+                        && config.getTimeout() == null
+                        && config.getRetryConfig() == null
+                        && config.getCacheConfig() == null);
+    }
+
+    private static List<String> dependenciesOf(Node node) {
+        return node.getDependencies() != null ? node.getDependencies() : List.of();
+    }
+
+    private static int[] topologicalOrder(
+            String[] names,
+            List<List<Integer>> children,
+            int[] inDegree) {
+        int n = names.length;
+        int[] remaining = inDegree.clone();
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int current = order[head++];
+            for (int child : children.get(current)) {
+                if (--remaining[child] == 0) {
+                    order[tail++] = child;
+                }
+            }
+        }
+        if (tail != n) {
+            List<String> cyclic = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (remaining[i] > 0) {
+                    cyclic.add(names[i]);
+                }
+            }
+            throw new CircularDependencyException(
+                    "Circular dependency detected among nodes: " + cyclic);
+        }
+        return order;
+    }
+
+    /**
+     * 节点数量
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * 获取节点ID
+     * @param nodeName 节点名称
+     * @return 节点ID，不存在时返回-1
+     */
+    public int idOf(String nodeName) {
+        Integer id = ids.get(nodeName);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 获取节点
+     * @param id 节点ID
+     */
+    public Node node(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * 获取节点名称
+     * @param id 节点ID
+     */
+    public String nameOf(int id) {
+        return nodes[id].getName();
+    }
+
+    /**
+     * 获取节点入度（依赖数量）
+     * @param id 节点ID
+     */
+    public int inDegree(int id) {
+        return predecessorOffsets[id + 1] - predecessorOffsets[id];
+    }
+
+    /**
+     * 获取节点出度（后继数量）
+     * @param id 节点ID
+     */
+    public int outDegree(int id) {
+        return successorOffsets[id + 1] - successorOffsets[id];
+    }
+
+    /**
+     * 节点后继在后继数组中的起始下标（含）
+     */
+    public int successorStart(int id) {
+        return successorOffsets[id];
+    }
+
+    /**
+     * 节点后继在后继数组中的结束下标（不含）
+     */
+    public int successorEnd(int id) {
+        return successorOffsets[id + 1];
+    }
+
+    /**
+     * 获取后继数组中指定下标的节点ID
+     */
+    public int successorAt(int index) {
+        return successors[index];
+    }
+
+    /**
+     * 节点前驱在前驱数组中的起始下标（含）
+     */
+    public int predecessorStart(int id) {
+        return predecessorOffsets[id];
+    }
+
+    /**
+     * 节点前驱在前驱数组中的结束下标（不含）
+     */
+    public int predecessorEnd(int id) {
+        return predecessorOffsets[id + 1];
+    }
+
+    /**
+     * 获取前驱数组中指定下标的节点ID
+     */
+    public int predecessorAt(int index) {
+        return predecessors[index];
+    }
+
+    /**
+     * 节点是否接受依赖节点的部分（流式）输出
+     * @param id 节点ID
+     */
+    public boolean acceptsPartial(int id) {
+        return acceptsPartial(nodes[id]);
+    }
+
+    private static boolean acceptsPartial(Node node) {
+        return node.getConfig() != null && node.getConfig().isAcceptsPartial();
+    }
+
+    /**
+     * 是否包含@Streaming节点，此类执行在开始时即为事件流保留令牌
+     */
+    public boolean hasStreamingNodes() {
+        return streaming;
+    }
+
+    /**
+     * 获取融合链中的下一个成员
+     * @param id 节点ID
+     * @return 下一个成员ID，节点不在链上或为链尾时返回-1
+     */
+    public int fusedNext(int id) {
+        return fusedNext[id];
+    }
+
+    /**
+     * 获取起始节点ID
+     */
+    public int[] getStartNodes() {
+        return startNodes.clone();
+    }
+
+    /**
+     * 起始节点数量
+     */
+    public int startNodeCount() {
+        return startNodes.length;
+    }
+
+    /**
+     * 获取指定下标的起始节点ID
+     */
+    public int startNodeAt(int index) {
+        return startNodes[index];
+    }
+}
@@ -0,0 +1,203 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.NodeExecutionException;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 节点执行器池（舱壁隔离）
+ * 按名称管理相互独立的线程池，例如cpu、io、llm。节点按以下顺序选择执行池：
+ * NodeConfig.properties中的pool属性（即@Bulkhead），节点类型的默认映射，最后是默认池。
+ * 每个池的线程和队列都是独立且有界的，一个池饱和时新任务被拒绝并使节点失败，
+ * 不会挤占其他池的线程，因此突发的LLM调用不会拖慢其他工作流中的CPU密集节点。
+ * 本类创建的池注册活跃线程数、队列长度、利用率和拒绝次数指标。
+ */
+@Slf4j
+public class ExecutorPools {
+    /**
+     * 节点配置中指定执行池的属性名
+     */
+    public static final String POOL_PROPERTY = "pool";
+
+    /**
+     * 默认池名称
+     */
+    public static final String DEFAULT_POOL = "default";
+
+    private final Map<String, Executor> pools = new ConcurrentHashMap<>();
+    private final Map<NodeType, String> mapping = new EnumMap<>(NodeType.class);
+    private final List<ThreadPoolExecutor> owned = new ArrayList<>();
+    private final MetricsRegistry metricsRegistry;
+    private final Executor defaultExecutor;
+
+    /**
+     * @param defaultExecutor 未映射到命名池的节点使用的执行器
+     * @param metricsRegistry 指标注册表，为空时不记录池指标
+     */
+    public ExecutorPools(Executor defaultExecutor, MetricsRegistry metricsRegistry) {
+        this.defaultExecutor = defaultExecutor;
+        this.metricsRegistry = metricsRegistry;
+        pools.put(DEFAULT_POOL, defaultExecutor);
+    }
+
+    /**
+     * 只有默认池的执行器池，所有节点都在同一个执行器上运行
+     */
+    public static ExecutorPools single(Executor executor) {
+        return new ExecutorPools(executor, null);
+    }
+
+    /**
+     * 创建并注册一个有界线程池
+     * @param name 池名称
+     * @param corePoolSize 核心线程数
+     * @param maxPoolSize 最大线程数
+     * @param queueCapacity 等待队列容量，0表示不排队，核心线程满后直接扩容至最大线程数
+     * @param keepAlive 非核心线程的空闲存活时间
+     * @return this
+     */
+    public ExecutorPools newPool(
+            String name,
+            int corePoolSize,
+            int maxPoolSize,
+            int queueCapacity,
+            Duration keepAlive) {
+
+        BlockingQueue<Runnable> queue = queueCapacity > 0
+                ? new ArrayBlockingQueue<>(queueCapacity)
+                : new SynchronousQueue<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                corePoolSize,
+                Math.max(corePoolSize, maxPoolSize),
+                keepAlive.toMillis(),
+                TimeUnit.MILLISECONDS,
+                queue,
+                threadFactory(name),
+                (task, pool) -> {
+                    if (metricsRegistry != null) {
+                        metricsRegistry.incrementCounter("pool.rejections", "pool", name);
+                    }
+                    throw new RejectedExecutionException(String.format(
+                            "Executor pool '%s' is saturated (%d active, %d queued)",
+                            name, pool.getActiveCount(), pool.getQueue().size()));
+                });
+        synchronized (owned) {
+            owned.add(executor);
+        }
+        return register(name, executor);
+    }
+
+    /**
+     * 注册一个外部创建的执行器
+     * @param name 池名称
+     * @param executor 执行器
+     * @return this
+     */
+    public ExecutorPools register(String name, Executor executor) {
+        if (pools.putIfAbsent(name, executor) != null) {
+            throw new IllegalArgumentException("Executor pool already registered: " + name);
+        }
+        if (executor instanceof ThreadPoolExecutor pool && metricsRegistry != null) {
+            registerGauges(name, pool);
+        }
+        log.info("Registered executor pool: {}", name);
+        return this;
+    }
+
+    /**
+     * 设置节点类型的默认执行池
+     * @param type 节点类型
+     * @param pool 池名称
+     * @return this
+     * @throws IllegalArgumentException 池未注册时
+     */
+    public ExecutorPools map(NodeType type, String pool) {
+        if (!pools.containsKey(pool)) {
+            throw new IllegalArgumentException(
+                    "Node type " + type + " is mapped to unknown executor pool: " + pool);
+        }
+        mapping.put(type, pool);
+        return this;
+    }
+
+    /**
+     * 获取节点应使用的执行器
+     * @param node 节点
+     * @return 执行器
+     * @throws NodeExecutionException 节点指定的执行池不存在时
+     */
+    public Executor forNode(Node node) {
+        String name = poolName(node);
+        if (name == null) {
+            return defaultExecutor;
+        }
+        Executor executor = pools.get(name);
+        if (executor == null) {
+            throw new NodeExecutionException(node.getName(), "Unknown executor pool: " + name);
+        }
+        return executor;
+    }
+
+    /**
+     * 获取节点应使用的执行池名称，未指定且类型未映射时返回null
+     */
+    public String poolName(Node node) {
+        Node.NodeConfig config = node.getConfig();
+        if (config != null && config.getProperties() != null) {
+            Object pool = config.getProperties().get(POOL_PROPERTY);
+            if (pool != null) {
+                return pool.toString();
+            }
+        }
+        return node.getType() != null ? mapping.get(node.getType()) : null;
+    }
+
+    /**
+     * 按名称获取执行器
+     */
+    public Executor get(String name) {
+        return pools.get(name);
+    }
+
+    /**
+     * 关闭本类创建的线程池，外部注册的执行器由其创建者负责关闭
+     */
+    public void shutdown() {
+        synchronized (owned) {
+            owned.forEach(ThreadPoolExecutor::shutdown);
+        }
+    }
+
+    private void registerGauges(String name, ThreadPoolExecutor pool) {
+        metricsRegistry.registerGauge("pool.active", pool::getActiveCount, "pool", name);
+        metricsRegistry.registerGauge("pool.size", pool::getPoolSize, "pool", name);
+        metricsRegistry.registerGauge("pool.queued", () -> pool.getQueue().size(), "pool", name);
+        metricsRegistry.registerGauge("pool.utilization",
+                () -> (double) pool.getActiveCount() / pool.getMaximumPoolSize(), "pool", name);
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "workflow-" + name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
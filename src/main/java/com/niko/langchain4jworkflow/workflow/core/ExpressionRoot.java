@@ -0,0 +1,42 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.Map;
+
+/**
+ * SpEL表达式的根对象
+ * 对工作流状态的轻量包装，表达式中可直接使用variables、state、context以及var('name')。
+ * 必须为public，编译后的表达式字节码直接调用其方法
+ */
+public final class ExpressionRoot {
+    private final WorkflowState state;
+    private final WorkflowContext context;
+
+    public ExpressionRoot(WorkflowState state, WorkflowContext context) {
+        this.state = state;
+        this.context = context;
+    }
+
+    /**
+     * 工作流变量
+     */
+    public Map<String, Object> getVariables() {
+        return state.getVariables();
+    }
+
+    /**
+     * 获取变量值
+     * @param name 变量名
+     * @return 变量值，不存在时返回null
+     */
+    public Object var(String name) {
+        return state.getVariable(name);
+    }
+
+    public WorkflowState getState() {
+        return state;
+    }
+
+    public WorkflowContext getContext() {
+        return context;
+    }
+}
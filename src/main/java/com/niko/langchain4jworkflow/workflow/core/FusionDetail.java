@@ -0,0 +1,18 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+/**
+ * 融合链的观测粒度
+ * 融合后的链作为一个任务调度，成员节点的执行历史始终完整记录，失败时始终发布节点错误事件；
+ * 此处只决定成功路径上的事件和指标按节点还是按链发布。
+ */
+public enum FusionDetail {
+    /**
+     * 每个成员节点照常发布开始/完成事件并记录节点指标，只省去调度开销
+     */
+    NODE,
+
+    /**
+     * 整条链只发布一次开始事件（链头）和一次完成事件（链尾），并记录chain.*指标
+     */
+    CHAIN
+}
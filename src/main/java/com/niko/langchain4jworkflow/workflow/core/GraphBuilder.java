@@ -18,6 +18,7 @@ public class GraphBuilder {
                 .name(name)
                 .nodes(new HashMap<>(nodes))
                 .startNodes(new ArrayList<>(startNodes))
-                .build();
+                .build()
+                .compile();
     }
 }
@@ -11,6 +11,8 @@ public class InMemoryWorkflowRegistry implements WorkflowRegistry {
 
     @Override
     public void register(WorkflowDefinition workflow) {
+        // 注册前确保执行计划已编译，无效的图在此处即被拒绝
+        workflow.getExecutionPlan();
         workflows.put(workflow.getName(), workflow);
     }
 
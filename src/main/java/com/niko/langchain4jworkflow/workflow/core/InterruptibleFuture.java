@@ -0,0 +1,97 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 可中断的异步任务
+ * CompletableFuture.supplyAsync返回的Future被取消时不会中断正在运行的任务；
+ * 此实现记录运行任务的线程，Future被取消或被外部以异常完成（例如超时）时中断该线程，
+ * 使阻塞在IO或模型调用上的任务尽快释放线程。
+ */
+public final class InterruptibleFuture<T> extends CompletableFuture<T> {
+
+    /**
+     * 正在运行任务的线程，访问需持有this锁
+     */
+    private Thread runner;
+
+    private InterruptibleFuture() {
+    }
+
+    /**
+     * 在指定执行器上异步执行任务
+     * @param supplier 任务
+     * @param executor 执行器
+     * @return 可中断的Future对象
+     */
+    public static <T> InterruptibleFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        try {
+            executor.execute(() -> future.run(supplier));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 将下游Future与此任务绑定：下游以异常完成（超时、取消）时取消此任务并中断其线程
+     * @param dependent 依赖此任务的下游Future
+     * @return 下游Future本身
+     */
+    public <U> CompletableFuture<U> bind(CompletableFuture<U> dependent) {
+        dependent.whenComplete((result, error) -> {
+            if (error != null) {
+                cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    private void run(Supplier<T> supplier) {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+        try {
+            complete(supplier.get());
+        } catch (Throwable e) {
+            completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                runner = null;
+                // 清除可能在任务结束前送达的中断，避免影响线程池中的下一个任务
+                Thread.interrupted();
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled && mayInterruptIfRunning) {
+            interruptRunner();
+        }
+        return cancelled;
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        boolean completed = super.completeExceptionally(ex);
+        if (completed) {
+            interruptRunner();
+        }
+        return completed;
+    }
+
+    private synchronized void interruptRunner() {
+        if (runner != null && runner != Thread.currentThread()) {
+            runner.interrupt();
+        }
+    }
+}
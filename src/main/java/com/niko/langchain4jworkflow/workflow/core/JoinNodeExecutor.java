@@ -0,0 +1,113 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.NodeExecutionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 汇聚节点执行器
+ * 上游节点每完成一个，调度器即通过accumulate()把它的结果归约进累加变量，
+ * 状态中只保留累加值，而不是等全部上游完成后再收集所有结果。
+ * 节点方法作为归约函数；未绑定方法时按完成顺序把结果收集为列表。
+ * 节点本身执行时只把最终累加值记录为输出，提前完成条件满足时下游无需等待最慢的上游。
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class JoinNodeExecutor implements NodeExecutor {
+    private static final Map<Method, NodeInvoker> INVOKERS = new ConcurrentHashMap<>();
+
+    private final DefaultNodeExecutor defaultExecutor;
+
+    @Override
+    public CompletableFuture<WorkflowState> execute(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context) {
+
+        if (node.getType() != NodeType.JOIN) {
+            return defaultExecutor.execute(node, state, context);
+        }
+
+        state.recordNodeStart(node.getName());
+        Map<String, Object> outputs = new HashMap<>();
+        Object accumulator = state.getVariable(resultVariable(node));
+        if (accumulator != null) {
+            outputs.put("result", accumulator);
+        }
+        state.recordNodeCompletion(node.getName(), outputs);
+        return CompletableFuture.completedFuture(state);
+    }
+
+    /**
+     * 将一个已完成上游节点的结果归约进汇聚节点的累加值
+     * 同一汇聚节点的调用由调度器串行化
+     * @param join 汇聚节点
+     * @param upstream 已完成的上游节点名称
+     * @param state 工作流状态
+     * @param context 工作流上下文
+     * @return 提前完成条件是否已满足
+     */
+    public static boolean accumulate(
+            Node join,
+            String upstream,
+            WorkflowState state,
+            WorkflowContext context) {
+
+        WorkflowState.NodeExecutionInfo info = state.getExecutionHistory().get(upstream);
+        Object result = info != null && info.getOutputs() != null ? info.getOutputs().get("result") : null;
+        String variable = resultVariable(join);
+
+        Object accumulator = reduce(join, state.getVariable(variable), upstream, result);
+        if (accumulator != null) {
+            state.setVariable(variable, accumulator);
+        } else {
+            state.removeVariable(variable);
+        }
+
+        CompiledExpression completeWhen = join.getConfig() != null ? join.getConfig().getCompleteWhen() : null;
+        return completeWhen != null && completeWhen.test(state, context);
+    }
+
+    private static Object reduce(Node join, Object accumulator, String upstream, Object result) {
+        Method method = join.getMethod();
+        if (method == null) {
+            @SuppressWarnings("unchecked")
+            List<Object> collected = accumulator instanceof List<?>
+                    ? (List<Object>) accumulator
+                    : new ArrayList<>();
+            collected.add(result);
+            return collected;
+        }
+
+        Object[] args = switch (method.getParameterCount()) {
+            case 2 -> new Object[]{accumulator, result};
+            case 3 -> new Object[]{accumulator, upstream, result};
+            default -> throw new NodeExecutionException(join.getName(),
+                    "JOIN reducer must accept (accumulator, result) or (accumulator, branch, result)");
+        };
+        NodeInvoker invoker = join.getInvoker() != null
+                ? join.getInvoker()
+                : INVOKERS.computeIfAbsent(method, NodeInvoker::compile);
+        try {
+            return invoker.invoke(join.getTarget(), args);
+        } catch (Throwable e) {
+            throw new NodeExecutionException(join.getName(),
+                    "Reducer failed for upstream node " + upstream, e);
+        }
+    }
+
+    private static String resultVariable(Node join) {
+        Node.NodeConfig config = join.getConfig();
+        return config != null && config.getResultVariable() != null
+                ? config.getResultVariable()
+                : join.getName();
+    }
+}
@@ -0,0 +1,405 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import dev.ai4j.openai4j.OpenAiHttpException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LLM调用限流器
+ * 每个模型一条通道，组合两种限制：
+ * 每分钟请求数和每分钟token数的令牌桶，以及按AIMD调整的并发上限——
+ * 调用成功时上限缓慢增长，模型返回429或调用超时时按比例收缩。
+ * 等待中的调用按工作流分队列，轮流放行，一个工作流的突发不会让其他工作流一直排队。
+ * 等待不占用线程：acquire返回的Future在获得许可时完成，取消该Future即退出排队。
+ * 记录排队时间、当前并发上限和被限流次数。
+ */
+@Slf4j
+public class LlmCallLimiter {
+    /**
+     * 提供方异常上返回HTTP状态码的方法名
+     */
+    private static final String[] STATUS_METHODS = {"statusCode", "code", "getStatusCode"};
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final String defaultModel;
+    private final Limits defaultLimits;
+    private final Map<String, Limits> modelLimits = new ConcurrentHashMap<>();
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final TimerWheel timerWheel;
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * @param defaultModel 聊天模型的名称，acquire未指定模型时使用该通道
+     * @param defaultLimits 未单独配置的模型使用的限制
+     * @param timerWheel 令牌桶补充后唤醒等待者的时间轮
+     * @param metricsRegistry 指标注册表，为空时不记录指标
+     */
+    public LlmCallLimiter(
+            String defaultModel,
+            Limits defaultLimits,
+            TimerWheel timerWheel,
+            MetricsRegistry metricsRegistry) {
+        this.defaultModel = defaultModel;
+        this.defaultLimits = defaultLimits;
+        this.timerWheel = timerWheel;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * 为单个模型配置限制，需在该模型的第一次调用之前配置
+     * @return this
+     */
+    public LlmCallLimiter limit(String model, Limits limits) {
+        modelLimits.put(model, limits);
+        return this;
+    }
+
+    /**
+     * 申请一次调用许可
+     * @param model 模型名称，为空时使用默认模型
+     * @param workflowName 发起调用的工作流，同一工作流的调用按顺序放行
+     * @param estimatedTokens 预估的token数，调用结束后按实际用量修正
+     * @return 获得许可时完成的Future，调用结束后必须释放许可
+     */
+    public CompletableFuture<Permit> acquire(String model, String workflowName, int estimatedTokens) {
+        Lane lane = lanes.computeIfAbsent(model != null ? model : defaultModel, this::newLane);
+        Waiter waiter = new Waiter(
+                lane, workflowName != null ? workflowName : "unknown", Math.max(1, estimatedTokens));
+        lane.enqueue(waiter);
+        // 取消等待时立即退出排队
+        waiter.future.whenComplete((permit, error) -> {
+            if (error != null) {
+                lane.remove(waiter);
+            }
+        });
+        lane.dispatch();
+        return waiter.future;
+    }
+
+    /**
+     * 模型当前的并发上限，尚未调用过时返回null
+     */
+    public Double currentLimit(String model) {
+        Lane lane = lanes.get(model != null ? model : defaultModel);
+        return lane != null ? lane.currentLimit() : null;
+    }
+
+    /**
+     * 判断调用失败是否为限流或超时，此类失败使并发上限收缩
+     * 沿异常链按类型和HTTP状态码判断：超时异常、408/504为timeout，429为rate_limit。
+     * 状态码取自OpenAiHttpException，或其他提供方异常上的code()/statusCode()方法；
+     * 只有无法取得状态码的异常才退回匹配消息中的"status code: 429"和"too many requests"。
+     * @return rate_limit、timeout，其他失败返回null
+     */
+    public static String throttleReason(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException
+                    || cause instanceof com.niko.langchain4jworkflow.workflow.exceptions.TimeoutException
+                    || cause instanceof InterruptedIOException) {
+                return "timeout";
+            }
+            Integer status = statusCode(cause);
+            if (status != null) {
+                if (status == 429) {
+                    return "rate_limit";
+                }
+                if (status == 408 || status == 504) {
+                    return "timeout";
+                }
+                continue;
+            }
+            String message = cause.getMessage() != null ? cause.getMessage().toLowerCase(Locale.ROOT) : "";
+            if (message.contains("status code: 429") || message.contains("too many requests")) {
+                return "rate_limit";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 异常携带的HTTP状态码，没有时返回null
+     */
+    private static Integer statusCode(Throwable error) {
+        if (error instanceof OpenAiHttpException http) {
+            return http.code();
+        }
+        for (String name : STATUS_METHODS) {
+            try {
+                Method method = error.getClass().getMethod(name);
+                if (method.getReturnType() == int.class || method.getReturnType() == Integer.class) {
+                    Object value = method.invoke(error);
+                    if (value != null) {
+                        return (Integer) value;
+                    }
+                }
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                // 尝试下一个方法名
+            }
+        }
+        return null;
+    }
+
+    private Lane newLane(String model) {
+        Lane lane = new Lane(model, modelLimits.getOrDefault(model, defaultLimits));
+        if (metricsRegistry != null) {
+            metricsRegistry.registerGauge("llm.limiter.limit", lane::currentLimit, "model", model);
+            metricsRegistry.registerGauge("llm.limiter.in_flight", lane::inFlight, "model", model);
+            metricsRegistry.registerGauge("llm.limiter.queued", lane::queued, "model", model);
+        }
+        return lane;
+    }
+
+    /**
+     * 单个模型的限制
+     * @param requestsPerMinute 每分钟请求数，0表示不限制
+     * @param tokensPerMinute 每分钟token数，0表示不限制
+     * @param initialConcurrency 初始并发上限
+     * @param minConcurrency 并发上限的下限
+     * @param maxConcurrency 并发上限的上限
+     * @param backoffRatio 限流或超时时并发上限的收缩比例
+     */
+    public record Limits(
+            int requestsPerMinute,
+            int tokensPerMinute,
+            int initialConcurrency,
+            int minConcurrency,
+            int maxConcurrency,
+            double backoffRatio) {
+    }
+
+    /**
+     * 调用许可，调用结束后释放一次
+     */
+    public final class Permit {
+        private final Lane lane;
+        private final int reservedTokens;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Lane lane, int reservedTokens) {
+            this.lane = lane;
+            this.reservedTokens = reservedTokens;
+        }
+
+        /**
+         * 释放许可并根据调用结果调整并发上限
+         * @param error 调用失败的原因，成功时为null
+         * @param actualTokens 实际使用的token数，未知时为null
+         */
+        public void release(Throwable error, Integer actualTokens) {
+            if (released.compareAndSet(false, true)) {
+                lane.release(this, error, actualTokens);
+            }
+        }
+    }
+
+    private final class Waiter {
+        private final Lane lane;
+        private final String workflowName;
+        private final int tokens;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(Lane lane, String workflowName, int tokens) {
+            this.lane = lane;
+            this.workflowName = workflowName;
+            this.tokens = tokens;
+        }
+
+        void grant() {
+            if (metricsRegistry != null) {
+                metricsRegistry.recordDuration("llm.limiter.queue_wait",
+                        Duration.ofNanos(System.nanoTime() - enqueuedAt),
+                        "model", lane.model, "workflow", workflowName);
+            }
+            Permit permit = new Permit(lane, tokens);
+            if (!future.complete(permit)) {
+                // 放行时等待已被取消
+                permit.release(new CancellationException(), null);
+            }
+        }
+    }
+
+    /**
+     * 单个模型的通道，状态访问需持有this锁
+     */
+    private final class Lane {
+        private final String model;
+        private final Limits limits;
+
+        /**
+         * 按工作流分的等待队列，turns为轮流放行的顺序，只包含有等待者的工作流
+         */
+        private final Map<String, ArrayDeque<Waiter>> queues = new HashMap<>();
+        private final ArrayDeque<String> turns = new ArrayDeque<>();
+        private int queued;
+
+        private double requestTokens;
+        private double tokenTokens;
+        private long refilledAt = System.nanoTime();
+        private double limit;
+        private int inFlight;
+        private TimerWheel.Task wakeup;
+
+        Lane(String model, Limits limits) {
+            this.model = model;
+            this.limits = limits;
+            this.requestTokens = limits.requestsPerMinute();
+            this.tokenTokens = limits.tokensPerMinute();
+            this.limit = Math.max(limits.minConcurrency(), Math.min(limits.initialConcurrency(), maxConcurrency()));
+        }
+
+        synchronized void enqueue(Waiter waiter) {
+            ArrayDeque<Waiter> queue = queues.get(waiter.workflowName);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(waiter.workflowName, queue);
+                turns.addLast(waiter.workflowName);
+            }
+            queue.addLast(waiter);
+            queued++;
+        }
+
+        synchronized void remove(Waiter waiter) {
+            ArrayDeque<Waiter> queue = queues.get(waiter.workflowName);
+            if (queue != null && queue.remove(waiter)) {
+                queued--;
+                if (queue.isEmpty()) {
+                    queues.remove(waiter.workflowName);
+                    turns.remove(waiter.workflowName);
+                }
+            }
+        }
+
+        void dispatch() {
+            List<Waiter> granted = new ArrayList<>();
+            synchronized (this) {
+                refill(System.nanoTime());
+                while (!turns.isEmpty() && inFlight < (int) limit) {
+                    String workflowName = turns.pollFirst();
+                    ArrayDeque<Waiter> queue = queues.get(workflowName);
+                    Waiter waiter = queue.peekFirst();
+                    // 超过桶容量的请求按桶容量计，避免永远无法放行
+                    int tokens = limits.tokensPerMinute() > 0
+                            ? Math.min(waiter.tokens, limits.tokensPerMinute())
+                            : 0;
+                    long waitNanos = nanosUntilAvailable(tokens);
+                    if (waitNanos > 0) {
+                        // 令牌不足时保持轮次，补充后由时间轮唤醒
+                        turns.addFirst(workflowName);
+                        scheduleWakeup(waitNanos);
+                        break;
+                    }
+                    if (limits.requestsPerMinute() > 0) {
+                        requestTokens -= 1;
+                    }
+                    tokenTokens -= tokens;
+                    queue.pollFirst();
+                    queued--;
+                    inFlight++;
+                    if (queue.isEmpty()) {
+                        queues.remove(workflowName);
+                    } else {
+                        turns.addLast(workflowName);
+                    }
+                    granted.add(waiter);
+                }
+            }
+            granted.forEach(Waiter::grant);
+        }
+
+        void release(Permit permit, Throwable error, Integer actualTokens) {
+            String reason = error != null ? throttleReason(error) : null;
+            synchronized (this) {
+                inFlight--;
+                if (actualTokens != null && limits.tokensPerMinute() > 0) {
+                    // 按实际用量修正预估，可以为负，之后的调用相应推迟
+                    tokenTokens -= actualTokens - Math.min(permit.reservedTokens, limits.tokensPerMinute());
+                }
+                if (reason != null) {
+                    limit = Math.max(limits.minConcurrency(), limit * limits.backoffRatio());
+                } else if (error == null) {
+                    limit = Math.min(maxConcurrency(), limit + 1 / limit);
+                }
+            }
+            if (reason != null) {
+                log.debug("LLM call to {} throttled ({}), concurrency limit lowered to {}",
+                        model, reason, (int) currentLimit());
+                if (metricsRegistry != null) {
+                    metricsRegistry.incrementCounter("llm.limiter.throttles", "model", model, "reason", reason);
+                }
+            }
+            dispatch();
+        }
+
+        synchronized double currentLimit() {
+            return limit;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+
+        synchronized int queued() {
+            return queued;
+        }
+
+        private int maxConcurrency() {
+            return Math.max(limits.minConcurrency(), limits.maxConcurrency());
+        }
+
+        private void refill(long now) {
+            double minutes = (double) (now - refilledAt) / NANOS_PER_MINUTE;
+            refilledAt = now;
+            if (limits.requestsPerMinute() > 0) {
+                requestTokens = Math.min(limits.requestsPerMinute(),
+                        requestTokens + minutes * limits.requestsPerMinute());
+            }
+            if (limits.tokensPerMinute() > 0) {
+                tokenTokens = Math.min(limits.tokensPerMinute(),
+                        tokenTokens + minutes * limits.tokensPerMinute());
+            }
+        }
+
+        private long nanosUntilAvailable(int tokens) {
+            long wait = 0;
+            if (limits.requestsPerMinute() > 0 && requestTokens < 1) {
+                wait = (long) ((1 - requestTokens) / limits.requestsPerMinute() * NANOS_PER_MINUTE);
+            }
+            if (limits.tokensPerMinute() > 0 && tokenTokens < tokens) {
+                wait = Math.max(wait,
+                        (long) ((tokens - tokenTokens) / limits.tokensPerMinute() * NANOS_PER_MINUTE));
+            }
+            return wait;
+        }
+
+        private void scheduleWakeup(long waitNanos) {
+            if (wakeup != null && !wakeup.isCancelled()) {
+                return;
+            }
+            wakeup = timerWheel.schedule(() -> {
+                synchronized (this) {
+                    wakeup = null;
+                }
+                dispatch();
+            }, Duration.ofNanos(Math.max(waitNanos, 1)));
+        }
+    }
+}
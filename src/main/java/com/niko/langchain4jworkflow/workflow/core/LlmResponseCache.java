@@ -0,0 +1,286 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM响应缓存
+ * 在模型调用前按模型名称、温度、最大token数和完整渲染后的提示词的SHA-256查找响应，
+ * 相同的提示词（例如对重复输入的分类提示）不再重复调用模型。
+ * 模型参数取共享聊天模型实际生效的配置，节点上声明的参数不会改变实际调用，也不参与缓存键。
+ * 内存层为Caffeine，可选的磁盘层每个条目一个文件，重启后仍然有效，命中时回填内存层。
+ * 温度大于0的调用结果本身不确定，默认不缓存，可通过allowSampling或节点的@ResponseCache放开。
+ * 按工作流记录命中、未命中和绕过次数以及命中率。
+ */
+@Slf4j
+public class LlmResponseCache {
+    /**
+     * 节点配置中关闭响应缓存的属性名，值为false时不缓存
+     */
+    public static final String ENABLED_PROPERTY = "responseCache";
+
+    /**
+     * 节点配置中允许缓存温度大于0的调用的属性名
+     */
+    public static final String ALLOW_SAMPLING_PROPERTY = "responseCacheAllowSampling";
+
+    private static final String FILE_SUFFIX = ".txt";
+
+    private final Cache<String, String> memory;
+    private final Path directory;
+    private final Duration ttl;
+    private final boolean allowSampling;
+    private final ModelParameters parameters;
+    private final MetricsRegistry metricsRegistry;
+    private final Map<String, HitRate> hitRates = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxSize 内存层的最大条目数
+     * @param ttl 条目有效期，为空时不过期
+     * @param directory 磁盘层目录，为空时只使用内存层
+     * @param allowSampling 是否缓存温度大于0的调用
+     * @param defaultModel 聊天模型实际使用的模型名称
+     * @param defaultTemperature 聊天模型实际使用的温度
+     * @param defaultMaxTokens 聊天模型实际使用的最大token数
+     * @param metricsRegistry 指标注册表，为空时不记录指标
+     */
+    @Builder
+    public LlmResponseCache(
+            long maxSize,
+            Duration ttl,
+            Path directory,
+            boolean allowSampling,
+            String defaultModel,
+            Double defaultTemperature,
+            Integer defaultMaxTokens,
+            MetricsRegistry metricsRegistry) {
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maxSize);
+        if (ttl != null) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.memory = builder.build();
+        this.ttl = ttl;
+        this.directory = directory;
+        this.allowSampling = allowSampling;
+        this.parameters = new ModelParameters(defaultModel, defaultTemperature, defaultMaxTokens);
+        this.metricsRegistry = metricsRegistry;
+
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create LLM response cache directory: " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * 计算节点本次调用的缓存键
+     * @param node AI节点
+     * @param workflowName 工作流名称，用于按工作流统计
+     * @param prompt 完整渲染后的提示词
+     * @return 缓存键，节点关闭缓存或模型温度大于0且未允许时返回null（记为绕过）
+     */
+    public Key keyFor(Node node, String workflowName, String prompt) {
+        Node.NodeConfig config = node.getConfig();
+        Map<String, Object> properties = config != null ? config.getProperties() : null;
+        if (properties != null && Boolean.FALSE.equals(flag(properties.get(ENABLED_PROPERTY)))) {
+            record(workflowName, "bypass", null);
+            return null;
+        }
+
+        boolean nodeAllowsSampling = properties != null
+                && Boolean.TRUE.equals(flag(properties.get(ALLOW_SAMPLING_PROPERTY)));
+        if (parameters.sampling() && !allowSampling && !nodeAllowsSampling) {
+            record(workflowName, "bypass", null);
+            return null;
+        }
+        return new Key(hash(parameters, prompt), workflowName);
+    }
+
+    /**
+     * 查找缓存的响应，先查内存层，未命中时查磁盘层并回填内存层
+     * @return 缓存的响应，未命中时返回null
+     */
+    public String get(Key key) {
+        String response = memory.getIfPresent(key.hash());
+        if (response != null) {
+            record(key.workflowName(), "hit", "memory");
+            return response;
+        }
+        response = readDisk(key.hash());
+        if (response != null) {
+            memory.put(key.hash(), response);
+            record(key.workflowName(), "hit", "disk");
+            return response;
+        }
+        record(key.workflowName(), "miss", null);
+        return null;
+    }
+
+    /**
+     * 写入模型响应，磁盘层写入失败时只保留内存层
+     */
+    public void put(Key key, String response) {
+        if (response == null) {
+            return;
+        }
+        memory.put(key.hash(), response);
+        writeDisk(key.hash(), response);
+    }
+
+    /**
+     * 清空内存层和磁盘层
+     */
+    public void clear() {
+        memory.invalidateAll();
+        if (directory == null) {
+            return;
+        }
+        try (var files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .forEach(LlmResponseCache::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Failed to clear LLM response cache directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * 工作流的命中率，尚无查找时返回0
+     */
+    public double hitRate(String workflowName) {
+        HitRate rate = hitRates.get(workflowName);
+        return rate != null ? rate.ratio() : 0.0;
+    }
+
+    private String readDisk(String hash) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(hash + FILE_SUFFIX);
+        try {
+            if (ttl != null && Files.getLastModifiedTime(file).toInstant().plus(ttl).isBefore(Instant.now())) {
+                deleteQuietly(file);
+                return null;
+            }
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read LLM response cache entry {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(String hash, String response) {
+        if (directory == null) {
+            return;
+        }
+        Path file = directory.resolve(hash + FILE_SUFFIX);
+        try {
+            // 先写临时文件再移动，其他实例或重启后不会读到写了一半的条目
+            Path temp = Files.createTempFile(directory, hash, ".tmp");
+            Files.writeString(temp, response, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write LLM response cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void record(String workflowName, String result, String tier) {
+        String workflow = workflowName != null ? workflowName : "unknown";
+        HitRate rate = hitRates.computeIfAbsent(workflow, this::newHitRate);
+        if (result.equals("hit")) {
+            rate.hits.incrementAndGet();
+        } else if (result.equals("miss")) {
+            rate.misses.incrementAndGet();
+        }
+        if (metricsRegistry != null) {
+            if (tier != null) {
+                metricsRegistry.incrementCounter("llm.cache.requests",
+                        "workflow", workflow, "result", result, "tier", tier);
+            } else {
+                metricsRegistry.incrementCounter("llm.cache.requests", "workflow", workflow, "result", result);
+            }
+        }
+    }
+
+    private HitRate newHitRate(String workflow) {
+        HitRate rate = new HitRate();
+        if (metricsRegistry != null) {
+            metricsRegistry.registerGauge("llm.cache.hit_ratio", rate::ratio, "workflow", workflow);
+        }
+        return rate;
+    }
+
+    private static Object flag(Object value) {
+        return value instanceof String text ? Boolean.valueOf(text) : value;
+    }
+
+    private static String hash(ModelParameters parameters, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // 各字段以NUL分隔，避免不同字段拼接后相同
+            for (Object part : new Object[] {parameters.model(), parameters.temperature(), parameters.maxTokens()}) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete LLM response cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存键
+     * @param hash 模型参数和提示词的SHA-256
+     * @param workflowName 发起调用的工作流，只用于统计
+     */
+    public record Key(String hash, String workflowName) {
+    }
+
+    private static final class HitRate {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        double ratio() {
+            long hit = hits.get();
+            long total = hit + misses.get();
+            return total == 0 ? 0.0 : (double) hit / total;
+        }
+    }
+}
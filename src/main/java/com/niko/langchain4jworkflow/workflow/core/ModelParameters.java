@@ -0,0 +1,17 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+/**
+ * 模型调用参数
+ * 共享的聊天模型实际使用的模型名称、温度和最大token数（workflow.ai下的配置）。
+ * 节点配置中的model、temperature、maxTokens不会作用于共享的模型，因此不参与计算；
+ * 相同参数的调用才能共享缓存的响应。
+ */
+public record ModelParameters(String model, Double temperature, Integer maxTokens) {
+
+    /**
+     * 是否按采样生成，温度大于0时相同提示词的输出不确定
+     */
+    public boolean sampling() {
+        return temperature != null && temperature > 0;
+    }
+}
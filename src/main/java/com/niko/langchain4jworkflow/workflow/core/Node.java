@@ -66,6 +66,16 @@ public class Node {
      */
     private final Object target;
 
+    /**
+     * 预编译的方法调用器，扫描时生成；为空时由执行器按需编译
+     */
+    private final NodeInvoker invoker;
+
+    /**
+     * 条件节点的执行条件，扫描时由@Conditional预编译
+     */
+    private final CompiledExpression condition;
+
     /**
      * 节点配置信息
      */
@@ -81,6 +91,11 @@ public class Node {
          * 重试配置
          */
         private RetryConfig retryConfig;
+
+        /**
+         * 结果缓存配置，为空表示不缓存
+         */
+        private CacheConfig cacheConfig;
         
         /**
          * 是否异步执行
@@ -91,6 +106,11 @@ public class Node {
          * AI系统提示词
          */
         private String systemPrompt;
+
+        /**
+         * 预编译的提示词模板，由系统提示词和输入变量生成，为空时在首次执行时生成
+         */
+        private PromptTemplate promptTemplate;
         
         /**
          * 其他配置属性
@@ -112,6 +132,16 @@ public class Node {
          * 模型名称
          */
         private String model;
+
+        /**
+         * 是否以流式方式生成，输出变量由resultVariable指定
+         */
+        private boolean streaming;
+
+        /**
+         * 是否接受依赖节点的部分（流式）输出，依赖的流式节点开始生成时即可执行
+         */
+        private boolean acceptsPartial;
         
         // 并行节点特有配置
         /**
@@ -123,6 +153,32 @@ public class Node {
          * 是否等待所有任务完成
          */
         private boolean waitForAll;
+
+        /**
+         * 待映射的集合变量名
+         */
+        private String items;
+
+        /**
+         * 每个元素绑定的变量名
+         */
+        private String itemVariable;
+
+        /**
+         * 收集结果（并行节点）、累加值（汇聚节点）或流式文本（AI节点）的变量名，为空时使用节点名称
+         */
+        private String resultVariable;
+
+        /**
+         * 不等待全部完成时所需的成功元素数
+         */
+        private Integer quorum;
+
+        // 汇聚节点特有配置
+        /**
+         * 提前完成条件，每次归约后求值
+         */
+        private CompiledExpression completeWhen;
         
         // 函数节点特有配置
         /**
@@ -161,6 +217,33 @@ public class Node {
          * 可重试的异常类型列表
          */
         private List<Class<? extends Throwable>> retryableExceptions;
+
+        /**
+         * 不可重试的异常类型列表，优先于可重试列表
+         */
+        private List<Class<? extends Throwable>> nonRetryableExceptions;
+
+        /**
+         * 单次重试等待时间的上限
+         */
+        private Duration maxDelay;
+    }
+
+    /**
+     * 节点结果缓存配置
+     */
+    @Data
+    @Builder
+    public static class CacheConfig {
+        /**
+         * 缓存键表达式，为空时以节点输入的哈希作为键
+         */
+        private CompiledExpression key;
+
+        /**
+         * 缓存有效期
+         */
+        private Duration ttl;
     }
 
     /**
@@ -0,0 +1,235 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.annotation.StateExpression;
+import com.niko.langchain4jworkflow.workflow.annotation.StateVariable;
+import lombok.Getter;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+
+/**
+ * 预编译的节点方法调用器
+ * 在扫描工作流时为每个节点方法解析一次参数绑定计划（注入类型、状态变量键、是否必需、预编译的参数表达式），
+ * 并将方法转换为统一签名(Object, Object[])Object的MethodHandle。
+ * 执行时只需按绑定计划从状态中取值并调用句柄，不再进行参数名发现、注解查找和反射调用。
+ */
+public final class NodeInvoker {
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER =
+            new DefaultParameterNameDiscoverer();
+    private static final MethodType GENERIC_TYPE =
+            MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * 参数注入类型
+     */
+    public enum InjectionKind {
+        /**
+         * 注入工作流状态
+         */
+        STATE,
+        /**
+         * 注入工作流上下文
+         */
+        CONTEXT,
+        /**
+         * 注入@StateVariable指定的状态变量
+         */
+        VARIABLE,
+        /**
+         * 注入@StateExpression表达式的求值结果
+         */
+        EXPRESSION,
+        /**
+         * 无法解析的参数，注入null
+         */
+        NONE
+    }
+
+    /**
+     * 单个参数的绑定信息
+     */
+    @Getter
+    public static final class Binding {
+        private final InjectionKind kind;
+        private final String key;
+        private final int slot;
+        private final boolean required;
+        private final CompiledExpression expression;
+        private final Class<?> type;
+
+        Binding(InjectionKind kind) {
+            this(kind, null, -1, false, null, null);
+        }
+
+        Binding(
+                InjectionKind kind,
+                String key,
+                int slot,
+                boolean required,
+                CompiledExpression expression,
+                Class<?> type) {
+            this.kind = kind;
+            this.key = key;
+            this.slot = slot;
+            this.required = required;
+            this.expression = expression;
+            this.type = type;
+        }
+    }
+
+    @Getter
+    private final Method method;
+    @Getter
+    private final VariableLayout layout;
+    private final Binding[] bindings;
+    private final MethodHandle handle;
+
+    private NodeInvoker(Method method, VariableLayout layout, Binding[] bindings, MethodHandle handle) {
+        this.method = method;
+        this.layout = layout;
+        this.bindings = bindings;
+        this.handle = handle;
+    }
+
+    /**
+     * 编译节点方法，状态变量按名称查找
+     * @param method 节点方法
+     * @return 调用器
+     */
+    public static NodeInvoker compile(Method method) {
+        return compile(method, VariableLayout.empty());
+    }
+
+    /**
+     * 编译节点方法，布局中声明的状态变量按槽位读取
+     * @param method 节点方法
+     * @param layout 工作流的变量布局
+     * @return 调用器
+     */
+    public static NodeInvoker compile(Method method, VariableLayout layout) {
+        Parameter[] parameters = method.getParameters();
+        String[] parameterNames = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        Binding[] bindings = new Binding[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            String parameterName = parameterNames != null ? parameterNames[i] : parameters[i].getName();
+            bindings[i] = bind(parameters[i], parameterName, layout);
+        }
+        return new NodeInvoker(method, layout, bindings, toGenericHandle(method));
+    }
+
+    private static Binding bind(Parameter parameter, String parameterName, VariableLayout layout) {
+        if (parameter.getType().equals(WorkflowState.class)) {
+            return new Binding(InjectionKind.STATE);
+        }
+        if (parameter.getType().equals(WorkflowContext.class)) {
+            return new Binding(InjectionKind.CONTEXT);
+        }
+        StateVariable stateVar = AnnotationUtils.findAnnotation(parameter, StateVariable.class);
+        if (stateVar != null) {
+            String key = stateVar.value().isEmpty() ? parameterName : stateVar.value();
+            return new Binding(InjectionKind.VARIABLE, key, layout.slotOf(key),
+                    stateVar.required(), null, null);
+        }
+        StateExpression stateExpression = AnnotationUtils.findAnnotation(parameter, StateExpression.class);
+        if (stateExpression != null) {
+            // 基本类型参数按包装类型求值，由句柄负责拆箱
+            Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(parameter.getType());
+            return new Binding(InjectionKind.EXPRESSION, null, -1, false,
+                    CompiledExpression.parse(stateExpression.value()), type);
+        }
+        return new Binding(InjectionKind.NONE);
+    }
+
+    private static MethodHandle toGenericHandle(Method method) {
+        ReflectionUtils.makeAccessible(method);
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access node method: " + method, e);
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            // 静态方法忽略目标对象
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        // 统一为(Object, Object[])Object，参数拆箱和void返回值在句柄内部完成
+        return handle
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(GENERIC_TYPE);
+    }
+
+    /**
+     * 获取参数绑定计划
+     */
+    public Binding[] getBindings() {
+        return bindings.clone();
+    }
+
+    /**
+     * 按绑定计划解析调用参数
+     * @param state 工作流状态
+     * @param context 工作流上下文
+     * @return 调用参数
+     */
+    public Object[] resolveArguments(WorkflowState state, WorkflowContext context) {
+        Object[] args = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            Binding binding = bindings[i];
+            switch (binding.kind) {
+                case STATE -> args[i] = state;
+                case CONTEXT -> args[i] = context;
+                case VARIABLE -> {
+                    Object value = state.getVariable(layout, binding.slot, binding.key);
+                    if (value == null && binding.required) {
+                        throw new IllegalArgumentException(
+                                "Required state variable not found: " + binding.key);
+                    }
+                    args[i] = value;
+                }
+                case EXPRESSION -> args[i] = binding.expression.getValue(state, context, binding.type);
+                case NONE -> args[i] = null;
+            }
+        }
+        return args;
+    }
+
+    /**
+     * 解析节点的输入值（状态变量和表达式参数），不注入状态和上下文，缺失的变量为null
+     * 用于计算节点结果的缓存键
+     * @param state 工作流状态
+     * @param context 工作流上下文
+     * @return 按参数顺序排列的输入值
+     */
+    public Object[] resolveInputs(WorkflowState state, WorkflowContext context) {
+        Object[] inputs = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            Binding binding = bindings[i];
+            switch (binding.kind) {
+                case VARIABLE -> inputs[i] = state.getVariable(layout, binding.slot, binding.key);
+                case EXPRESSION -> inputs[i] = binding.expression.getValue(state, context, binding.type);
+                default -> inputs[i] = null;
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * 调用节点方法
+     * 节点方法抛出的异常原样抛出，不包装为InvocationTargetException
+     * @param target 目标对象，静态方法可为null
+     * @param args 调用参数
+     * @return 方法返回值，void方法返回null
+     */
+    public Object invoke(Object target, Object[] args) throws Throwable {
+        return (Object) handle.invokeExact(target, args);
+    }
+}
@@ -1,15 +1,28 @@
 package com.niko.langchain4jworkflow.workflow.core;
 
+import com.niko.langchain4jworkflow.workflow.exceptions.NodeExecutionException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * 并行映射节点执行器
+ * 对items变量中的每个元素在独立分支上执行一次节点方法，同时运行的元素不超过maxConcurrency个，
+ * 按元素顺序收集返回值写入结果变量。waitForAll为true时任一元素失败即失败；
+ * 为false时quorum个元素成功即完成，未完成的元素被取消，对应位置的结果为null。
+ * 元素总是提交到节点的执行池，同步的节点方法也并发运行。
+ * 节点完成时成功元素的分支按元素顺序合并回节点状态，元素变量恢复为执行前的值；失败或被取消的元素不合并。
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class ParallelNodeExecutor implements NodeExecutor {
@@ -28,18 +41,10 @@ public class ParallelNodeExecutor implements NodeExecutor {
         try {
             state.recordNodeStart(node.getName());
 
-            // 获取所有并行节点
-            List<Node> parallelNodes = getParallelNodes(node);
-
-            // 并行执行所有节点
-            List<CompletableFuture<WorkflowState>> futures = parallelNodes.stream()
-                    .map(n -> defaultExecutor.execute(n, state.clone(), context))
-                    .collect(Collectors.toList());
-
-            // 等待所有节点完成并合并结果
-            return CompletableFuture.allOf(
-                            futures.toArray(new CompletableFuture[0]))
-                    .thenApply(v -> mergeResults(state, futures));
+            List<?> items = getItems(node, state);
+            MapRun run = new MapRun(node, state, context, items);
+            run.drain();
+            return run.result;
 
         } catch (Exception e) {
             state.recordNodeError(node.getName(), e);
@@ -49,25 +54,191 @@ public class ParallelNodeExecutor implements NodeExecutor {
         }
     }
 
-    private List<Node> getParallelNodes(Node node) {
-        // TODO: 从节点配置中获取并行节点列表
-        return new ArrayList<>();
+    private static List<?> getItems(Node node, WorkflowState state) {
+        Node.NodeConfig config = node.getConfig();
+        if (config == null || config.getItems() == null) {
+            throw new NodeExecutionException(node.getName(),
+                    "PARALLEL node requires an items variable");
+        }
+        Object value = state.getVariable(config.getItems());
+        if (value == null) {
+            throw new NodeExecutionException(node.getName(),
+                    "Items variable '" + config.getItems() + "' is not set");
+        }
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        if (value instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
+        }
+        if (value instanceof Object[] array) {
+            return Arrays.asList(array);
+        }
+        throw new NodeExecutionException(node.getName(), "Items variable '" + config.getItems()
+                + "' is not a collection: " + value.getClass().getName());
     }
 
-    private WorkflowState mergeResults(
-            WorkflowState originalState,
-            List<CompletableFuture<WorkflowState>> futures) {
-
-        Map<String, Object> mergedOutputs = new HashMap<>();
-        futures.stream()
-                .map(CompletableFuture::join)
-                .forEach(state -> {
-                    mergedOutputs.putAll(state.getVariables());
-                    originalState.getExecutionHistory()
-                            .putAll(state.getExecutionHistory());
-                });
-
-        originalState.recordNodeCompletion(originalState.getWorkflowId(), mergedOutputs);
-        return originalState;
+    /**
+     * 一次映射执行
+     * drain()以工作计数保证同一时刻只有一个线程在启动元素，同步完成的元素不会递归启动下一个
+     */
+    private final class MapRun {
+        private final Node node;
+        private final WorkflowState state;
+        private final WorkflowContext context;
+        private final List<?> items;
+        private final String itemVariable;
+        private final String resultVariable;
+        private final int maxConcurrency;
+        private final int quorum;
+
+        private final boolean hadItem;
+        private final Object previousItem;
+
+        /**
+         * 成功元素的分支状态
+         */
+        private final AtomicReferenceArray<WorkflowState> branches;
+        private final AtomicReferenceArray<CompletableFuture<WorkflowState>> running;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final CompletableFuture<WorkflowState> result = new CompletableFuture<>();
+        private int cursor;
+
+        MapRun(Node node, WorkflowState state, WorkflowContext context, List<?> items) {
+            Node.NodeConfig config = node.getConfig();
+            this.node = node;
+            this.state = state;
+            this.context = context;
+            this.items = items;
+            this.itemVariable = config.getItemVariable() != null ? config.getItemVariable() : "item";
+            this.resultVariable = config.getResultVariable() != null
+                    ? config.getResultVariable()
+                    : node.getName();
+            this.maxConcurrency = config.getMaxConcurrency() != null && config.getMaxConcurrency() > 0
+                    ? config.getMaxConcurrency()
+                    : Integer.MAX_VALUE;
+            int required = config.getQuorum() != null && config.getQuorum() > 0 ? config.getQuorum() : 1;
+            this.quorum = config.isWaitForAll() ? items.size() : Math.min(required, items.size());
+            this.hadItem = state.hasVariable(itemVariable);
+            this.previousItem = state.getVariable(itemVariable);
+            this.branches = new AtomicReferenceArray<>(items.size());
+            this.running = new AtomicReferenceArray<>(items.size());
+
+            // 节点超时或被取消时停止所有进行中的元素
+            result.whenComplete((completed, error) -> {
+                if (error != null) {
+                    cancelRunning();
+                }
+            });
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                if (succeeded.get() >= quorum) {
+                    complete();
+                }
+                while (!result.isDone() && cursor < items.size() && active.get() < maxConcurrency) {
+                    start(cursor++);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void start(int index) {
+            active.incrementAndGet();
+            WorkflowState branch = state.clone();
+            CompletableFuture<WorkflowState> future;
+            try {
+                Object item = items.get(index);
+                if (item != null) {
+                    branch.setVariable(itemVariable, item);
+                }
+                future = defaultExecutor.executeOnPool(node, branch, context);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            running.set(index, future);
+            future.whenComplete((completed, error) -> {
+                running.set(index, null);
+                active.decrementAndGet();
+                if (error == null) {
+                    branches.set(index, completed);
+                    succeeded.incrementAndGet();
+                } else {
+                    onFailure(index, error);
+                }
+                drain();
+            });
+        }
+
+        private void onFailure(int index, Throwable error) {
+            int failures = failed.incrementAndGet();
+            if (failures <= items.size() - quorum || result.isDone()) {
+                log.debug("Item {} of node {} failed, continuing", index, node.getName(), error);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            Throwable failure = quorum == items.size()
+                    ? cause
+                    : new NodeExecutionException(node.getName(), String.format(
+                            "Quorum of %d not reachable: %d of %d items failed",
+                            quorum, failures, items.size()), cause);
+            state.recordNodeError(node.getName(), failure);
+            result.completeExceptionally(failure);
+        }
+
+        private Object resultOf(WorkflowState branch) {
+            WorkflowState.NodeExecutionInfo info = branch.getExecutionHistory().get(node.getName());
+            return info != null && info.getOutputs() != null ? info.getOutputs().get("result") : null;
+        }
+
+        private void complete() {
+            if (result.isDone()) {
+                return;
+            }
+            cancelRunning();
+            WorkflowState.NodeExecutionInfo own = state.getExecutionHistory().get(node.getName());
+            List<Object> collected = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                WorkflowState branch = branches.get(i);
+                if (branch != null) {
+                    state.merge(branch);
+                }
+                collected.add(branch != null ? resultOf(branch) : null);
+            }
+            // 分支上的元素变量和本节点的执行记录不属于合并结果，恢复为执行前的值
+            if (hadItem) {
+                state.setVariable(itemVariable, previousItem);
+            } else {
+                state.removeVariable(itemVariable);
+            }
+            if (own != null) {
+                state.getExecutionHistory().put(node.getName(), own);
+            }
+            state.setVariable(resultVariable, collected);
+
+            Map<String, Object> outputs = new HashMap<>();
+            outputs.put("result", collected);
+            outputs.put("completed", succeeded.get());
+            outputs.put("failed", failed.get());
+            state.recordNodeCompletion(node.getName(), outputs);
+            result.complete(state);
+        }
+
+        private void cancelRunning() {
+            for (int i = 0; i < running.length(); i++) {
+                CompletableFuture<WorkflowState> future = running.get(i);
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * 流式生成中的文本
+ * 流式AI节点开始生成时即写入状态变量，声明@AcceptsPartial的下游节点可以在生成完成前
+ * 逐个消费已到达的令牌，或等待完整文本。
+ */
+public final class PartialText {
+    private final List<String> tokens = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+    private final CompletableFuture<String> completion = new CompletableFuture<>();
+
+    /**
+     * 追加一个令牌
+     * @return 令牌的序号，从0开始
+     */
+    synchronized int append(String token) {
+        if (completion.isDone()) {
+            return -1;
+        }
+        tokens.add(token);
+        text.append(token);
+        notifyAll();
+        return tokens.size() - 1;
+    }
+
+    /**
+     * 以模型返回的完整文本结束生成
+     */
+    synchronized void complete(String fullText) {
+        completion.complete(fullText != null ? fullText : text.toString());
+        notifyAll();
+    }
+
+    /**
+     * 以错误结束生成
+     */
+    synchronized void fail(Throwable error) {
+        completion.completeExceptionally(error);
+        notifyAll();
+    }
+
+    /**
+     * 当前已生成的文本
+     */
+    public synchronized String snapshot() {
+        return text.toString();
+    }
+
+    /**
+     * 是否已结束生成（成功或失败）
+     */
+    public boolean isComplete() {
+        return completion.isDone();
+    }
+
+    /**
+     * 生成完成时以完整文本完成的Future
+     */
+    public CompletableFuture<String> completion() {
+        return completion.copy();
+    }
+
+    /**
+     * 阻塞等待完整文本
+     * @throws CompletionException 生成失败时
+     * @throws InterruptedException 等待被中断时
+     */
+    public String await() throws InterruptedException {
+        synchronized (this) {
+            while (!completion.isDone()) {
+                wait();
+            }
+        }
+        return completion.join();
+    }
+
+    /**
+     * 按到达顺序依次处理令牌，已到达的令牌立即处理，直到生成结束
+     * @param consumer 令牌处理函数，在调用线程上执行且不持有锁
+     * @throws CompletionException 生成失败时
+     * @throws InterruptedException 等待被中断时
+     */
+    public void forEachToken(Consumer<String> consumer) throws InterruptedException {
+        int next = 0;
+        while (true) {
+            String token;
+            synchronized (this) {
+                while (next == tokens.size() && !completion.isDone()) {
+                    wait();
+                }
+                if (next == tokens.size()) {
+                    break;
+                }
+                token = tokens.get(next++);
+            }
+            consumer.accept(token);
+        }
+        completion.join();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot();
+    }
+}
@@ -0,0 +1,384 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * 持久化哈希映射
+ * 基于哈希数组映射字典树（HAMT）的不可变映射，每层按哈希值的5位分支。
+ * 写操作只复制从根到被修改叶子的路径，其余节点在新旧版本之间共享，
+ * 因此保留旧版本（快照）的成本为O(1)，单次写入的成本为O(log32 n)。
+ * 键和值均不允许为null。
+ */
+public final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final TrieNode root;
+    private final int size;
+
+    private PersistentHashMap(TrieNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * 获取空映射
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 获取键对应的值
+     * @return 值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null || key == null) {
+            return null;
+        }
+        Object value = root.find(0, hash(key), key, NOT_FOUND);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    public boolean containsKey(Object key) {
+        return root != null && key != null && root.find(0, hash(key), key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    /**
+     * 返回包含新键值对的映射，原映射不变
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        boolean[] added = new boolean[1];
+        TrieNode base = root != null ? root : BitmapNode.EMPTY;
+        TrieNode updated = base.assoc(0, hash(key), key, value, added);
+        if (updated == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * 返回移除指定键后的映射，原映射不变
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        TrieNode updated = root.without(0, hash(key), key);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentHashMap<>(updated, size - 1);
+    }
+
+    /**
+     * 遍历所有键值对
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int mask(int hash, int shift) {
+        return (hash >>> shift) & 0x1f;
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << mask(hash, shift);
+    }
+
+    /**
+     * 字典树节点，array按[键, 值]成对存放；键为null时值位置存放子节点
+     */
+    private abstract static class TrieNode {
+        final Object[] array;
+
+        TrieNode(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, Object key, Object notFound);
+
+        abstract TrieNode assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return 移除后的节点，未找到时返回自身，节点变空时返回null
+         */
+        abstract TrieNode without(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] != null) {
+                    action.accept(array[i], array[i + 1]);
+                } else {
+                    ((TrieNode) array[i + 1]).forEach(action);
+                }
+            }
+        }
+    }
+
+    /**
+     * 位图索引节点，位图标记32个分支中哪些存在，数组只存放存在的分支
+     */
+    private static final class BitmapNode extends TrieNode {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null) {
+                return ((TrieNode) v).find(shift + 5, hash, key, notFound);
+            }
+            return key.equals(k) ? v : notFound;
+        }
+
+        @Override
+        TrieNode assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) != 0) {
+                Object k = array[2 * idx];
+                Object v = array[2 * idx + 1];
+                if (k == null) {
+                    TrieNode child = ((TrieNode) v).assoc(shift + 5, hash, key, value, added);
+                    return child == v ? this : withSlot(2 * idx + 1, child);
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : withSlot(2 * idx + 1, value);
+                }
+                added[0] = true;
+                Object[] copy = array.clone();
+                copy[2 * idx] = null;
+                copy[2 * idx + 1] = createNode(shift + 5, k, v, hash, key, value);
+                return new BitmapNode(bitmap, copy);
+            }
+
+            added[0] = true;
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, 2 * idx);
+            copy[2 * idx] = key;
+            copy[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, copy, 2 * idx + 2, array.length - 2 * idx);
+            return new BitmapNode(bitmap | bit, copy);
+        }
+
+        @Override
+        TrieNode without(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null) {
+                TrieNode child = ((TrieNode) v).without(shift + 5, hash, key);
+                if (child == v) {
+                    return this;
+                }
+                if (child != null) {
+                    return withSlot(2 * idx + 1, child);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, 2 * idx);
+            System.arraycopy(array, 2 * idx + 2, copy, 2 * idx, copy.length - 2 * idx);
+            return new BitmapNode(bitmap ^ bit, copy);
+        }
+
+        private BitmapNode withSlot(int slot, Object value) {
+            Object[] copy = array.clone();
+            copy[slot] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private static TrieNode createNode(
+                int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY
+                    .assoc(shift, hash1, key1, value1, added)
+                    .assoc(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * 哈希完全相同的键值对集合
+     */
+    private static final class CollisionNode extends TrieNode {
+        final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int idx = indexOf(key);
+            return idx < 0 ? notFound : array[idx + 1];
+        }
+
+        @Override
+        TrieNode assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // 哈希不同，将当前冲突节点下沉到新的位图节点中
+                return new BitmapNode(bitpos(this.hash, shift), new Object[]{null, this})
+                        .assoc(shift, hash, key, value, added);
+            }
+            int idx = indexOf(key);
+            if (idx >= 0) {
+                if (array[idx + 1] == value) {
+                    return this;
+                }
+                Object[] copy = array.clone();
+                copy[idx + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            added[0] = true;
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        TrieNode without(int shift, int hash, Object key) {
+            int idx = indexOf(key);
+            if (idx < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, idx);
+            System.arraycopy(array, idx + 2, copy, idx, copy.length - idx);
+            return new CollisionNode(hash, copy);
+        }
+    }
+
+    /**
+     * 基于显式栈的深度优先遍历，无需递归也无需预先收集
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        // 32位哈希最多7层位图节点加1层冲突节点
+        private final Object[][] arrays = new Object[9][];
+        private final int[] positions = new int[9];
+        private int depth = -1;
+        private Map.Entry<K, V> next;
+
+        EntryIterator(TrieNode root) {
+            if (root != null) {
+                push(root);
+                advance();
+            }
+        }
+
+        private void push(TrieNode node) {
+            depth++;
+            arrays[depth] = node.array;
+            positions[depth] = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int pos = positions[depth];
+                if (pos >= array.length) {
+                    arrays[depth--] = null;
+                    continue;
+                }
+                positions[depth] = pos + 2;
+                if (array[pos] != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>((K) array[pos], (V) array[pos + 1]);
+                    return;
+                }
+                push((TrieNode) array[pos + 1]);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> current = next;
+            advance();
+            return current;
+        }
+    }
+}
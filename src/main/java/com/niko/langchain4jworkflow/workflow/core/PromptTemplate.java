@@ -0,0 +1,171 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.InvalidWorkflowException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 预编译的提示词模板
+ * 模板中的{{name}}占位符在扫描工作流时解析为文本片段和变量片段，渲染时按片段顺序依次写入，
+ * 输出只取决于模板和变量值，相同输入总是得到相同的提示词（也就得到相同的缓存键）。
+ * 渲染时先取出所有变量值再按总长度一次分配缓冲区，同时估算token数。
+ * 系统提示词不含占位符时，按原有格式在其后逐行列出节点的输入变量（"名称: 值"，值为空的行省略）。
+ */
+public final class PromptTemplate {
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    /**
+     * literals[i]位于第i个变量之前，最后一项位于所有变量之后
+     */
+    private final String[] literals;
+    private final String[] names;
+
+    /**
+     * 变量的行前缀，不为空时该变量渲染为"前缀值\n"，值为空时整行省略；为空时渲染为值本身
+     */
+    private final String[] labels;
+
+    private final int literalLength;
+    private final int literalTokens;
+
+    private PromptTemplate(List<String> literals, List<String> names, List<String> labels) {
+        this.literals = literals.toArray(String[]::new);
+        this.names = names.toArray(String[]::new);
+        this.labels = labels.toArray(String[]::new);
+        int length = 0;
+        int tokens = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+            tokens += estimateTokens(literal);
+        }
+        this.literalLength = length;
+        this.literalTokens = tokens;
+    }
+
+    /**
+     * 解析带{{name}}占位符的模板，占位符两侧的空白被忽略
+     * @throws InvalidWorkflowException 占位符未闭合或名称为空时
+     */
+    public static PromptTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = template.indexOf(OPEN, position)) >= 0) {
+            int close = template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new InvalidWorkflowException(
+                        "Unclosed placeholder at index " + open + " in prompt template: " + template);
+            }
+            String name = template.substring(open + OPEN.length(), close).strip();
+            if (name.isEmpty()) {
+                throw new InvalidWorkflowException(
+                        "Empty placeholder at index " + open + " in prompt template: " + template);
+            }
+            literals.add(template.substring(position, open));
+            names.add(name);
+            position = close + CLOSE.length();
+        }
+        literals.add(template.substring(position));
+        List<String> labels = new ArrayList<>(names.size());
+        names.forEach(name -> labels.add(null));
+        return new PromptTemplate(literals, names, labels);
+    }
+
+    /**
+     * AI节点的提示词模板
+     * 系统提示词含占位符时作为完整模板；否则为系统提示词加按顺序逐行列出的输入变量
+     * @param systemPrompt 系统提示词，可以为空
+     * @param inputs 输入变量名称，按声明顺序
+     */
+    public static PromptTemplate forNode(String systemPrompt, Collection<String> inputs) {
+        if (systemPrompt != null && systemPrompt.contains(OPEN)) {
+            return compile(systemPrompt);
+        }
+        List<String> literals = new ArrayList<>(inputs.size() + 1);
+        List<String> labels = new ArrayList<>(inputs.size());
+        literals.add(systemPrompt != null ? systemPrompt + "\n\n" : "");
+        for (String input : inputs) {
+            literals.add("");
+            labels.add(input + ": ");
+        }
+        return new PromptTemplate(literals, new ArrayList<>(inputs), labels);
+    }
+
+    /**
+     * 模板引用的变量，按出现顺序
+     */
+    public List<String> variables() {
+        return List.of(names);
+    }
+
+    /**
+     * 渲染提示词
+     * @param variables 按名称取变量值，返回null表示变量不存在
+     * @return 提示词和估算的token数
+     */
+    public Rendered render(Function<String, Object> variables) {
+        CharSequence[] values = new CharSequence[names.length];
+        int length = literalLength;
+        int tokens = literalTokens;
+        for (int i = 0; i < names.length; i++) {
+            Object value = variables.apply(names[i]);
+            if (value == null) {
+                continue;
+            }
+            CharSequence text = value instanceof CharSequence sequence ? sequence : String.valueOf(value);
+            values[i] = text;
+            length += text.length();
+            tokens += estimateTokens(text);
+            if (labels[i] != null) {
+                length += labels[i].length() + 1;
+                tokens += estimateTokens(labels[i]) + 1;
+            }
+        }
+
+        StringBuilder prompt = new StringBuilder(length);
+        for (int i = 0; i < names.length; i++) {
+            prompt.append(literals[i]);
+            CharSequence value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (labels[i] != null) {
+                prompt.append(labels[i]).append(value).append('\n');
+            } else {
+                prompt.append(value);
+            }
+        }
+        prompt.append(literals[names.length]);
+        return new Rendered(prompt.toString(), tokens);
+    }
+
+    /**
+     * 估算文本的token数
+     * ASCII字符按约4个一个token计，其他字符（如中文）按每个字符一个token计，与常见分词器的结果大致相当
+     */
+    static int estimateTokens(CharSequence text) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + other;
+    }
+
+    /**
+     * 渲染结果
+     * @param text 提示词
+     * @param estimatedTokens 估算的token数
+     */
+    public record Rendered(String text, int estimatedTokens) {
+    }
+}
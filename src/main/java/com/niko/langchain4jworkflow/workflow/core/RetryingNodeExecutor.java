@@ -0,0 +1,227 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.event.NodeRetryEvent;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试节点执行器
+ * 按节点的RetryConfig对失败的执行进行重试：等待时间按指数退避计算并加入完全抖动（在[0, 退避值]内随机），
+ * 避免大量失败的调用在同一时刻重试而再次触发限流。等待通过共享时间轮实现，不会阻塞任何线程；
+ * 到期后重试在节点执行器上提交。节点超时约束的是包括所有重试在内的整体执行。
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RetryingNodeExecutor implements NodeExecutor {
+
+    /**
+     * 未配置最大等待时间时的退避上限
+     */
+    private static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(30);
+
+    private final NodeExecutor delegate;
+    private final Executor executor;
+    private final TimerWheel timerWheel;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricsRegistry metricsRegistry;
+
+    @Override
+    public CompletableFuture<WorkflowState> execute(
+            Node node,
+            WorkflowState state,
+            WorkflowContext context) {
+
+        Node.RetryConfig retryConfig = node.getConfig() != null
+                ? node.getConfig().getRetryConfig()
+                : null;
+        if (retryConfig == null || retryConfig.getMaxAttempts() <= 1) {
+            return delegate.execute(node, state, context);
+        }
+        return new RetryingExecution(node, state, context, retryConfig).start();
+    }
+
+    /**
+     * 计算第attempt次失败后的等待时间：min(上限, 初始延迟 * 乘数^(attempt-1))内的均匀随机值
+     */
+    static Duration backoff(Node.RetryConfig config, int attempt) {
+        long baseMillis = config.getDelay() != null ? config.getDelay().toMillis() : 0;
+        double multiplier = config.getMultiplier() > 0 ? config.getMultiplier() : 1.0;
+        long capMillis = (config.getMaxDelay() != null ? config.getMaxDelay() : DEFAULT_MAX_DELAY).toMillis();
+        double exponential = baseMillis * Math.pow(multiplier, attempt - 1);
+        long ceiling = (long) Math.min(capMillis, exponential);
+        if (ceiling <= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    /**
+     * 判断异常是否可重试：异常链中出现不可重试类型时不重试，否则异常链中出现可重试类型时重试
+     */
+    static boolean isRetryable(Node.RetryConfig config, Throwable error) {
+        if (error instanceof CancellationException) {
+            return false;
+        }
+        if (matches(config.getNonRetryableExceptions(), error)) {
+            return false;
+        }
+        List<Class<? extends Throwable>> retryable = config.getRetryableExceptions();
+        return retryable == null || retryable.isEmpty() || matches(retryable, error);
+    }
+
+    private static boolean matches(List<Class<? extends Throwable>> types, Throwable error) {
+        if (types == null || types.isEmpty()) {
+            return false;
+        }
+        int depth = 0;
+        for (Throwable t = error; t != null && depth < 16; t = t.getCause(), depth++) {
+            for (Class<? extends Throwable> type : types) {
+                if (type.isInstance(t)) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * 单个节点的一次带重试的执行
+     */
+    private final class RetryingExecution {
+        private final Node node;
+        private final WorkflowState state;
+        private final WorkflowContext context;
+        private final Node.RetryConfig retryConfig;
+        private final CompletableFuture<WorkflowState> result = new CompletableFuture<>();
+
+        private volatile CompletableFuture<WorkflowState> currentAttempt;
+        private volatile TimerWheel.Task pendingRetry;
+
+        RetryingExecution(
+                Node node,
+                WorkflowState state,
+                WorkflowContext context,
+                Node.RetryConfig retryConfig) {
+            this.node = node;
+            this.state = state;
+            this.context = context;
+            this.retryConfig = retryConfig;
+        }
+
+        CompletableFuture<WorkflowState> start() {
+            // 外部超时或取消时停止当前尝试和尚未开始的重试
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    stopPending();
+                }
+            });
+            attempt(1);
+            return result;
+        }
+
+        private void attempt(int attempt) {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<WorkflowState> future;
+            try {
+                future = delegate.execute(node, state, context);
+            } catch (Throwable e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            currentAttempt = future;
+            if (result.isDone()) {
+                future.cancel(true);
+                return;
+            }
+            future.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    onFailure(attempt, unwrap(error));
+                }
+            });
+        }
+
+        private void onFailure(int attempt, Throwable error) {
+            if (result.isDone()) {
+                return;
+            }
+            if (attempt >= retryConfig.getMaxAttempts() || !isRetryable(retryConfig, error)) {
+                result.completeExceptionally(error);
+                return;
+            }
+
+            Duration delay = backoff(retryConfig, attempt);
+            log.warn("Node {} failed on attempt {}/{}, retrying in {} ms: {}",
+                    node.getName(), attempt, retryConfig.getMaxAttempts(),
+                    delay.toMillis(), error.getMessage());
+            if (metricsRegistry != null) {
+                metricsRegistry.incrementCounter(
+                        "node.retries",
+                        "workflow", String.valueOf(context.getWorkflowName()),
+                        "node", node.getName());
+            }
+            if (eventPublisher != null) {
+                eventPublisher.publishEvent(new NodeRetryEvent(
+                        RetryingNodeExecutor.this,
+                        context.getWorkflowName(),
+                        context.getWorkflowId(),
+                        node.getName(),
+                        attempt + 1,
+                        delay,
+                        error));
+            }
+
+            pendingRetry = timerWheel.schedule(() -> submit(attempt + 1), delay);
+            if (result.isDone()) {
+                pendingRetry.cancel();
+            }
+        }
+
+        /**
+         * 时间轮线程只负责把重试提交到节点执行器，节点本身不在时间轮线程上运行
+         */
+        private void submit(int attempt) {
+            try {
+                executor.execute(() -> attempt(attempt));
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void stopPending() {
+            TimerWheel.Task retry = pendingRetry;
+            if (retry != null) {
+                retry.cancel();
+            }
+            CompletableFuture<WorkflowState> attempt = currentAttempt;
+            if (attempt != null) {
+                attempt.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 语义响应缓存
+ * 对完整渲染后的提示词计算向量，在之前的提示词中查找余弦相似度最高的一条，
+ * 超过节点阈值时直接返回其响应，覆盖只有空白或措辞差异的提示词。
+ * 只有声明@SemanticCache的AI节点使用，不同模型参数的调用不会互相命中。
+ * 与精确缓存相同，聊天模型温度大于0时输出不确定，默认绕过，可通过allowSampling或节点的@SemanticCache放开。
+ * 索引为内存中的线性扫描，条目数有上限，超出时淘汰最久未命中的条目。
+ * 记录查找耗时（向量计算和扫描）、命中次数和最高相似度，用于按成本调整阈值。
+ */
+@Slf4j
+public class SemanticResponseCache {
+    /**
+     * 节点配置中的相似度阈值属性名，存在时节点使用语义缓存
+     */
+    public static final String THRESHOLD_PROPERTY = "semanticCacheThreshold";
+
+    /**
+     * 节点配置中允许在温度大于0时使用语义缓存的属性名
+     */
+    public static final String ALLOW_SAMPLING_PROPERTY = "semanticCacheAllowSampling";
+
+    private final EmbeddingModel embeddingModel;
+    private final int maxSize;
+    private final double defaultThreshold;
+    private final boolean allowSampling;
+    private final ModelParameters parameters;
+    private final MetricsRegistry metricsRegistry;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * @param embeddingModel 计算提示词向量的模型
+     * @param maxSize 最大条目数
+     * @param defaultThreshold 节点未指定阈值时的余弦相似度阈值
+     * @param allowSampling 聊天模型温度大于0时是否使用语义缓存
+     * @param defaultModel 聊天模型实际使用的模型名称
+     * @param defaultTemperature 聊天模型实际使用的温度
+     * @param defaultMaxTokens 聊天模型实际使用的最大token数
+     * @param metricsRegistry 指标注册表，为空时不记录指标
+     */
+    @Builder
+    public SemanticResponseCache(
+            EmbeddingModel embeddingModel,
+            int maxSize,
+            double defaultThreshold,
+            boolean allowSampling,
+            String defaultModel,
+            Double defaultTemperature,
+            Integer defaultMaxTokens,
+            MetricsRegistry metricsRegistry) {
+
+        this.embeddingModel = embeddingModel;
+        this.maxSize = maxSize;
+        this.defaultThreshold = defaultThreshold;
+        this.allowSampling = allowSampling;
+        this.parameters = new ModelParameters(defaultModel, defaultTemperature, defaultMaxTokens);
+        this.metricsRegistry = metricsRegistry;
+        if (metricsRegistry != null) {
+            metricsRegistry.registerGauge("llm.semantic_cache.size", entries::size);
+        }
+    }
+
+    /**
+     * 节点本次调用是否使用语义缓存
+     * 节点需声明@SemanticCache；聊天模型温度大于0且未允许时绕过（记为bypass）
+     * @param node AI节点
+     * @param workflowName 工作流名称，用于按工作流统计
+     */
+    public boolean appliesTo(Node node, String workflowName) {
+        Map<String, Object> properties = node.getConfig() != null ? node.getConfig().getProperties() : null;
+        if (properties == null || !properties.containsKey(THRESHOLD_PROPERTY)) {
+            return false;
+        }
+        Object nodeAllows = properties.get(ALLOW_SAMPLING_PROPERTY);
+        if (parameters.sampling() && !allowSampling
+                && !Boolean.TRUE.equals(nodeAllows instanceof String text ? Boolean.valueOf(text) : nodeAllows)) {
+            if (metricsRegistry != null) {
+                metricsRegistry.incrementCounter("llm.semantic_cache.requests",
+                        "workflow", workflowName != null ? workflowName : "unknown", "result", "bypass");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 查找相似提示词的响应
+     * 向量计算可能是远程调用，应在节点的执行池上调用
+     * @param node AI节点
+     * @param workflowName 工作流名称，用于按工作流统计
+     * @param prompt 完整渲染后的提示词
+     * @return 查找结果，未命中时可用于写入本次生成的响应
+     */
+    public Lookup lookup(Node node, String workflowName, String prompt) {
+        String workflow = workflowName != null ? workflowName : "unknown";
+        long start = System.nanoTime();
+        float[] vector = normalize(embeddingModel.embed(prompt).content());
+
+        Entry best = null;
+        double bestSimilarity = -1;
+        for (Entry entry : entries.values()) {
+            if (!entry.scope.equals(parameters) || entry.vector.length != vector.length) {
+                continue;
+            }
+            double similarity = dot(entry.vector, vector);
+            if (similarity > bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+
+        boolean hit = best != null && bestSimilarity >= threshold(node);
+        if (hit) {
+            best.lastUsed = clock.incrementAndGet();
+        }
+        if (metricsRegistry != null) {
+            metricsRegistry.recordDuration("llm.semantic_cache.latency",
+                    Duration.ofNanos(System.nanoTime() - start), "workflow", workflow);
+            metricsRegistry.incrementCounter("llm.semantic_cache.requests",
+                    "workflow", workflow, "result", hit ? "hit" : "miss");
+            if (best != null) {
+                metricsRegistry.recordValue("llm.semantic_cache.similarity", bestSimilarity, "workflow", workflow);
+            }
+        }
+        return new Lookup(parameters, vector, hit ? best.response : null, bestSimilarity);
+    }
+
+    /**
+     * 写入未命中时生成的响应，超出上限时淘汰最久未命中的条目
+     */
+    public void put(Lookup lookup, String response) {
+        if (response == null || lookup.response() != null) {
+            return;
+        }
+        entries.put(ids.incrementAndGet(), new Entry(lookup.scope, lookup.vector, response, clock.incrementAndGet()));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * 当前条目数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private synchronized void evict() {
+        while (entries.size() > maxSize) {
+            Map.Entry<Long, Entry> oldest = null;
+            for (Map.Entry<Long, Entry> candidate : entries.entrySet()) {
+                if (oldest == null || candidate.getValue().lastUsed < oldest.getValue().lastUsed) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null || entries.remove(oldest.getKey()) == null) {
+                return;
+            }
+            if (metricsRegistry != null) {
+                metricsRegistry.incrementCounter("llm.semantic_cache.evictions");
+            }
+        }
+    }
+
+    private double threshold(Node node) {
+        Object value = node.getConfig().getProperties().get(THRESHOLD_PROPERTY);
+        double threshold = value instanceof Number number
+                ? number.doubleValue()
+                : value != null ? Double.parseDouble(value.toString()) : Double.NaN;
+        // 未指定或无效的阈值使用全局默认值
+        return threshold > 0 && threshold <= 1 ? threshold : defaultThreshold;
+    }
+
+    private static float[] normalize(Embedding embedding) {
+        float[] vector = embedding.vector().clone();
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 一次查找的结果
+     * @param response 命中的响应，未命中时为null
+     * @param similarity 最相似条目的余弦相似度，没有可比较的条目时为-1
+     */
+    public record Lookup(ModelParameters scope, float[] vector, String response, double similarity) {
+    }
+
+    private static final class Entry {
+        private final ModelParameters scope;
+        private final float[] vector;
+        private final String response;
+        private volatile long lastUsed;
+
+        private Entry(ModelParameters scope, float[] vector, String response, long lastUsed) {
+            this.scope = scope;
+            this.vector = vector;
+            this.response = response;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * 支持O(1)快照的线程安全映射
+ * 内部以PersistentHashMap保存当前版本，写操作通过CAS替换版本，读操作无锁。
+ * snapshot()返回与当前版本共享结构的新映射，并记录此后在快照上的写入（增量），
+ * applyChanges()只把分支的增量应用回父映射，而不是复制整个映射。
+ * 与ConcurrentHashMap一致，键和值均不允许为null。
+ */
+public final class SnapshotMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    /**
+     * 增量中表示键被删除的标记
+     */
+    private static final Object REMOVED = new Object();
+
+    private final AtomicReference<Version<K, V>> current;
+
+    public SnapshotMap() {
+        this(PersistentHashMap.empty(), false);
+    }
+
+    /**
+     * @param trackChanges 是否记录增量，只有快照需要记录
+     */
+    private SnapshotMap(PersistentHashMap<K, V> values, boolean trackChanges) {
+        this.current = new AtomicReference<>(
+                new Version<>(values, trackChanges ? PersistentHashMap.empty() : null));
+    }
+
+    /**
+     * 创建快照
+     * 快照与当前映射共享全部数据，之后双方的写入互不可见
+     * @return 记录增量的快照映射
+     */
+    public SnapshotMap<K, V> snapshot() {
+        return new SnapshotMap<>(current.get().values, true);
+    }
+
+    /**
+     * 将分支快照自创建以来的写入应用到当前映射
+     * @param branch 由snapshot()创建的分支
+     */
+    @SuppressWarnings("unchecked")
+    public void applyChanges(SnapshotMap<K, V> branch) {
+        PersistentHashMap<K, Object> changes = branch.current.get().changes;
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        while (true) {
+            Version<K, V> version = current.get();
+            PersistentHashMap<K, V> values = version.values;
+            PersistentHashMap<K, Object> recorded = version.changes;
+            for (Map.Entry<K, Object> change : changes) {
+                K key = change.getKey();
+                values = change.getValue() == REMOVED
+                        ? values.minus(key)
+                        : values.plus(key, (V) change.getValue());
+                if (recorded != null) {
+                    recorded = recorded.plus(key, change.getValue());
+                }
+            }
+            if (current.compareAndSet(version, new Version<>(values, recorded))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 遍历快照创建以来写入的键值对，不包括被删除的键
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachChange(BiConsumer<? super K, ? super V> action) {
+        PersistentHashMap<K, Object> changes = current.get().changes;
+        if (changes != null) {
+            changes.forEach((key, value) -> {
+                if (value != REMOVED) {
+                    action.accept(key, (V) value);
+                }
+            });
+        }
+    }
+
+    @Override
+    public int size() {
+        return current.get().values.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return current.get().values.isEmpty();
+    }
+
+    @Override
+    public V get(Object key) {
+        return current.get().values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return current.get().values.containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        while (true) {
+            Version<K, V> version = current.get();
+            V previous = version.values.get(key);
+            if (previous == value || update(version, version.values.plus(key, value), key, value)) {
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        while (true) {
+            Version<K, V> version = current.get();
+            PersistentHashMap<K, V> values = version.values;
+            PersistentHashMap<K, Object> changes = version.changes;
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                values = values.plus(entry.getKey(), entry.getValue());
+                if (changes != null) {
+                    changes = changes.plus(entry.getKey(), entry.getValue());
+                }
+            }
+            if (current.compareAndSet(version, new Version<>(values, changes))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        while (true) {
+            Version<K, V> version = current.get();
+            V previous = version.values.get(key);
+            if (previous == null || removeKey(version, key)) {
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        while (true) {
+            Version<K, V> version = current.get();
+            V previous = version.values.get(key);
+            if (previous != null || update(version, version.values.plus(key, value), key, value)) {
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        while (true) {
+            Version<K, V> version = current.get();
+            V previous = version.values.get(key);
+            if (previous == null || !previous.equals(value)) {
+                return false;
+            }
+            if (removeKey(version, key)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(newValue, "value");
+        while (true) {
+            Version<K, V> version = current.get();
+            V previous = version.values.get(key);
+            if (previous == null || !previous.equals(oldValue)) {
+                return false;
+            }
+            if (update(version, version.values.plus(key, newValue), key, newValue)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        while (true) {
+            Version<K, V> version = current.get();
+            V previous = version.values.get(key);
+            if (previous == null || update(version, version.values.plus(key, value), key, value)) {
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        while (true) {
+            Version<K, V> version = current.get();
+            PersistentHashMap<K, Object> changes = version.changes;
+            if (changes != null) {
+                for (Map.Entry<K, V> entry : version.values) {
+                    changes = changes.plus(entry.getKey(), REMOVED);
+                }
+            }
+            if (current.compareAndSet(version, new Version<>(PersistentHashMap.empty(), changes))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        current.get().values.forEach(action);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                Iterator<Entry<K, V>> iterator = current.get().values.iterator();
+                return new Iterator<>() {
+                    private Entry<K, V> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        last = iterator.next();
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        SnapshotMap.this.remove(last.getKey(), last.getValue());
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SnapshotMap.this.size();
+            }
+        };
+    }
+
+    private boolean update(Version<K, V> version, PersistentHashMap<K, V> values, K key, V value) {
+        PersistentHashMap<K, Object> changes = version.changes != null
+                ? version.changes.plus(key, value)
+                : null;
+        return current.compareAndSet(version, new Version<>(values, changes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean removeKey(Version<K, V> version, Object key) {
+        PersistentHashMap<K, Object> changes = version.changes != null
+                ? version.changes.plus((K) key, REMOVED)
+                : null;
+        return current.compareAndSet(version, new Version<>(version.values.minus(key), changes));
+    }
+
+    /**
+     * 当前数据与增量的不可变组合，二者通过同一次CAS一起更新
+     */
+    private static final class Version<K, V> {
+        private final PersistentHashMap<K, V> values;
+        private final PersistentHashMap<K, Object> changes;
+
+        private Version(PersistentHashMap<K, V> values, PersistentHashMap<K, Object> changes) {
+            this.values = values;
+            this.changes = changes;
+        }
+    }
+}
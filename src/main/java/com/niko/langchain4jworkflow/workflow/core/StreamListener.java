@@ -0,0 +1,21 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+/**
+ * 流式节点的监听器
+ * 由引擎为每次执行创建并通过WorkflowContext传递给节点执行器
+ */
+public interface StreamListener {
+    /**
+     * 节点开始流式输出，接受部分输入的下游节点此时即可开始执行
+     * @param nodeName 节点名称
+     */
+    void onStreamStart(String nodeName);
+
+    /**
+     * 节点输出一个令牌
+     * @param nodeName 节点名称
+     * @param token 令牌文本
+     * @param index 令牌序号，从0开始
+     */
+    void onToken(String nodeName, String token, int index);
+}
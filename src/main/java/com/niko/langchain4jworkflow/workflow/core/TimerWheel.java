@@ -0,0 +1,221 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮
+ * 所有超时任务共享一个后台线程：任务按到期时间散列到轮槽中，线程每个刻度推进一格并执行到期任务，
+ * 因此调度和取消都是O(1)，且不会为每个超时创建线程或占用ScheduledExecutorService的堆操作。
+ * 到期精度为一个刻度。到期回调在时间轮线程上执行，应当简短且不阻塞。
+ */
+@Slf4j
+public final class TimerWheel implements AutoCloseable {
+
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static volatile TimerWheel shared;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<Task> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * 时间轮线程已推进到的刻度，仅由时间轮线程访问
+     */
+    private long tick;
+
+    /**
+     * @param tickDuration 刻度长度
+     * @param wheelSize 轮槽数量，会向上取整为2的幂
+     * @param threadName 时间轮线程名
+     */
+    public TimerWheel(Duration tickDuration, int wheelSize, String threadName) {
+        this.tickNanos = Math.max(tickDuration.toNanos(), TimeUnit.MILLISECONDS.toNanos(1));
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 获取进程内共享的时间轮
+     */
+    public static TimerWheel shared() {
+        TimerWheel timer = shared;
+        if (timer == null) {
+            synchronized (TimerWheel.class) {
+                timer = shared;
+                if (timer == null) {
+                    timer = new TimerWheel(DEFAULT_TICK, DEFAULT_WHEEL_SIZE, "workflow-timer");
+                    shared = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * 调度一个延迟任务
+     * @param action 到期时执行的回调
+     * @param delay 延迟时间
+     * @return 可用于取消的任务句柄
+     */
+    public Task schedule(Runnable action, Duration delay) {
+        if (closed) {
+            throw new IllegalStateException("Timer wheel has been closed");
+        }
+        Task task = new Task(action, System.nanoTime() + Math.max(delay.toNanos(), 0));
+        pending.add(task);
+        return task;
+    }
+
+    /**
+     * 停止时间轮，未到期的任务不再执行
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (!closed) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos;
+            while ((sleepNanos = tickDeadline - System.nanoTime()) > 0 && !closed) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (closed) {
+                break;
+            }
+            transferPending();
+            wheel[(int) (tick & mask)].expire(tick);
+            tick++;
+        }
+        pending.clear();
+    }
+
+    /**
+     * 把新调度的任务放入对应的轮槽
+     */
+    private void transferPending() {
+        Task task;
+        while ((task = pending.poll()) != null) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            long targetTick = Math.max((task.deadlineNanos - startNanos) / tickNanos, tick);
+            task.targetTick = targetTick;
+            wheel[(int) (targetTick & mask)].add(task);
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public static final class Task {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable action;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long targetTick;
+        private Task prev;
+        private Task next;
+
+        private Task(Runnable action, long deadlineNanos) {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * 取消任务
+         * @return 任务在到期前被取消时返回true
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    action.run();
+                } catch (Throwable e) {
+                    log.warn("Timer task failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 轮槽，双向链表，仅由时间轮线程访问
+     */
+    private static final class Bucket {
+        private Task head;
+        private Task tail;
+
+        void add(Task task) {
+            task.prev = tail;
+            task.next = null;
+            if (tail == null) {
+                head = task;
+            } else {
+                tail.next = task;
+            }
+            tail = task;
+        }
+
+        void expire(long currentTick) {
+            Task task = head;
+            while (task != null) {
+                Task next = task.next;
+                if (task.isCancelled()) {
+                    remove(task);
+                } else if (task.targetTick <= currentTick) {
+                    remove(task);
+                    task.expire();
+                }
+                task = next;
+            }
+        }
+
+        private void remove(Task task) {
+            if (task.prev != null) {
+                task.prev.next = task.next;
+            } else {
+                head = task.next;
+            }
+            if (task.next != null) {
+                task.next.prev = task.prev;
+            } else {
+                tail = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 工作流变量布局
+ * 为工作流中静态声明的变量（节点方法上的@StateVariable）分配固定的槽位下标，
+ * WorkflowState按槽位将这些变量保存在数组中，节点参数按下标读取而不再进行哈希查找。
+ * 每个工作流定义对应一个布局，布局创建后不可变。
+ */
+public final class VariableLayout {
+    private static final VariableLayout EMPTY = new VariableLayout(new String[0]);
+
+    private final String[] names;
+    private final Map<String, Integer> slots;
+
+    private VariableLayout(String[] names) {
+        this.names = names;
+        this.slots = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            slots.put(names[i], i);
+        }
+    }
+
+    /**
+     * 不含任何槽位的布局，所有变量都保存在映射中
+     */
+    public static VariableLayout empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 按变量名创建布局，重复的变量名只分配一个槽位
+     * @param names 声明的变量名
+     * @return 变量布局
+     */
+    public static VariableLayout of(Collection<String> names) {
+        Set<String> unique = new LinkedHashSet<>(names);
+        if (unique.isEmpty()) {
+            return EMPTY;
+        }
+        return new VariableLayout(unique.toArray(new String[0]));
+    }
+
+    /**
+     * 获取变量的槽位
+     * @param name 变量名
+     * @return 槽位下标，未声明的变量返回-1
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * 获取槽位对应的变量名
+     */
+    public String nameAt(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * 槽位数量
+     */
+    public int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,111 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 按槽位保存变量值的线程安全数组
+ * null表示变量不存在。snapshot()复制当前值并开始记录写入的槽位，
+ * applyChanges()只把分支写过的槽位应用回来，语义与SnapshotMap一致。
+ */
+final class VariableSlots {
+    private final AtomicReferenceArray<Object> values;
+
+    /**
+     * 写入过的槽位位图，只有快照需要记录，否则为null
+     */
+    private final AtomicLongArray dirty;
+
+    VariableSlots(int size) {
+        this(new AtomicReferenceArray<>(size), false);
+    }
+
+    private VariableSlots(AtomicReferenceArray<Object> values, boolean trackChanges) {
+        this.values = values;
+        this.dirty = trackChanges && values.length() > 0
+                ? new AtomicLongArray((values.length() + 63) >>> 6)
+                : null;
+    }
+
+    int size() {
+        return values.length();
+    }
+
+    Object get(int slot) {
+        return values.get(slot);
+    }
+
+    Object set(int slot, Object value) {
+        Object previous = values.getAndSet(slot, value);
+        markDirty(slot);
+        return previous;
+    }
+
+    /**
+     * 当前不存在时写入
+     * @return 已存在的值，写入成功时返回null
+     */
+    Object setIfAbsent(int slot, Object value) {
+        if (values.compareAndSet(slot, null, value)) {
+            markDirty(slot);
+            return null;
+        }
+        return values.get(slot);
+    }
+
+    /**
+     * 非空槽位数量
+     */
+    int count() {
+        int count = 0;
+        for (int i = 0; i < values.length(); i++) {
+            if (values.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    VariableSlots snapshot() {
+        int size = values.length();
+        AtomicReferenceArray<Object> copy = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            copy.lazySet(i, values.get(i));
+        }
+        return new VariableSlots(copy, true);
+    }
+
+    void applyChanges(VariableSlots branch) {
+        branch.forEachChange((value, slot) -> set(slot, value));
+    }
+
+    /**
+     * 遍历快照创建以来写入过的槽位，值为null表示变量被删除
+     */
+    void forEachChange(ObjIntConsumer<Object> action) {
+        if (dirty == null) {
+            return;
+        }
+        for (int word = 0; word < dirty.length(); word++) {
+            long bits = dirty.get(word);
+            while (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                action.accept(values.get(slot), slot);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private void markDirty(int slot) {
+        if (dirty == null) {
+            return;
+        }
+        int word = slot >>> 6;
+        long bit = 1L << slot;
+        long bits = dirty.get(word);
+        while ((bits & bit) == 0 && !dirty.compareAndSet(word, bits, bits | bit)) {
+            bits = dirty.get(word);
+        }
+    }
+}
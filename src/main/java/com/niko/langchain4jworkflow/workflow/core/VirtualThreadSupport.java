@@ -0,0 +1,81 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程支持
+ * 项目以Java 17为编译目标，虚拟线程API（JDK 21+）通过方法句柄按需查找，
+ * 运行在较低版本JDK上时返回空，由调用方回退到平台线程池。
+ */
+@Slf4j
+@UtilityClass
+public class VirtualThreadSupport {
+
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle newExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+                    MethodType.methodType(ofVirtualClass));
+            name = lookup.findVirtual(builderClass, "name",
+                    MethodType.methodType(builderClass, String.class, long.class));
+            factory = lookup.findVirtual(builderClass, "factory",
+                    MethodType.methodType(ThreadFactory.class));
+            newExecutor = lookup.findStatic(Executors.class,
+                    "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newExecutor;
+    }
+
+    /**
+     * 当前JVM是否支持虚拟线程
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     * @param threadNamePrefix 线程名前缀
+     * @return 执行器，JVM不支持虚拟线程时返回空
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke();
+            builder = NAME.invoke(builder, threadNamePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+            return Optional.of((ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(threadFactory));
+        } catch (Throwable e) {
+            log.warn("Failed to create virtual thread executor, falling back to platform threads", e);
+            return Optional.empty();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.niko.langchain4jworkflow.workflow.core;
 
+import java.time.Duration;
 import java.util.Optional;
 
 /**
@@ -11,6 +12,14 @@ public interface WorkflowCache {
      */
     void put(String key, Object value);
 
+    /**
+     * 将值存入缓存并指定有效期
+     * 不支持单独有效期的实现使用默认有效期
+     */
+    default void put(String key, Object value, Duration ttl) {
+        put(key, value);
+    }
+
     /**
      * 从缓存中获取值
      */
@@ -25,4 +34,11 @@ public interface WorkflowCache {
      * 清空缓存
      */
     void clear();
+
+    /**
+     * 获取缓存统计信息
+     */
+    default CacheStats getStats() {
+        return CacheStats.builder().build();
+    }
 }
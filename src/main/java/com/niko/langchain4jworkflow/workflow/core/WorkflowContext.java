@@ -4,6 +4,9 @@ import lombok.Builder;
 import lombok.Data;
 import org.springframework.context.ApplicationContext;
 
+import java.time.Duration;
+import java.time.Instant;
+
 /**
  * 工作流上下文
  * 包含工作流执行过程中的上下文信息，如工作流ID、名称和状态等
@@ -31,6 +34,40 @@ public class WorkflowContext {
      */
     private final ApplicationContext applicationContext;
 
+    /**
+     * 执行的取消令牌
+     */
+    private final CancellationToken cancellationToken;
+
+    /**
+     * 执行的截止时间，为空表示不限时
+     */
+    private final Instant deadline;
+
+    /**
+     * 流式节点的监听器，为空时不转发令牌
+     */
+    private final StreamListener streamListener;
+
+    /**
+     * 获取剩余的时间预算
+     * @return 距截止时间的剩余时长，已超时返回Duration.ZERO；未设置截止时间时返回null
+     */
+    public Duration getRemainingBudget() {
+        if (deadline == null) {
+            return null;
+        }
+        Duration remaining = Duration.between(Instant.now(), deadline);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    /**
+     * 执行是否已被取消
+     */
+    public boolean isCancelled() {
+        return cancellationToken != null && cancellationToken.isCancelled();
+    }
+
     /**
      * 获取Bean实例
      * @param type Bean类型
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.Getter;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -13,7 +14,6 @@ import java.util.Map;
  * 描述工作流的完整结构和配置信息
  */
 @Getter
-@Builder
 public class WorkflowDefinition {
     /**
      * 工作流名称
@@ -32,6 +32,7 @@ public class WorkflowDefinition {
     
     /**
      * 起始节点列表
+     * 为null时由依赖关系推导；声明时必须与没有依赖的节点一致，编译时校验
      */
     private final List<String> startNodes;
     
@@ -45,6 +46,35 @@ public class WorkflowDefinition {
      */
     private WorkflowConfig config;
 
+    /**
+     * 编译后的执行计划
+     */
+    private volatile ExecutionPlan executionPlan;
+
+    /**
+     * 变量布局，为节点声明的输入变量分配槽位
+     */
+    private volatile VariableLayout variableLayout;
+
+    /**
+     * 构建器只包含声明的字段，执行计划和变量布局由compile()和扫描器生成
+     */
+    @Builder
+    public WorkflowDefinition(
+            String name,
+            String description,
+            Map<String, Node> nodes,
+            List<String> startNodes,
+            Map<String, Object> metadata,
+            WorkflowConfig config) {
+        this.name = name;
+        this.description = description;
+        this.nodes = nodes;
+        this.startNodes = startNodes;
+        this.metadata = metadata;
+        this.config = config;
+    }
+
     /**
      * 设置工作流配置
      * @param config 工作流配置
@@ -53,6 +83,59 @@ public class WorkflowDefinition {
         this.config = config;
     }
 
+    /**
+     * 编译执行计划
+     * 通常在注册时调用，依赖无效或存在循环依赖时抛出异常
+     * @return 当前工作流定义
+     */
+    public WorkflowDefinition compile() {
+        this.executionPlan = ExecutionPlan.compile(this);
+        return this;
+    }
+
+    /**
+     * 获取执行计划，未编译时按需编译
+     * @return 执行计划
+     */
+    public ExecutionPlan getExecutionPlan() {
+        ExecutionPlan plan = executionPlan;
+        if (plan == null) {
+            plan = ExecutionPlan.compile(this);
+            executionPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * 设置变量布局
+     * 扫描器在编译节点调用器前确定布局，使参数绑定与执行状态使用同一布局
+     * @param variableLayout 变量布局
+     */
+    public void setVariableLayout(VariableLayout variableLayout) {
+        this.variableLayout = variableLayout;
+    }
+
+    /**
+     * 获取变量布局，未设置时按节点声明的输入变量生成
+     * @return 变量布局
+     */
+    public VariableLayout getVariableLayout() {
+        VariableLayout layout = variableLayout;
+        if (layout == null) {
+            List<String> names = new ArrayList<>();
+            if (nodes != null) {
+                nodes.values().forEach(node -> {
+                    if (node.getInputs() != null) {
+                        names.addAll(node.getInputs().keySet());
+                    }
+                });
+            }
+            layout = VariableLayout.of(names);
+            variableLayout = layout;
+        }
+        return layout;
+    }
+
     /**
      * 工作流配置信息
      */
@@ -94,6 +177,7 @@ public class WorkflowDefinition {
             private Duration delay;
             private double multiplier;
             private List<Class<? extends Throwable>> retryableExceptions;
+            private List<Class<? extends Throwable>> nonRetryableExceptions;
         }
 
         /**
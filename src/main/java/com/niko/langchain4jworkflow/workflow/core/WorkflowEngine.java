@@ -19,6 +19,21 @@ public interface WorkflowEngine {
             String workflowName,
             Map<String, Object> inputs);
 
+    /**
+     * 按指定选项执行工作流
+     *
+     * @param workflowName 工作流名称
+     * @param inputs 工作流输入参数
+     * @param options 执行选项
+     * @return 包含工作流执行状态的Future对象
+     */
+    default CompletableFuture<WorkflowState> execute(
+            String workflowName,
+            Map<String, Object> inputs,
+            ExecutionOptions options) {
+        return execute(workflowName, inputs);
+    }
+
     /**
      * 停止工作流执行
      *
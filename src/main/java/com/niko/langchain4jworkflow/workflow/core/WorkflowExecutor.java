@@ -8,10 +8,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationContext;
 
-import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Builder
@@ -29,7 +28,8 @@ public class WorkflowExecutor {
                 .orElseThrow(() -> new WorkflowNotFoundException(workflowName));
 
         // 创建工作流状态
-        WorkflowState state = new WorkflowState();
+        WorkflowState state = new WorkflowState(
+                UUID.randomUUID().toString(), workflow.getVariableLayout());
         state.getVariables().putAll(inputs);
 
         // 创建工作流上下文
@@ -52,13 +52,15 @@ public class WorkflowExecutor {
             // 验证工作流配置
             validateWorkflow(workflow);
 
-            // 执行开始节点
-            List<CompletableFuture<WorkflowState>> futures =
-                    executeStartNodes(workflow, state, context);
-
-            // 等待所有节点执行完成
-            return CompletableFuture.allOf(
-                            futures.toArray(new CompletableFuture[0]))
+            // 由调度器按入度计数驱动节点执行
+            ExecutionPlan plan = workflow.getExecutionPlan();
+            return new DagScheduler(plan, state,
+                    nodeId -> nodeExecutor.execute(plan.node(nodeId), state, context),
+                    (joinId, upstreamId) -> JoinNodeExecutor.accumulate(
+                            plan.node(joinId), plan.nameOf(upstreamId), state, context),
+                    null,
+                    0)
+                    .start()
                     .thenApply(v -> {
                         state.markAsCompleted();
                         return state;
@@ -78,26 +80,15 @@ public class WorkflowExecutor {
     }
 
     private void validateWorkflow(WorkflowDefinition workflow) {
-        if (workflow.getStartNodes() == null || workflow.getStartNodes().isEmpty()) {
+        // 依赖与循环校验在编译执行计划时完成
+        if (workflow.getExecutionPlan().startNodeCount() == 0) {
             throw new InvalidWorkflowException("No start nodes defined");
         }
         validateNodes(workflow);
     }
 
     private void validateNodes(WorkflowDefinition workflow) {
-        Map<String, Node> nodes = workflow.getNodes();
-        for (Node node : nodes.values()) {
-            // 验证节点依赖
-            if (node.getDependencies() != null) {
-                for (String dep : node.getDependencies()) {
-                    if (!nodes.containsKey(dep)) {
-                        throw new InvalidWorkflowException(
-                                "Node " + node.getName() +
-                                        " depends on non-existent node: " + dep);
-                    }
-                }
-            }
-
+        for (Node node : workflow.getNodes().values()) {
             // 验证节点配置
             validateNodeConfig(node);
         }
@@ -118,70 +109,4 @@ public class WorkflowExecutor {
             }
         }
     }
-
-    private List<CompletableFuture<WorkflowState>> executeStartNodes(
-            WorkflowDefinition workflow,
-            WorkflowState state,
-            WorkflowContext context) {
-
-        return workflow.getStartNodes().stream()
-                .map(nodeName -> {
-                    Node node = workflow.getNodes().get(nodeName);
-                    return executeNode(node, state, context);
-                })
-                .collect(Collectors.toList());
-    }
-
-    private CompletableFuture<WorkflowState> executeNode(
-            Node node,
-            WorkflowState state,
-            WorkflowContext context) {
-
-        // 检查节点是否可以执行
-        if (!node.canExecute(state)) {
-            return CompletableFuture.completedFuture(state);
-        }
-
-        return nodeExecutor.execute(node, state, context)
-                .thenCompose(newState ->
-                        executeNextNodes(node, newState, context));
-    }
-
-    private CompletableFuture<WorkflowState> executeNextNodes(
-            Node currentNode,
-            WorkflowState state,
-            WorkflowContext context) {
-
-        WorkflowDefinition workflow = registry
-                .get(context.getWorkflowName())
-                .orElseThrow(() -> new WorkflowNotFoundException(
-                        context.getWorkflowName()));
-
-        // 查找依赖于当前节点的所有节点
-        List<Node> nextNodes = findNextNodes(currentNode, workflow);
-
-        if (nextNodes.isEmpty()) {
-            return CompletableFuture.completedFuture(state);
-        }
-
-        // 并行执行所有后续节点
-        List<CompletableFuture<WorkflowState>> futures = nextNodes.stream()
-                .map(node -> executeNode(node, state, context))
-                .collect(Collectors.toList());
-
-        return CompletableFuture.allOf(
-                        futures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> futures.get(futures.size() - 1).join());
-    }
-
-    private List<Node> findNextNodes(
-            Node currentNode,
-            WorkflowDefinition workflow) {
-
-        return workflow.getNodes().values().stream()
-                .filter(node ->
-                        node.getDependencies() != null &&
-                                node.getDependencies().contains(currentNode.getName()))
-                .collect(Collectors.toList());
-    }
-}
\ No newline at end of file
+}
@@ -1,20 +1,33 @@
 package com.niko.langchain4jworkflow.workflow.core;
 
+import com.niko.langchain4jworkflow.workflow.annotation.AcceptsPartial;
 import com.niko.langchain4jworkflow.workflow.annotation.Async;
+import com.niko.langchain4jworkflow.workflow.annotation.Bulkhead;
+import com.niko.langchain4jworkflow.workflow.annotation.Cache;
+import com.niko.langchain4jworkflow.workflow.annotation.Conditional;
+import com.niko.langchain4jworkflow.workflow.annotation.Join;
 import com.niko.langchain4jworkflow.workflow.annotation.Retry;
 import com.niko.langchain4jworkflow.workflow.annotation.StateVariable;
+import com.niko.langchain4jworkflow.workflow.annotation.Streaming;
 import com.niko.langchain4jworkflow.workflow.annotation.Workflow;
 import com.niko.langchain4jworkflow.workflow.annotation.Node;
+import com.niko.langchain4jworkflow.workflow.annotation.Parallel;
+import com.niko.langchain4jworkflow.workflow.annotation.ResponseCache;
+import com.niko.langchain4jworkflow.workflow.annotation.SemanticCache;
 import com.niko.langchain4jworkflow.workflow.annotation.Timeout;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -24,6 +37,15 @@ public class WorkflowScanner {
     private final WorkflowRegistry registry;
 
     public Optional<WorkflowDefinition> scanWorkflow(Class<?> clazz) {
+        return scanWorkflow(clazz, null);
+    }
+
+    /**
+     * 扫描工作流并绑定节点的执行目标
+     * @param clazz 工作流类
+     * @param target 节点方法的执行目标，通常为工作流Bean
+     */
+    public Optional<WorkflowDefinition> scanWorkflow(Class<?> clazz, Object target) {
         Workflow workflowAnn = AnnotationUtils.findAnnotation(
                 clazz, Workflow.class);
 
@@ -34,11 +56,14 @@ public class WorkflowScanner {
         try {
             // 创建图构建器
             GraphBuilder builder = new GraphBuilder();
+            // 为所有节点声明的输入变量分配槽位
+            VariableLayout layout = scanVariableLayout(clazz);
             // 扫描所有节点
-            scanNodes(clazz, builder);
+            scanNodes(clazz, target, layout, builder);
 
             // 构建工作流定义
             WorkflowDefinition workflow = builder.build(getWorkflowName(workflowAnn, clazz));
+            workflow.setVariableLayout(layout);
 
             // 设置工作流配置
             workflow.setConfig(scanWorkflowConfig(clazz));
@@ -63,25 +88,49 @@ public class WorkflowScanner {
         return name;
     }
 
-    private void scanNodes(Class<?> clazz, GraphBuilder builder) {
+    private VariableLayout scanVariableLayout(Class<?> clazz) {
+        List<String> names = new ArrayList<>();
+        ReflectionUtils.doWithMethods(clazz, method -> {
+            if (AnnotationUtils.findAnnotation(method, Node.class) != null) {
+                names.addAll(scanInputs(method).keySet());
+            }
+        });
+        return VariableLayout.of(names);
+    }
+
+    private void scanNodes(Class<?> clazz, Object target, VariableLayout layout, GraphBuilder builder) {
         ReflectionUtils.doWithMethods(clazz, method -> {
             Node nodeAnn = AnnotationUtils.findAnnotation(
                     method, Node.class);
             if (nodeAnn != null) {
-                com.niko.langchain4jworkflow.workflow.core.Node node = buildNode(method, nodeAnn);
+                com.niko.langchain4jworkflow.workflow.core.Node node = buildNode(method, nodeAnn, target, layout);
                 builder.addNode(node);
             }
         });
     }
 
-    private com.niko.langchain4jworkflow.workflow.core.Node buildNode(Method method, Node nodeAnn) {
+    private com.niko.langchain4jworkflow.workflow.core.Node buildNode(
+            Method method,
+            Node nodeAnn,
+            Object target,
+            VariableLayout layout) {
+        com.niko.langchain4jworkflow.workflow.core.Node.NodeConfig config = buildNodeConfig(method);
+        Map<String, Class<?>> inputs = scanInputs(method);
+        if (nodeAnn.type() == NodeType.AI) {
+            // 提示词模板在扫描时解析一次，执行时按片段顺序渲染
+            config.setPromptTemplate(PromptTemplate.forNode(config.getSystemPrompt(), inputs.keySet()));
+        }
         return com.niko.langchain4jworkflow.workflow.core.Node.builder()
                 .name(getNodeName(nodeAnn, method))
                 .type(nodeAnn.type())
                 .method(method)
+                .target(target)
+                // 参数绑定计划和调用句柄在扫描时编译一次，执行时不再反射
+                .invoker(NodeInvoker.compile(method, layout))
+                .condition(getCondition(method))
                 .dependencies(Arrays.asList(nodeAnn.dependsOn()))
-                .config(buildNodeConfig(method))
-                .inputs(scanInputs(method))
+                .config(config)
+                .inputs(inputs)
                 .outputs(scanOutputs(method))
                 .build();
     }
@@ -92,29 +141,107 @@ public class WorkflowScanner {
     }
 
     private com.niko.langchain4jworkflow.workflow.core.Node.NodeConfig buildNodeConfig(Method method) {
-        return com.niko.langchain4jworkflow.workflow.core.Node.NodeConfig.builder()
-                .timeout(getTimeout(method))
-                .retryConfig(getRetryConfig(method))
-                .async(isAsync(method))
-                .systemPrompt(getSystemPrompt(method))
-                .build();
+        com.niko.langchain4jworkflow.workflow.core.Node.NodeConfig.NodeConfigBuilder builder =
+                com.niko.langchain4jworkflow.workflow.core.Node.NodeConfig.builder()
+                        .timeout(getTimeout(method))
+                        .retryConfig(getRetryConfig(method))
+                        .cacheConfig(getCacheConfig(method))
+                        .async(isAsync(method))
+                        .systemPrompt(getSystemPrompt(method))
+                        .properties(getProperties(method))
+                        .acceptsPartial(AnnotationUtils.findAnnotation(method, AcceptsPartial.class) != null);
+
+        Parallel parallelAnn = AnnotationUtils.findAnnotation(method, Parallel.class);
+        if (parallelAnn != null) {
+            builder.items(parallelAnn.items())
+                    .itemVariable(parallelAnn.item())
+                    .resultVariable(parallelAnn.output().isEmpty() ? null : parallelAnn.output())
+                    .maxConcurrency(parallelAnn.maxConcurrency())
+                    .waitForAll(parallelAnn.waitForAll())
+                    .quorum(parallelAnn.quorum());
+        }
+        Join joinAnn = AnnotationUtils.findAnnotation(method, Join.class);
+        if (joinAnn != null) {
+            builder.resultVariable(joinAnn.output().isEmpty() ? null : joinAnn.output())
+                    .completeWhen(joinAnn.completeWhen().isEmpty()
+                            ? null
+                            : CompiledExpression.parse(joinAnn.completeWhen()));
+        }
+        Streaming streamingAnn = AnnotationUtils.findAnnotation(method, Streaming.class);
+        if (streamingAnn != null) {
+            builder.streaming(true)
+                    .resultVariable(streamingAnn.output().isEmpty() ? null : streamingAnn.output());
+        }
+        return builder.build();
     }
 
     private com.niko.langchain4jworkflow.workflow.core.Node.RetryConfig getRetryConfig(Method method) {
+        // 方法上未声明时使用工作流类上的@Retry
         Retry retryAnn = AnnotationUtils.findAnnotation(
                 method, Retry.class);
+        if (retryAnn == null) {
+            retryAnn = AnnotationUtils.findAnnotation(method.getDeclaringClass(), Retry.class);
+        }
         if (retryAnn == null) {
             return null;
         }
 
         return com.niko.langchain4jworkflow.workflow.core.Node.RetryConfig.builder()
                 .maxAttempts(retryAnn.maxAttempts())
-                .delay(Duration.ofMillis(retryAnn.initialDelay()))
+                .delay(Duration.ofMillis(retryAnn.timeUnit().toMillis(retryAnn.initialDelay())))
                 .multiplier(retryAnn.multiplier())
                 .retryableExceptions(Arrays.asList(retryAnn.retryFor()))
+                .nonRetryableExceptions(Arrays.asList(retryAnn.noRetryFor()))
+                .build();
+    }
+
+    private com.niko.langchain4jworkflow.workflow.core.Node.CacheConfig getCacheConfig(Method method) {
+        // 方法上未声明时使用工作流类上的@Cache
+        Cache cacheAnn = AnnotationUtils.findAnnotation(method, Cache.class);
+        if (cacheAnn == null) {
+            cacheAnn = AnnotationUtils.findAnnotation(method.getDeclaringClass(), Cache.class);
+        }
+        if (cacheAnn == null || !cacheAnn.enabled()) {
+            return null;
+        }
+
+        return com.niko.langchain4jworkflow.workflow.core.Node.CacheConfig.builder()
+                .key(cacheAnn.key().isEmpty() ? null : CompiledExpression.parse(cacheAnn.key()))
+                .ttl(DurationStyle.detectAndParse(cacheAnn.ttl()))
                 .build();
     }
 
+    private CompiledExpression getCondition(Method method) {
+        Conditional conditionalAnn = AnnotationUtils.findAnnotation(method, Conditional.class);
+        return conditionalAnn != null ? CompiledExpression.parse(conditionalAnn.condition()) : null;
+    }
+
+    private Map<String, Object> getProperties(Method method) {
+        // 方法上未声明时使用工作流类上的@Bulkhead和@ResponseCache
+        Bulkhead bulkheadAnn = AnnotationUtils.findAnnotation(method, Bulkhead.class);
+        if (bulkheadAnn == null) {
+            bulkheadAnn = AnnotationUtils.findAnnotation(method.getDeclaringClass(), Bulkhead.class);
+        }
+        Map<String, Object> properties = new HashMap<>();
+        if (bulkheadAnn != null) {
+            properties.put(ExecutorPools.POOL_PROPERTY, bulkheadAnn.value());
+        }
+        ResponseCache responseCacheAnn = AnnotationUtils.findAnnotation(method, ResponseCache.class);
+        if (responseCacheAnn == null) {
+            responseCacheAnn = AnnotationUtils.findAnnotation(method.getDeclaringClass(), ResponseCache.class);
+        }
+        if (responseCacheAnn != null) {
+            properties.put(LlmResponseCache.ENABLED_PROPERTY, responseCacheAnn.enabled());
+            properties.put(LlmResponseCache.ALLOW_SAMPLING_PROPERTY, responseCacheAnn.allowSampling());
+        }
+        SemanticCache semanticCacheAnn = AnnotationUtils.findAnnotation(method, SemanticCache.class);
+        if (semanticCacheAnn != null) {
+            properties.put(SemanticResponseCache.THRESHOLD_PROPERTY, semanticCacheAnn.threshold());
+            properties.put(SemanticResponseCache.ALLOW_SAMPLING_PROPERTY, semanticCacheAnn.allowSampling());
+        }
+        return properties;
+    }
+
     private boolean isAsync(Method method) {
         return AnnotationUtils.findAnnotation(method, Async.class) != null;
     }
@@ -125,7 +252,8 @@ public class WorkflowScanner {
     }
 
     private Map<String, Class<?>> scanInputs(Method method) {
-        Map<String, Class<?>> inputs = new HashMap<>();
+        // 保持参数声明顺序，AI节点按此顺序列出输入变量
+        Map<String, Class<?>> inputs = new LinkedHashMap<>();
         Arrays.stream(method.getParameters())
                 .forEach(param -> {
                     StateVariable stateVar =
@@ -175,15 +303,23 @@ public class WorkflowScanner {
 
         return WorkflowDefinition.WorkflowConfig.RetryConfig.builder()
                 .maxAttempts(retryAnn.maxAttempts())
-                .delay(Duration.ofMillis(retryAnn.initialDelay()))
+                .delay(Duration.ofMillis(retryAnn.timeUnit().toMillis(retryAnn.initialDelay())))
                 .multiplier(retryAnn.multiplier())
                 .retryableExceptions(Arrays.asList(retryAnn.retryFor()))
+                .nonRetryableExceptions(Arrays.asList(retryAnn.noRetryFor()))
                 .build();
     }
 
     private WorkflowDefinition.WorkflowConfig.CacheConfig getWorkflowCacheConfig(Class<?> clazz) {
-        // TODO: 实现缓存配置扫描
-        return null;
+        Cache cacheAnn = AnnotationUtils.findAnnotation(clazz, Cache.class);
+        if (cacheAnn == null) {
+            return null;
+        }
+
+        return WorkflowDefinition.WorkflowConfig.CacheConfig.builder()
+                .enabled(cacheAnn.enabled())
+                .ttl(DurationStyle.detectAndParse(cacheAnn.ttl()))
+                .build();
     }
 
     private WorkflowDefinition.WorkflowConfig.MonitorConfig getWorkflowMonitorConfig(Class<?> clazz) {
@@ -1,14 +1,24 @@
 package com.niko.langchain4jworkflow.workflow.core;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * 工作流状态
@@ -22,14 +32,35 @@ public class WorkflowState implements Cloneable {
     private final String workflowId;
 
     /**
-     * 工作流变量
+     * 变量布局，声明过的变量按槽位保存在slots中
      */
-    private final Map<String, Object> variables;
+    private final VariableLayout layout;
 
     /**
-     * 执行历史记录
+     * 声明变量的槽位数组，clone()时按槽位复制
      */
-    private final Map<String, NodeExecutionInfo> executionHistory;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final VariableSlots slots;
+
+    /**
+     * 未声明的动态变量，clone()时以O(1)快照共享
+     */
+    private final SnapshotMap<String, Object> variables;
+
+    /**
+     * 合并槽位和动态变量的映射视图
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<String, Object> variablesView;
+
+    /**
+     * 执行历史记录，clone()时以O(1)快照共享
+     */
+    private final SnapshotMap<String, NodeExecutionInfo> executionHistory;
 
     /**
      * 工作流状态
@@ -64,6 +95,11 @@ public class WorkflowState implements Cloneable {
         private final Instant startTime;
         private final Instant endTime;
 
+        /**
+         * 节点是否被跳过（条件不满足或所有前驱均被跳过）
+         */
+        private final boolean skipped;
+
         /**
          * 获取执行持续时间
          */
@@ -85,11 +121,34 @@ public class WorkflowState implements Cloneable {
      * 带ID的构造函数
      */
     public WorkflowState(String workflowId) {
+        this(workflowId, VariableLayout.empty());
+    }
+
+    /**
+     * 按工作流的变量布局创建状态
+     * @param workflowId 工作流ID
+     * @param layout 变量布局
+     */
+    public WorkflowState(String workflowId, VariableLayout layout) {
+        this(workflowId, layout, new VariableSlots(layout.size()),
+                new SnapshotMap<>(), new SnapshotMap<>(), Instant.now());
+    }
+
+    private WorkflowState(
+            String workflowId,
+            VariableLayout layout,
+            VariableSlots slots,
+            SnapshotMap<String, Object> variables,
+            SnapshotMap<String, NodeExecutionInfo> executionHistory,
+            Instant startTime) {
         this.workflowId = workflowId;
-        this.variables = new ConcurrentHashMap<>();
-        this.executionHistory = new ConcurrentHashMap<>();
+        this.layout = layout;
+        this.slots = slots;
+        this.variables = variables;
+        this.variablesView = layout.size() == 0 ? variables : new VariablesView();
+        this.executionHistory = executionHistory;
         this.status = WorkflowStatus.RUNNING;
-        this.startTime = Instant.now();
+        this.startTime = startTime;
     }
 
     /**
@@ -98,7 +157,23 @@ public class WorkflowState implements Cloneable {
      * @return 变量值
      */
     public Object getVariable(String key) {
-        return variables.get(key);
+        int slot = layout.slotOf(key);
+        return slot >= 0 ? slots.get(slot) : variables.get(key);
+    }
+
+    /**
+     * 按槽位获取变量值
+     * 布局与当前状态一致时直接读取槽位，否则按变量名查找
+     * @param layout 调用方解析槽位时使用的布局
+     * @param slot 槽位下标，-1表示未声明
+     * @param key 变量名
+     * @return 变量值
+     */
+    public Object getVariable(VariableLayout layout, int slot, String key) {
+        if (slot >= 0 && layout == this.layout) {
+            return slots.get(slot);
+        }
+        return getVariable(key);
     }
 
     /**
@@ -108,7 +183,7 @@ public class WorkflowState implements Cloneable {
      * @return 变量值
      */
     public <T> T getVariable(String key, Class<T> type) {
-        Object value = variables.get(key);
+        Object value = getVariable(key);
         if (value != null && type.isInstance(value)) {
             return type.cast(value);
         }
@@ -121,7 +196,7 @@ public class WorkflowState implements Cloneable {
      * @param value 变量值
      */
     public void setVariable(String key, Object value) {
-        variables.put(key, value);
+        variablesView.put(key, value);
     }
 
     /**
@@ -130,7 +205,7 @@ public class WorkflowState implements Cloneable {
      * @return 是否存在
      */
     public boolean hasVariable(String key) {
-        return variables.containsKey(key);
+        return getVariable(key) != null;
     }
 
     /**
@@ -138,7 +213,15 @@ public class WorkflowState implements Cloneable {
      * @param key 变量名
      */
     public void removeVariable(String key) {
-        variables.remove(key);
+        variablesView.remove(key);
+    }
+
+    /**
+     * 获取全部变量
+     * @return 槽位变量与动态变量的可写映射视图
+     */
+    public Map<String, Object> getVariables() {
+        return variablesView;
     }
 
     /**
@@ -158,6 +241,15 @@ public class WorkflowState implements Cloneable {
         this.endTime = Instant.now();
     }
 
+    /**
+     * 标记工作流为取消状态
+     */
+    public void markAsCancelled(String reason) {
+        this.status = WorkflowStatus.CANCELLED;
+        this.errorMessage = reason;
+        this.endTime = Instant.now();
+    }
+
     /**
      * 检查节点是否已完成
      */
@@ -167,13 +259,15 @@ public class WorkflowState implements Cloneable {
 
     /**
      * 记录节点开始执行
+     * 重试时沿用已有记录并递增尝试次数
      */
     public void recordNodeStart(String nodeName) {
+        NodeExecutionInfo existing = executionHistory.get(nodeName);
         NodeExecutionInfo info = NodeExecutionInfo.builder()
                 .nodeName(nodeName)
-                .startTime(Instant.now())
-                .attempts(1)
-                .outputs(new HashMap<>())
+                .startTime(existing != null ? existing.getStartTime() : Instant.now())
+                .attempts(existing != null ? existing.getAttempts() + 1 : 1)
+                .outputs(Map.of())
                 .build();
         executionHistory.put(nodeName, info);
     }
@@ -195,6 +289,33 @@ public class WorkflowState implements Cloneable {
         }
     }
 
+    /**
+     * 记录节点被跳过
+     * @param nodeName 节点名称
+     * @param outputs 节点输出
+     */
+    public void recordNodeSkipped(String nodeName, Map<String, Object> outputs) {
+        NodeExecutionInfo existing = executionHistory.get(nodeName);
+        Instant now = Instant.now();
+        NodeExecutionInfo skipped = NodeExecutionInfo.builder()
+                .nodeName(nodeName)
+                .outputs(outputs)
+                .attempts(existing != null ? existing.getAttempts() : 0)
+                .startTime(existing != null ? existing.getStartTime() : now)
+                .endTime(now)
+                .skipped(true)
+                .build();
+        executionHistory.put(nodeName, skipped);
+    }
+
+    /**
+     * 检查节点是否被跳过
+     */
+    public boolean isNodeSkipped(String nodeName) {
+        NodeExecutionInfo info = executionHistory.get(nodeName);
+        return info != null && info.isSkipped();
+    }
+
     /**
      * 记录节点执行错误
      */
@@ -204,7 +325,7 @@ public class WorkflowState implements Cloneable {
             NodeExecutionInfo updated = NodeExecutionInfo.builder()
                     .nodeName(nodeName)
                     .outputs(existing.getOutputs())
-                    .attempts(existing.getAttempts() + 1)
+                    .attempts(existing.getAttempts())
                     .error(error.getMessage())
                     .startTime(existing.getStartTime())
                     .endTime(Instant.now())
@@ -222,14 +343,156 @@ public class WorkflowState implements Cloneable {
             Duration.between(startTime, Instant.now());
     }
 
+    /**
+     * 合并分支状态
+     * 只应用分支自clone()以来写入的变量和执行记录，未被分支修改的数据不会被复制
+     * @param branch 由clone()创建的分支状态
+     */
+    public void merge(WorkflowState branch) {
+        if (branch == null || branch == this) {
+            return;
+        }
+        if (branch.layout == layout) {
+            slots.applyChanges(branch.slots);
+        } else {
+            branch.slots.forEachChange((value, slot) ->
+                    mergeVariable(branch.layout.nameAt(slot), value));
+        }
+        variables.applyChanges(branch.variables);
+        executionHistory.applyChanges(branch.executionHistory);
+    }
+
+    /**
+     * 遍历分支自clone()以来写入的变量
+     */
+    public void forEachChangedVariable(BiConsumer<String, Object> action) {
+        slots.forEachChange((value, slot) -> {
+            if (value != null) {
+                action.accept(layout.nameAt(slot), value);
+            }
+        });
+        variables.forEachChange(action);
+    }
+
+    private void mergeVariable(String key, Object value) {
+        if (value != null) {
+            setVariable(key, value);
+        } else {
+            removeVariable(key);
+        }
+    }
+
+    /**
+     * 创建分支状态
+     * 变量和执行历史以快照方式共享，成本与状态大小无关；分支上的写入通过merge()合并回来
+     */
     @Override
     public WorkflowState clone() {
-        WorkflowState cloned = new WorkflowState(this.workflowId);
-        cloned.variables.putAll(this.variables);
-        cloned.executionHistory.putAll(this.executionHistory);
+        WorkflowState cloned = new WorkflowState(
+                this.workflowId,
+                this.layout,
+                this.slots.snapshot(),
+                this.variables.snapshot(),
+                this.executionHistory.snapshot(),
+                this.startTime);
         cloned.status = this.status;
         cloned.errorMessage = this.errorMessage;
         cloned.endTime = this.endTime;
         return cloned;
     }
-}
\ No newline at end of file
+
+    /**
+     * 变量映射视图，声明的变量路由到槽位，其余路由到动态映射
+     */
+    private final class VariablesView extends AbstractMap<String, Object> {
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String name ? getVariable(name) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            int slot = layout.slotOf(key);
+            if (slot < 0) {
+                return variables.put(key, value);
+            }
+            // 与动态映射保持一致，不接受null值
+            return slots.set(slot, Objects.requireNonNull(value, "value"));
+        }
+
+        @Override
+        public Object putIfAbsent(String key, Object value) {
+            int slot = layout.slotOf(key);
+            if (slot < 0) {
+                return variables.putIfAbsent(key, value);
+            }
+            return slots.setIfAbsent(slot, Objects.requireNonNull(value, "value"));
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (!(key instanceof String name)) {
+                return null;
+            }
+            int slot = layout.slotOf(name);
+            return slot >= 0 ? slots.set(slot, null) : variables.remove(name);
+        }
+
+        @Override
+        public int size() {
+            return slots.count() + variables.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    List<Entry<String, Object>> declared = new ArrayList<>(slots.size());
+                    for (int i = 0; i < slots.size(); i++) {
+                        Object value = slots.get(i);
+                        if (value != null) {
+                            declared.add(new SimpleImmutableEntry<>(layout.nameAt(i), value));
+                        }
+                    }
+                    Iterator<Entry<String, Object>> dynamic = variables.entrySet().iterator();
+                    Iterator<Entry<String, Object>> fixed = declared.iterator();
+                    return new Iterator<>() {
+                        private Entry<String, Object> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return fixed.hasNext() || dynamic.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            last = fixed.hasNext() ? fixed.next() : dynamic.next();
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            VariablesView.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return VariablesView.this.size();
+                }
+            };
+        }
+    }
+}
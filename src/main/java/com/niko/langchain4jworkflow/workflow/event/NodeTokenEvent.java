@@ -0,0 +1,42 @@
+package com.niko.langchain4jworkflow.workflow.event;
+
+import lombok.Getter;
+
+/**
+ * 节点令牌事件
+ * 流式AI节点每生成一个令牌时触发
+ */
+@Getter
+public class NodeTokenEvent extends WorkflowEvent {
+    /**
+     * 节点名称
+     */
+    private final String nodeName;
+
+    /**
+     * 令牌文本
+     */
+    private final String token;
+
+    /**
+     * 令牌序号，从0开始
+     */
+    private final int index;
+
+    /**
+     * 构造函数
+     * @param source 事件源对象
+     * @param workflowName 工作流名称
+     * @param executionId 执行ID
+     * @param nodeName 节点名称
+     * @param token 令牌文本
+     * @param index 令牌序号
+     */
+    public NodeTokenEvent(Object source, String workflowName, String executionId,
+                          String nodeName, String token, int index) {
+        super(source, workflowName, executionId);
+        this.nodeName = nodeName;
+        this.token = token;
+        this.index = index;
+    }
+}
@@ -14,6 +14,11 @@ public class WorkflowStartEvent extends WorkflowEvent {
      */
     private final Map<String, Object> inputs;
 
+    /**
+     * 工作流是否包含@Streaming节点
+     */
+    private final boolean streaming;
+
     /**
      * 构造函数
      * @param source 事件源对象
@@ -22,8 +27,22 @@ public class WorkflowStartEvent extends WorkflowEvent {
      * @param inputs 输入参数
      */
     public WorkflowStartEvent(Object source, String workflowName, String executionId, Map<String, Object> inputs) {
+        this(source, workflowName, executionId, inputs, false);
+    }
+
+    /**
+     * 构造函数
+     * @param source 事件源对象
+     * @param workflowName 工作流名称
+     * @param executionId 执行ID
+     * @param inputs 输入参数
+     * @param streaming 工作流是否包含@Streaming节点
+     */
+    public WorkflowStartEvent(Object source, String workflowName, String executionId,
+                              Map<String, Object> inputs, boolean streaming) {
         super(source, workflowName, executionId);
         this.inputs = inputs;
+        this.streaming = streaming;
     }
 }
 
@@ -0,0 +1,33 @@
+package com.niko.langchain4jworkflow.workflow.exceptions;
+
+import java.time.Duration;
+
+/**
+ * 准入拒绝异常
+ * 当并发执行数和等待队列均已达到上限时抛出此异常，调用方应在retryAfter之后重试
+ */
+public class AdmissionRejectedException extends WorkflowException {
+
+    /**
+     * 建议的重试等待时间
+     */
+    private final Duration retryAfter;
+
+    /**
+     * 构造函数
+     * @param workflowName 工作流名称
+     * @param retryAfter 建议的重试等待时间
+     */
+    public AdmissionRejectedException(String workflowName, Duration retryAfter) {
+        super(String.format("Workflow '%s' rejected: execution capacity exhausted", workflowName));
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * 获取建议的重试等待时间
+     * @return 重试等待时间
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -2,6 +2,8 @@ package com.niko.langchain4jworkflow.workflow.metrics;
 
 import com.niko.langchain4jworkflow.workflow.model.MetricsResponse;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 public interface MetricsRegistry {
     void incrementCounter(String name, String... tags);
@@ -15,4 +17,23 @@ public interface MetricsRegistry {
     void recordTime(String name, long timeInMillis, String... tags);
     
     MetricsResponse collectMetrics();
+
+    /**
+     * 查询计时器的平均耗时
+     * @param name 指标名称
+     * @param tags 标签
+     * @return 平均耗时，无数据时返回空
+     */
+    default Optional<Duration> getMeanDuration(String name, String... tags) {
+        return Optional.empty();
+    }
+
+    /**
+     * 注册按需采样的仪表指标
+     * @param name 指标名称
+     * @param supplier 采样函数
+     * @param tags 标签
+     */
+    default void registerGauge(String name, Supplier<Number> supplier, String... tags) {
+    }
 }
@@ -12,6 +12,8 @@ import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Component
 @RequiredArgsConstructor
@@ -40,6 +42,13 @@ public class MicrometerMetricsRegistry implements MetricsRegistry {
         registry.gauge(PREFIX + name, value);
     }
 
+    @Override
+    public void registerGauge(String name, Supplier<Number> supplier, String... tags) {
+        Gauge.builder(PREFIX + name, supplier)
+                .tags(tags)
+                .register(registry);
+    }
+
     @Override
     public void recordWorkflowExecution(String workflowName, Duration duration, boolean success) {
         String status = success ? "success" : "failure";
@@ -58,6 +67,15 @@ public class MicrometerMetricsRegistry implements MetricsRegistry {
         timer.record(timeInMillis, TimeUnit.MILLISECONDS);
     }
 
+    @Override
+    public Optional<Duration> getMeanDuration(String name, String... tags) {
+        Timer timer = registry.find(PREFIX + name).tags(tags).timer();
+        if (timer == null || timer.count() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos((long) timer.mean(TimeUnit.NANOSECONDS)));
+    }
+
     @Override
     public MetricsResponse collectMetrics() {
         Map<String, Long> counters = new HashMap<>();
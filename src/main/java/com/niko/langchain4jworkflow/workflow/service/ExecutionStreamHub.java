@@ -0,0 +1,235 @@
+package com.niko.langchain4jworkflow.workflow.service;
+
+import com.niko.langchain4jworkflow.workflow.event.NodeCompleteEvent;
+import com.niko.langchain4jworkflow.workflow.event.NodeErrorEvent;
+import com.niko.langchain4jworkflow.workflow.event.NodeTokenEvent;
+import com.niko.langchain4jworkflow.workflow.event.WorkflowCancelEvent;
+import com.niko.langchain4jworkflow.workflow.event.WorkflowCompleteEvent;
+import com.niko.langchain4jworkflow.workflow.event.WorkflowErrorEvent;
+import com.niko.langchain4jworkflow.workflow.event.WorkflowStartEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 执行事件流
+ * 按执行ID将流式节点的令牌和节点、工作流的完成事件以SSE推送给订阅者。
+ * 包含@Streaming节点的执行在开始时创建通道，令牌事件在执行结束前保留（上限MAX_REPLAY条），
+ * 之后订阅的客户端先收到已保留的令牌；其他执行的通道在第一个订阅者到来时创建，不保留任何令牌。
+ * 工作流结束时发送终止事件并关闭该执行的所有连接，关闭后到达的事件被丢弃。
+ */
+@Slf4j
+@Component
+public class ExecutionStreamHub {
+    /**
+     * 每个执行保留的令牌事件上限
+     */
+    private static final int MAX_REPLAY = 10_000;
+
+    /**
+     * 连接的最长保持时间，防止未收到终止事件的连接无限挂起
+     */
+    private static final Duration EMITTER_TIMEOUT = Duration.ofMinutes(30);
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅执行的事件流
+     * @param executionId 执行ID
+     * @return SSE连接
+     */
+    public SseEmitter subscribe(String executionId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT.toMillis());
+        Channel channel = channels.computeIfAbsent(executionId, id -> new Channel());
+        emitter.onCompletion(() -> remove(executionId, channel, emitter));
+        emitter.onTimeout(() -> remove(executionId, channel, emitter));
+        emitter.onError(error -> remove(executionId, channel, emitter));
+        channel.subscribe(emitter);
+        return emitter;
+    }
+
+    /**
+     * 发送终止事件并关闭执行的所有连接
+     * @param executionId 执行ID
+     * @param name 事件名称
+     * @param data 事件数据
+     */
+    public void close(String executionId, String name, Object data) {
+        Channel channel = channels.remove(executionId);
+        if (channel != null) {
+            channel.close(name, data);
+        }
+    }
+
+    /**
+     * 发送终止事件并关闭单个连接，连接已被关闭时忽略
+     * 合并到同一执行的调用方各自结束自己的连接，不影响其他订阅者
+     * @param executionId 执行ID
+     * @param emitter subscribe返回的连接
+     * @param name 事件名称
+     * @param data 事件数据
+     */
+    public void finish(String executionId, SseEmitter emitter, String name, Object data) {
+        Channel channel = channels.get(executionId);
+        if (channel != null) {
+            channel.finish(emitter, new Event(name, data));
+        }
+    }
+
+    @EventListener
+    public void onWorkflowStart(WorkflowStartEvent event) {
+        // 流式执行的通道保持到执行结束，由终止事件移除
+        if (event.isStreaming()) {
+            channels.computeIfAbsent(event.getExecutionId(), id -> new Channel()).hold();
+        }
+    }
+
+    @EventListener
+    public void onToken(NodeTokenEvent event) {
+        // 只发布到已有的通道，不能在这里创建通道，否则终止事件之后到达的令牌会重新创建通道而无人移除
+        Channel channel = channels.get(event.getExecutionId());
+        if (channel != null) {
+            channel.publish("token", Map.of(
+                    "node", event.getNodeName(),
+                    "index", event.getIndex(),
+                    "token", event.getToken()), true);
+        }
+    }
+
+    @EventListener
+    public void onNodeComplete(NodeCompleteEvent event) {
+        Channel channel = channels.get(event.getExecutionId());
+        if (channel != null) {
+            channel.publish("node", Map.of("node", event.getNodeName(), "status", "COMPLETED"), false);
+        }
+    }
+
+    @EventListener
+    public void onNodeError(NodeErrorEvent event) {
+        Channel channel = channels.get(event.getExecutionId());
+        if (channel != null) {
+            channel.publish("node", Map.of(
+                    "node", event.getNodeName(),
+                    "status", "FAILED",
+                    "error", String.valueOf(event.getError().getMessage())), false);
+        }
+    }
+
+    @EventListener
+    public void onWorkflowComplete(WorkflowCompleteEvent event) {
+        close(event.getExecutionId(), "complete", Map.of("status", "COMPLETED"));
+    }
+
+    @EventListener
+    public void onWorkflowError(WorkflowErrorEvent event) {
+        close(event.getExecutionId(), "error", Map.of(
+                "status", "FAILED",
+                "error", String.valueOf(event.getError().getMessage())));
+    }
+
+    @EventListener
+    public void onWorkflowCancel(WorkflowCancelEvent event) {
+        close(event.getExecutionId(), "cancelled", Map.of("status", "CANCELLED"));
+    }
+
+    private void remove(String executionId, Channel channel, SseEmitter emitter) {
+        if (channel.unsubscribe(emitter)) {
+            channels.remove(executionId, channel);
+        }
+    }
+
+    private record Event(String name, Object data) {
+    }
+
+    /**
+     * 单个执行的订阅者和保留的令牌事件
+     */
+    private static final class Channel {
+        private final List<SseEmitter> emitters = new ArrayList<>(1);
+        private final List<Event> replay = new ArrayList<>();
+        private boolean closed;
+        private boolean held;
+
+        /**
+         * 保持通道直到执行结束，订阅者全部断开后不移除
+         */
+        synchronized void hold() {
+            held = true;
+        }
+
+        synchronized void subscribe(SseEmitter emitter) {
+            if (closed) {
+                // 订阅与执行结束并发时通道可能已关闭
+                emitter.complete();
+                return;
+            }
+            for (Event event : replay) {
+                if (!send(emitter, event)) {
+                    return;
+                }
+            }
+            emitters.add(emitter);
+        }
+
+        /**
+         * @return 通道是否可以移除：未被保持，且已没有订阅者和保留的令牌
+         */
+        synchronized boolean unsubscribe(SseEmitter emitter) {
+            emitters.remove(emitter);
+            return !held && emitters.isEmpty() && replay.isEmpty();
+        }
+
+        synchronized void publish(String name, Object data, boolean retain) {
+            if (closed) {
+                return;
+            }
+            Event event = new Event(name, data);
+            if (retain && replay.size() < MAX_REPLAY) {
+                replay.add(event);
+            }
+            emitters.removeIf(emitter -> !send(emitter, event));
+        }
+
+        synchronized void finish(SseEmitter emitter, Event event) {
+            // 不在列表中的连接已经结束，不再重复发送终止事件
+            if (emitters.remove(emitter) && send(emitter, event)) {
+                emitter.complete();
+            }
+        }
+
+        synchronized void close(String name, Object data) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Event event = new Event(name, data);
+            List<SseEmitter> closing = new ArrayList<>(emitters);
+            emitters.clear();
+            replay.clear();
+            for (SseEmitter emitter : closing) {
+                if (send(emitter, event)) {
+                    emitter.complete();
+                }
+            }
+        }
+
+        private static boolean send(SseEmitter emitter, Event event) {
+            try {
+                // 事件构建器只能发送一次，每个订阅者单独构建
+                emitter.send(SseEmitter.event().name(event.name()).data(event.data()));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping execution stream subscriber: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.niko.langchain4jworkflow.workflow.service;
 
 import com.niko.langchain4jworkflow.workflow.exceptions.*;
 import com.niko.langchain4jworkflow.workflow.model.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -83,4 +85,14 @@ public interface WorkflowService {
      * @throws ExecutionNotFoundException 当指定的执行ID不存在时
      */
     WorkflowResponse getExecutionStatus(String executionId);
+
+    /**
+     * 订阅工作流执行的事件流
+     * 推送流式节点的令牌、节点完成和工作流结束事件
+     *
+     * @param executionId 执行ID
+     * @return SSE连接，执行结束时关闭
+     * @throws ExecutionNotFoundException 当指定的执行ID不存在时
+     */
+    SseEmitter streamExecution(String executionId);
 }
\ No newline at end of file
@@ -7,13 +7,17 @@ import com.niko.langchain4jworkflow.workflow.model.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -26,6 +30,9 @@ public class WorkflowServiceImpl implements WorkflowService {
     private final WorkflowValidator validator;
     private final MetricsRegistry metricsRegistry;
     private final WorkflowMapper mapper;
+    private final AdmissionController admissionController;
+    private final ExecutionCollapser executionCollapser;
+    private final ExecutionStreamHub executionStreamHub;
 
     // 存储执行中的工作流状态
     private final Map<String, CompletableFuture<WorkflowState>> activeExecutions =
@@ -126,9 +133,26 @@ public class WorkflowServiceImpl implements WorkflowService {
                 context.putAll(request.getContext());
             }
 
-            // 开始执行
-            CompletableFuture<WorkflowState> future =
-                    workflowEngine.execute(request.getWorkflowName(), context);
+            // 经准入控制后开始执行，超出容量时直接拒绝；引擎使用同一执行ID，便于停止。
+            // 启用合并时，相同输入的并发执行挂到进行中的执行上，引擎中只运行一次
+            Duration timeout = request.getConfig() != null ? request.getConfig().getTimeout() : null;
+            WorkflowDefinition definition = executionCollapser.isEnabled()
+                    ? workflowRegistry.get(request.getWorkflowName()).orElse(null)
+                    : null;
+            CompletableFuture<WorkflowState> future = executionCollapser.submit(
+                    definition,
+                    context,
+                    timeout,
+                    executionId,
+                    runId -> admissionController.submit(
+                            request.getWorkflowName(),
+                            () -> workflowEngine.execute(
+                                    request.getWorkflowName(),
+                                    context,
+                                    ExecutionOptions.builder()
+                                            .executionId(runId)
+                                            .timeout(timeout)
+                                            .build())));
 
             // 记录执行状态
             activeExecutions.put(executionId, future);
@@ -145,6 +169,10 @@ public class WorkflowServiceImpl implements WorkflowService {
             // 返回初始响应
             return buildInitialResponse(executionId, request.getWorkflowName());
 
+        } catch (AdmissionRejectedException e) {
+            log.warn("Workflow execution rejected: {}, retry after {}",
+                    request.getWorkflowName(), e.getRetryAfter());
+            throw e;
         } catch (Exception e) {
             log.error("Failed to start workflow execution: {}",
                     request.getWorkflowName(), e);
@@ -164,6 +192,15 @@ public class WorkflowServiceImpl implements WorkflowService {
         }
 
         try {
+            // 取消引擎中的执行以停止运行中的节点；仍在准入队列中的执行只需取消Future
+            // 合并的执行只有在最后一个调用方停止时才停止引擎中的共享执行
+            executionCollapser.release(executionId).ifPresent(runId -> {
+                try {
+                    workflowEngine.stop(runId);
+                } catch (ExecutionNotFoundException e) {
+                    log.debug("Execution {} is not running in the engine", runId);
+                }
+            });
             future.cancel(true);
             activeExecutions.remove(executionId);
             log.info("Successfully stopped workflow execution: {}", executionId);
@@ -200,6 +237,36 @@ public class WorkflowServiceImpl implements WorkflowService {
         }
     }
 
+    @Override
+    public SseEmitter streamExecution(String executionId) {
+        CompletableFuture<WorkflowState> future =
+                activeExecutions.get(executionId);
+        if (future == null) {
+            throw new ExecutionNotFoundException(executionId);
+        }
+
+        // 合并到共享执行的调用方订阅共享执行的事件
+        String runId = executionCollapser.runIdOf(executionId);
+        SseEmitter emitter = executionStreamHub.subscribe(runId);
+        // 引擎在调用方的Future完成前就发布结束事件，订阅可能晚于该事件；
+        // 以调用方Future的完成结束本连接，已完成时回调立即执行
+        future.whenComplete((state, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (cause == null) {
+                executionStreamHub.finish(runId, emitter, "complete", Map.of("status", "COMPLETED"));
+            } else if (cause instanceof CancellationException) {
+                executionStreamHub.finish(runId, emitter, "cancelled", Map.of("status", "CANCELLED"));
+            } else {
+                executionStreamHub.finish(runId, emitter, "error", Map.of(
+                        "status", "FAILED",
+                        "error", String.valueOf(cause.getMessage())));
+            }
+        });
+        return emitter;
+    }
+
     private boolean hasActiveExecutions(String workflowId) {
         return activeExecutions.values().stream()
                 .anyMatch(future -> !future.isDone() &&
@@ -218,7 +285,8 @@ public class WorkflowServiceImpl implements WorkflowService {
                 .nodes(buildNodes(request.getNodes()))
                 .config(buildConfig(request.getConfig()))
                 .metadata(request.getMetadata())
-                .build();
+                .build()
+                .compile();
     }
 
     private Map<String, Node> buildNodes(List<CreateNodeRequest> nodeRequests) {
@@ -456,7 +524,8 @@ public class WorkflowServiceImpl implements WorkflowService {
                 .nodes(request.getNodes() != null ? buildNodes(request.getNodes()) : existing.getNodes())
                 .config(request.getConfig() != null ? buildConfig(request.getConfig()) : existing.getConfig())
                 .metadata(request.getMetadata() != null ? request.getMetadata() : existing.getMetadata())
-                .build();
+                .build()
+                .compile();
     }
 
     @Override
@@ -0,0 +1,103 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.AdmissionRejectedException;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AdmissionControllerTest {
+
+    @Test
+    void queuesBeyondGlobalLimitAndRejectsWhenQueueIsFull() {
+        AdmissionController controller = new AdmissionController(2, 0, 1, mock(MetricsRegistry.class));
+        List<CompletableFuture<String>> executions = new ArrayList<>();
+
+        CompletableFuture<String> first = controller.submit("wf", () -> track(executions));
+        CompletableFuture<String> second = controller.submit("wf", () -> track(executions));
+        CompletableFuture<String> queued = controller.submit("wf", () -> track(executions));
+
+        assertEquals(2, executions.size());
+        assertEquals(2, controller.getRunning());
+        assertEquals(1, controller.getQueueDepth());
+
+        AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class,
+                () -> controller.submit("wf", () -> track(executions)));
+        assertTrue(rejected.getRetryAfter().toMillis() >= 1000);
+
+        // 释放一个槽位后排队的执行开始
+        executions.get(0).complete("a");
+        assertEquals("a", first.join());
+        assertEquals(3, executions.size());
+        assertEquals(0, controller.getQueueDepth());
+
+        executions.get(1).complete("b");
+        executions.get(2).complete("c");
+        assertEquals("b", second.join());
+        assertEquals("c", queued.join());
+        assertEquals(0, controller.getRunning());
+    }
+
+    @Test
+    void perWorkflowLimitDoesNotBlockOtherWorkflows() {
+        AdmissionController controller = new AdmissionController(0, 1, 10, mock(MetricsRegistry.class));
+        List<CompletableFuture<String>> executions = new ArrayList<>();
+
+        controller.submit("a", () -> track(executions));
+        CompletableFuture<String> secondA = controller.submit("a", () -> track(executions));
+        controller.submit("b", () -> track(executions));
+
+        // 第二个a被排队，b越过它直接执行
+        assertEquals(2, executions.size());
+        assertEquals(1, controller.getQueueDepth());
+
+        executions.get(0).complete("a1");
+        assertEquals(3, executions.size());
+        executions.get(2).complete("a2");
+        assertEquals("a2", secondA.join());
+    }
+
+    @Test
+    void cancelledQueuedExecutionIsNeverStarted() {
+        AdmissionController controller = new AdmissionController(1, 0, 10, mock(MetricsRegistry.class));
+        List<CompletableFuture<String>> executions = new ArrayList<>();
+
+        controller.submit("wf", () -> track(executions));
+        CompletableFuture<String> queued = controller.submit("wf", () -> track(executions));
+        queued.cancel(true);
+
+        executions.get(0).complete("done");
+        assertEquals(1, executions.size());
+        assertEquals(0, controller.getQueueDepth());
+        assertEquals(0, controller.getRunning());
+    }
+
+    @Test
+    void cancelledQueuedExecutionFreesItsQueueSlot() {
+        AdmissionController controller = new AdmissionController(1, 0, 1, mock(MetricsRegistry.class));
+        List<CompletableFuture<String>> executions = new ArrayList<>();
+
+        controller.submit("wf", () -> track(executions));
+        controller.submit("wf", () -> track(executions)).cancel(true);
+        assertEquals(0, controller.getQueueDepth());
+
+        // 被取消的项不占用队列容量
+        CompletableFuture<String> queued = controller.submit("wf", () -> track(executions));
+        assertEquals(1, controller.getQueueDepth());
+
+        executions.get(0).complete("done");
+        executions.get(1).complete("queued");
+        assertEquals("queued", queued.join());
+    }
+
+    private static CompletableFuture<String> track(List<CompletableFuture<String>> executions) {
+        CompletableFuture<String> execution = new CompletableFuture<>();
+        executions.add(execution);
+        return execution;
+    }
+}
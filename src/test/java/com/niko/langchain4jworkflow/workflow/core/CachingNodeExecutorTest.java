@@ -0,0 +1,211 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.config.CacheConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingNodeExecutorTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * 模拟耗时的下游调用：记录输出并写入一个变量
+     */
+    private final NodeExecutor backend = (node, state, context) -> CompletableFuture.supplyAsync(() -> {
+        calls.incrementAndGet();
+        state.recordNodeStart(node.getName());
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        state.setVariable("answer", "echo:" + state.getVariable("question"));
+        state.recordNodeCompletion(node.getName(), Map.of("result", "ok"));
+        return state;
+    }, pool);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneComputationAndLaterCallsHit() {
+        CachingNodeExecutor executor = new CachingNodeExecutor(backend, cache(), null);
+        Node node = node(null);
+
+        List<WorkflowState> states = new ArrayList<>();
+        List<CompletableFuture<WorkflowState>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            WorkflowState state = new WorkflowState("exec-" + i);
+            state.setVariable("question", "q");
+            states.add(state);
+            futures.add(executor.execute(node, state, context()));
+        }
+        release.countDown();
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(1, calls.get());
+        for (WorkflowState state : states) {
+            assertEquals("echo:q", state.getVariable("answer"));
+            assertEquals("ok", state.getExecutionHistory().get("ask").getOutputs().get("result"));
+        }
+
+        WorkflowState later = new WorkflowState("exec-later");
+        later.setVariable("question", "q");
+        executor.execute(node, later, context()).join();
+        assertEquals(1, calls.get());
+        assertEquals("echo:q", later.getVariable("answer"));
+
+        CacheStats stats = executor.getStats();
+        assertEquals(8, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void differentInputsMissAndKeyExpressionOverridesInputHash() {
+        release.countDown();
+        CachingNodeExecutor byInputs = new CachingNodeExecutor(backend, cache(), null);
+        byInputs.execute(node(null), stateWith("q1"), context()).join();
+        byInputs.execute(node(null), stateWith("q2"), context()).join();
+        assertEquals(2, calls.get());
+
+        CachingNodeExecutor byKey = new CachingNodeExecutor(backend, cache(), null);
+        Node keyed = node(CompiledExpression.parse("'constant'"));
+        byKey.execute(keyed, stateWith("q1"), context()).join();
+        WorkflowState second = byKey.execute(keyed, stateWith("q2"), context()).join();
+        assertEquals(3, calls.get());
+        assertEquals("echo:q1", second.getVariable("answer"));
+    }
+
+    @Test
+    void inputsWithoutSerializablePropertiesAreNotCached() {
+        release.countDown();
+        CachingNodeExecutor executor = new CachingNodeExecutor(backend, cache(), null);
+        // 两个内容不同的对象都会序列化为{}，不能共用一个缓存条目
+        for (String question : List.of("q1", "q2")) {
+            WorkflowState state = new WorkflowState();
+            state.setVariable("question", new Opaque(question));
+            executor.execute(node(null), state, context()).join();
+        }
+        assertEquals(2, calls.get());
+        assertEquals(0, executor.getStats().getSize());
+    }
+
+    @Test
+    void skippedNodeReplaysAsSkipped() {
+        NodeExecutor condition = (node, state, context) -> {
+            calls.incrementAndGet();
+            state.recordNodeStart(node.getName());
+            state.recordNodeSkipped(node.getName(), Map.of("conditionMet", false));
+            return CompletableFuture.completedFuture(state);
+        };
+        CachingNodeExecutor executor = new CachingNodeExecutor(condition, cache(), null);
+        executor.execute(node(null), stateWith("q"), context()).join();
+
+        WorkflowState replayed = executor.execute(node(null), stateWith("q"), context()).join();
+
+        assertEquals(1, calls.get());
+        assertTrue(replayed.isNodeSkipped("ask"));
+        assertEquals(false, replayed.getExecutionHistory().get("ask").getOutputs().get("conditionMet"));
+    }
+
+    @Test
+    void failingCacheWriteCompletesCallerAndReleasesWaiters() {
+        WorkflowCache broken = new WorkflowCache() {
+            @Override
+            public void put(String key, Object value) {
+                throw new IllegalStateException("cache unavailable");
+            }
+
+            @Override
+            public Optional<Object> get(String key) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void invalidate(String key) {
+            }
+
+            @Override
+            public void clear() {
+            }
+        };
+        CachingNodeExecutor executor = new CachingNodeExecutor(backend, broken, null);
+        CompletableFuture<WorkflowState> first = executor.execute(node(null), stateWith("q"), context());
+        CompletableFuture<WorkflowState> waiter = executor.execute(node(null), stateWith("q"), context());
+        release.countDown();
+
+        assertEquals("echo:q", first.orTimeout(5, TimeUnit.SECONDS).join().getVariable("answer"));
+        assertEquals("echo:q", waiter.orTimeout(5, TimeUnit.SECONDS).join().getVariable("answer"));
+        assertEquals(2, calls.get());
+        // 等待者没有拿到共享的结果，不计为命中
+        assertEquals(0, executor.getStats().getHitCount());
+        assertEquals(2, executor.getStats().getMissCount());
+    }
+
+    private static WorkflowState stateWith(String question) {
+        WorkflowState state = new WorkflowState();
+        state.setVariable("question", question);
+        return state;
+    }
+
+    private static WorkflowCache cache() {
+        return new CaffeineWorkflowCache(CacheConfig.builder()
+                .maxSize(100L)
+                .ttl(Duration.ofMinutes(5))
+                .recordStats(true)
+                .build());
+    }
+
+    private static Node node(CompiledExpression key) {
+        return Node.builder()
+                .name("ask")
+                .type(NodeType.FUNCTION)
+                .dependencies(List.of())
+                .inputs(Map.of("question", String.class))
+                .config(Node.NodeConfig.builder()
+                        .cacheConfig(Node.CacheConfig.builder()
+                                .key(key)
+                                .ttl(Duration.ofMinutes(1))
+                                .build())
+                        .build())
+                .build();
+    }
+
+    private static final class Opaque {
+        private final String value;
+
+        Opaque(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    private static WorkflowContext context() {
+        return WorkflowContext.builder()
+                .workflowName("qa")
+                .build();
+    }
+}
@@ -0,0 +1,318 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.niko.langchain4jworkflow.workflow.core.ExecutionPlanTest.node;
+import static com.niko.langchain4jworkflow.workflow.core.ExecutionPlanTest.workflow;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DagSchedulerTest {
+
+    @Test
+    void joinRunsExactlyOnceWhenParentsFinishTogether() throws Exception {
+        // root -> (p0..p7) -> join
+        Node[] nodes = new Node[10];
+        String[] parents = new String[8];
+        nodes[0] = node("root");
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = "p" + i;
+            nodes[i + 1] = node(parents[i], "root");
+        }
+        nodes[9] = node("join", parents);
+        ExecutionPlan plan = workflow("fan-in", nodes).getExecutionPlan();
+        int join = plan.idOf("join");
+
+        ExecutorService pool = Executors.newFixedThreadPool(parents.length);
+        try {
+            for (int round = 0; round < 200; round++) {
+                AtomicIntegerArray runs = new AtomicIntegerArray(plan.size());
+                CountDownLatch gate = new CountDownLatch(1);
+                WorkflowState state = new WorkflowState();
+
+                CompletableFuture<WorkflowState> done = new DagScheduler(plan, state, id -> {
+                    runs.incrementAndGet(id);
+                    if (plan.inDegree(id) == 1) {
+                        // 所有并行分支在同一时刻放行，制造竞争
+                        return CompletableFuture.supplyAsync(() -> {
+                            awaitQuietly(gate);
+                            return state;
+                        }, pool);
+                    }
+                    return CompletableFuture.completedFuture(state);
+                }).start();
+
+                gate.countDown();
+                done.get();
+                for (int id = 0; id < plan.size(); id++) {
+                    assertEquals(1, runs.get(id), "node " + plan.nameOf(id) + " in round " + round);
+                }
+                assertEquals(1, runs.get(join));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void skippedBranchPrunesItsDownstreamSubgraph() {
+        // start -> ifHigh -> high -> highTail
+        // start -> ifLow  -> low
+        // high, low -> report
+        ExecutionPlan plan = workflow("branch",
+                node("start"),
+                conditional("ifHigh", "variables['score'] > 50", "start"),
+                conditional("ifLow", "variables['score'] <= 50", "start"),
+                node("high", "ifHigh"),
+                node("highTail", "high"),
+                node("low", "ifLow"),
+                node("report", "high", "low")).getExecutionPlan();
+        WorkflowState state = new WorkflowState();
+        state.setVariable("score", 20);
+        List<String> ran = new ArrayList<>();
+
+        new DagScheduler(plan, state, id -> {
+            Node node = plan.node(id);
+            ran.add(node.getName());
+            if (node.getCondition() != null && !node.getCondition().test(state, null)) {
+                state.recordNodeSkipped(node.getName(), Map.of("conditionMet", false));
+            } else {
+                state.recordNodeStart(node.getName());
+                state.recordNodeCompletion(node.getName(), Map.of());
+            }
+            return CompletableFuture.completedFuture(state);
+        }).start().join();
+
+        assertEquals(List.of("start", "ifHigh", "ifLow", "low", "report"), ran);
+        assertTrue(state.isNodeSkipped("ifHigh"));
+        assertTrue(state.isNodeSkipped("high"));
+        assertTrue(state.isNodeSkipped("highTail"));
+        assertFalse(state.isNodeSkipped("report"));
+    }
+
+    @Test
+    void longSynchronousChainDoesNotRecurse() {
+        int length = 20_000;
+        Node[] nodes = new Node[length];
+        nodes[0] = node("n0");
+        for (int i = 1; i < length; i++) {
+            nodes[i] = node("n" + i, "n" + (i - 1));
+        }
+        ExecutionPlan plan = workflow("chain", nodes).getExecutionPlan();
+        WorkflowState state = new WorkflowState();
+
+        new DagScheduler(plan, state, id -> {
+            state.getVariables().put("last", id);
+            return CompletableFuture.completedFuture(state);
+        }).start().join();
+
+        assertEquals(plan.idOf("n" + (length - 1)), state.getVariable("last"));
+    }
+
+    @Test
+    void failureStopsSchedulingDownstreamNodes() {
+        ExecutionPlan plan = workflow("failing",
+                node("a"),
+                node("b", "a"),
+                node("c", "b")).getExecutionPlan();
+        AtomicIntegerArray runs = new AtomicIntegerArray(plan.size());
+
+        CompletableFuture<WorkflowState> done = new DagScheduler(plan, new WorkflowState(), id -> {
+            runs.incrementAndGet(id);
+            if (plan.nameOf(id).equals("b")) {
+                return CompletableFuture.failedFuture(new IllegalStateException("boom"));
+            }
+            return CompletableFuture.completedFuture(new WorkflowState());
+        }).start();
+
+        assertTrue(done.isCompletedExceptionally());
+        assertEquals(0, runs.get(plan.idOf("c")));
+    }
+
+    @Test
+    void readyNodesOnLongestRemainingPathRunFirst() {
+        // 三个起始节点：leafA、leafB为短任务，head后面跟着一条长链
+        ExecutionPlan plan = workflow("wide",
+                node("leafA"),
+                node("leafB"),
+                node("head"),
+                node("mid", "head"),
+                node("tail", "mid")).getExecutionPlan();
+        CriticalPathEstimator estimator = new CriticalPathEstimator(null);
+        estimator.record("wide", "leafA", Duration.ofMillis(5));
+        estimator.record("wide", "leafB", Duration.ofMillis(5));
+        estimator.record("wide", "head", Duration.ofMillis(2));
+        estimator.record("wide", "mid", Duration.ofMillis(50));
+        estimator.record("wide", "tail", Duration.ofMillis(50));
+
+        List<String> order = new ArrayList<>();
+        WorkflowState state = new WorkflowState();
+        new DagScheduler(plan, state, id -> {
+            order.add(plan.nameOf(id));
+            return CompletableFuture.completedFuture(state);
+        }, estimator.rank("wide", plan), 1).start().join();
+
+        assertEquals(List.of("head", "mid", "tail", "leafA", "leafB"), order);
+    }
+
+    @Test
+    void joinReducesBranchesAsTheyCompleteAndStartsDownstreamEarly() throws Exception {
+        // root -> (p0..p3) -> total -> report，p3一直阻塞直到report完成
+        Method sum = Reducers.class.getMethod("sum", Integer.class, Integer.class);
+        Node total = Node.builder()
+                .name("total")
+                .type(NodeType.JOIN)
+                .dependencies(List.of("p0", "p1", "p2", "p3"))
+                .method(sum)
+                .target(new Reducers())
+                .invoker(NodeInvoker.compile(sum))
+                .config(Node.NodeConfig.builder()
+                        .completeWhen(CompiledExpression.parse("variables['total'] >= 3"))
+                        .build())
+                .build();
+        ExecutionPlan plan = workflow("early-join",
+                node("root"),
+                node("p0", "root"),
+                node("p1", "root"),
+                node("p2", "root"),
+                node("p3", "root"),
+                total,
+                node("report", "total")).getExecutionPlan();
+        WorkflowState state = new WorkflowState();
+        JoinNodeExecutor joinExecutor = new JoinNodeExecutor(null);
+        CountDownLatch slowBranch = new CountDownLatch(1);
+        AtomicIntegerArray runs = new AtomicIntegerArray(plan.size());
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<WorkflowState> done = new DagScheduler(plan, state, id -> {
+                Node node = plan.node(id);
+                runs.incrementAndGet(id);
+                if (node.getType() == NodeType.JOIN) {
+                    return joinExecutor.execute(node, state, null);
+                }
+                if (node.getName().equals("report")) {
+                    slowBranch.countDown();
+                }
+                if (node.getName().equals("p3")) {
+                    return CompletableFuture.supplyAsync(() -> {
+                        awaitQuietly(slowBranch);
+                        return complete(state, "p3", 1);
+                    }, pool);
+                }
+                return CompletableFuture.completedFuture(complete(state, node.getName(), 1));
+            }, (joinId, upstreamId) -> JoinNodeExecutor.accumulate(
+                    plan.node(joinId), plan.nameOf(upstreamId), state, null), null, 0).start();
+
+            done.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, runs.get(plan.idOf("total")));
+        assertEquals(3, state.getVariable("total"));
+        assertEquals(3, state.getExecutionHistory().get("total").getOutputs().get("result"));
+        assertTrue(state.isNodeCompleted("p3"));
+    }
+
+    @Test
+    void joinWithoutReducerCollectsResultsInCompletionOrder() {
+        Node gather = Node.builder()
+                .name("gather")
+                .type(NodeType.JOIN)
+                .dependencies(List.of("b", "a"))
+                .config(Node.NodeConfig.builder().resultVariable("collected").build())
+                .build();
+        ExecutionPlan plan = workflow("collect", node("a"), node("b"), gather).getExecutionPlan();
+        WorkflowState state = new WorkflowState();
+        JoinNodeExecutor joinExecutor = new JoinNodeExecutor(null);
+
+        new DagScheduler(plan, state, id -> {
+            Node node = plan.node(id);
+            if (node.getType() == NodeType.JOIN) {
+                return joinExecutor.execute(node, state, null);
+            }
+            return CompletableFuture.completedFuture(complete(state, node.getName(), node.getName()));
+        }, (joinId, upstreamId) -> JoinNodeExecutor.accumulate(
+                plan.node(joinId), plan.nameOf(upstreamId), state, null), null, 0).start().join();
+
+        assertEquals(List.of("a", "b"), state.getVariable("collected"));
+    }
+
+    @Test
+    void partialConsumerStartsWhenStreamBeginsAndRunsOnce() {
+        // llm -> reader（接受部分输入），llm -> audit
+        Node reader = Node.builder()
+                .name("reader")
+                .type(NodeType.FUNCTION)
+                .dependencies(List.of("llm"))
+                .config(Node.NodeConfig.builder().async(true).acceptsPartial(true).build())
+                .build();
+        ExecutionPlan plan = workflow("stream", node("llm"), reader, node("audit", "llm")).getExecutionPlan();
+        WorkflowState state = new WorkflowState();
+        CompletableFuture<WorkflowState> llm = new CompletableFuture<>();
+        AtomicIntegerArray runs = new AtomicIntegerArray(plan.size());
+        DagScheduler[] scheduler = new DagScheduler[1];
+
+        scheduler[0] = new DagScheduler(plan, state, id -> {
+            runs.incrementAndGet(id);
+            if (id == plan.idOf("llm")) {
+                state.recordNodeStart("llm");
+                scheduler[0].releasePartial(id);
+                return llm;
+            }
+            return CompletableFuture.completedFuture(complete(state, plan.nameOf(id), "ok"));
+        });
+        CompletableFuture<WorkflowState> done = scheduler[0].start();
+
+        assertEquals(1, runs.get(plan.idOf("reader")));
+        assertEquals(0, runs.get(plan.idOf("audit")));
+        assertFalse(done.isDone());
+
+        llm.complete(complete(state, "llm", "text"));
+
+        assertTrue(done.isDone());
+        assertEquals(1, runs.get(plan.idOf("reader")));
+        assertEquals(1, runs.get(plan.idOf("audit")));
+    }
+
+    private static WorkflowState complete(WorkflowState state, String name, Object result) {
+        state.recordNodeStart(name);
+        state.recordNodeCompletion(name, Map.of("result", result));
+        return state;
+    }
+
+    public static class Reducers {
+        public Integer sum(Integer accumulator, Integer result) {
+            return (accumulator != null ? accumulator : 0) + result;
+        }
+    }
+
+    private static Node conditional(String name, String condition, String... dependencies) {
+        return Node.builder()
+                .name(name)
+                .type(NodeType.CONDITIONAL)
+                .dependencies(List.of(dependencies))
+                .config(Node.NodeConfig.builder().build())
+                .condition(CompiledExpression.parse(condition))
+                .build();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MicrometerMetricsRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.niko.langchain4jworkflow.workflow.core.DefaultWorkflowEngineTest.chain;
+import static com.niko.langchain4jworkflow.workflow.core.ExecutionPlanTest.workflow;
+
+/**
+ * 引擎调度开销的基准，只输出测量结果不做断言
+ * 默认构建中排除，通过 mvn test -Dgroups=benchmark -Dtest.excludedGroups= 运行
+ */
+@Tag("benchmark")
+class DefaultWorkflowEngineBenchmark {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 100个无操作同步节点组成的线性链，分别在不融合、按节点观测和按链观测的融合下
+     * 输出每次执行的耗时和当前线程分配的字节数
+     */
+    @Test
+    void synchronousChain() throws Exception {
+        int length = 100;
+        InMemoryWorkflowRegistry registry = new InMemoryWorkflowRegistry();
+        registry.register(workflow("chain", chain(length, -1)));
+        for (FusionDetail detail : new FusionDetail[]{null, FusionDetail.NODE, FusionDetail.CHAIN}) {
+            DefaultWorkflowEngine engine = DefaultWorkflowEngine.builder()
+                    .workflowRegistry(registry)
+                    .nodeExecutor(new DefaultNodeExecutor(pool))
+                    .metricsRegistry(new NoopMetricsRegistry())
+                    .fusionDetail(detail)
+                    .build();
+            measure(engine, length, detail != null ? "fused/" + detail : "unfused");
+        }
+    }
+
+    private static void measure(DefaultWorkflowEngine engine, int length, String label) {
+        int warmup = 5_000;
+        int executions = 20_000;
+        for (int i = 0; i < warmup; i++) {
+            engine.execute("chain", Map.of()).join();
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long caller = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(caller);
+        long start = System.nanoTime();
+        for (int i = 0; i < executions; i++) {
+            engine.execute("chain", Map.of()).join();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(caller) - bytesBefore;
+        System.out.printf("%d-node synchronous chain (%s): %.1f us/execution, %d bytes/execution%n",
+                length, label, nanos / 1_000.0 / executions, bytes / executions);
+    }
+
+    /**
+     * 不记录任何指标，使基准只反映引擎自身的开销
+     */
+    private static class NoopMetricsRegistry extends MicrometerMetricsRegistry {
+        NoopMetricsRegistry() {
+            super(new SimpleMeterRegistry());
+        }
+
+        @Override
+        public void incrementCounter(String name, String... tags) {
+        }
+
+        @Override
+        public void recordDuration(String name, Duration duration, String... tags) {
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.annotation.StateVariable;
+import com.niko.langchain4jworkflow.workflow.event.NodeCompleteEvent;
+import com.niko.langchain4jworkflow.workflow.event.NodeErrorEvent;
+import com.niko.langchain4jworkflow.workflow.event.NodeStartEvent;
+import com.niko.langchain4jworkflow.workflow.event.NodeTokenEvent;
+import com.niko.langchain4jworkflow.workflow.event.WorkflowCancelEvent;
+import com.niko.langchain4jworkflow.workflow.exceptions.ExecutionNotFoundException;
+import com.niko.langchain4jworkflow.workflow.exceptions.NodeExecutionException;
+import com.niko.langchain4jworkflow.workflow.exceptions.TimeoutException;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.niko.langchain4jworkflow.workflow.core.ExecutionPlanTest.workflow;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultWorkflowEngineTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void nodeTimeoutInterruptsHungTaskAndPublishesError() throws Exception {
+        Hanging hanging = new Hanging();
+        Node node = hangingNode("hung", hanging, Duration.ofMillis(100));
+        DefaultWorkflowEngine engine = engine(workflow("timeout", node), Duration.ofMinutes(1));
+
+        long start = System.nanoTime();
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> engine.execute("timeout", Map.of()).join());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertInstanceOf(TimeoutException.class, rootCause(error));
+        assertTrue(elapsedMillis < 2_000, "timed out after " + elapsedMillis + " ms");
+        assertTrue(hanging.interrupted.await(2, TimeUnit.SECONDS), "hung task was not interrupted");
+        assertTrue(events.stream().anyMatch(e -> e instanceof NodeErrorEvent
+                && ((NodeErrorEvent) e).getError() instanceof TimeoutException));
+    }
+
+    @Test
+    void workflowTimeoutCancelsInFlightNodes() throws Exception {
+        Hanging hanging = new Hanging();
+        Node node = hangingNode("hung", hanging, null);
+        DefaultWorkflowEngine engine = engine(workflow("slow", node), Duration.ofMillis(100));
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> engine.execute("slow", Map.of()).join());
+
+        assertInstanceOf(TimeoutException.class, rootCause(error));
+        assertTrue(hanging.interrupted.await(2, TimeUnit.SECONDS), "in-flight node was not interrupted");
+    }
+
+    @Test
+    void stopInterruptsRunningNodesSkipsDownstreamAndPublishesCancelOnce() throws Exception {
+        Hanging hanging = new Hanging();
+        Node hung = hangingNode("hung", hanging, null);
+        Node downstream = ExecutionPlanTest.node("downstream", "hung");
+        DefaultWorkflowEngine engine = engine(workflow("stoppable", hung, downstream), Duration.ofMinutes(1));
+
+        CompletableFuture<WorkflowState> execution = engine.execute("stoppable", Map.of(),
+                ExecutionOptions.builder().executionId("exec-1").build());
+        assertTrue(hanging.started.await(2, TimeUnit.SECONDS));
+        WorkflowState state = engine.getExecutionState("exec-1");
+
+        engine.stop("exec-1");
+
+        CompletionException error = assertThrows(CompletionException.class, execution::join);
+        assertInstanceOf(CancellationException.class, rootCause(error));
+        assertTrue(hanging.interrupted.await(2, TimeUnit.SECONDS), "running node was not interrupted");
+        assertEquals(WorkflowStatus.CANCELLED, state.getStatus());
+        assertFalse(state.getExecutionHistory().containsKey("downstream"));
+        assertThrows(ExecutionNotFoundException.class, () -> engine.stop("exec-1"));
+        assertEquals(1, events.stream().filter(e -> e instanceof WorkflowCancelEvent).count());
+    }
+
+    @Test
+    void requestTimeoutOverrideClampsNodeToRemainingBudget() throws Exception {
+        Hanging hanging = new Hanging();
+        Node node = hangingNode("hung", hanging, Duration.ofMinutes(1));
+        DefaultWorkflowEngine engine = engine(workflow("budget", node), Duration.ofMinutes(1));
+
+        long start = System.nanoTime();
+        CompletableFuture<WorkflowState> execution = engine.execute("budget", Map.of(),
+                ExecutionOptions.builder().executionId("exec-2").timeout(Duration.ofMillis(100)).build());
+        WorkflowState state = engine.getExecutionState("exec-2");
+        CompletionException error = assertThrows(CompletionException.class, execution::join);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertInstanceOf(TimeoutException.class, rootCause(error));
+        assertTrue(elapsedMillis < 2_000, "timed out after " + elapsedMillis + " ms");
+        assertTrue(hanging.interrupted.await(2, TimeUnit.SECONDS), "hung task was not interrupted");
+        assertEquals(WorkflowStatus.TIMEOUT, state.getStatus());
+    }
+
+    @Test
+    void nodeExpectedToOverrunBudgetFailsFastWithoutRunning() throws Exception {
+        Hanging hanging = new Hanging();
+        Node node = hangingNode("slow", hanging, null);
+        CriticalPathEstimator estimator = new CriticalPathEstimator(null);
+        estimator.record("doomed", "slow", Duration.ofMinutes(5));
+        DefaultWorkflowEngine engine = engine(workflow("doomed", node), Duration.ofSeconds(30), estimator);
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> engine.execute("doomed", Map.of()).join());
+
+        assertInstanceOf(TimeoutException.class, rootCause(error));
+        assertFalse(hanging.started.await(100, TimeUnit.MILLISECONDS), "doomed node should not start");
+        assertTrue(events.stream().anyMatch(e -> e instanceof NodeErrorEvent));
+    }
+
+    @Test
+    void fusedChainKeepsPerNodeHistoryAndPublishesChainEvents() throws Exception {
+        DefaultWorkflowEngine engine = fusedEngine(workflow("fused", chain(4, -1)), FusionDetail.CHAIN);
+
+        WorkflowState state = engine.execute("fused", Map.of()).join();
+
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(state.getExecutionHistory().get("n" + i).getEndTime());
+        }
+        List<String> started = events.stream()
+                .filter(e -> e instanceof NodeStartEvent)
+                .map(e -> ((NodeStartEvent) e).getNodeName())
+                .toList();
+        List<String> completed = events.stream()
+                .filter(e -> e instanceof NodeCompleteEvent)
+                .map(e -> ((NodeCompleteEvent) e).getNodeName())
+                .toList();
+        assertEquals(List.of("n0"), started);
+        assertEquals(List.of("n3"), completed);
+    }
+
+    @Test
+    void failingChainMemberStopsTheChainAndPublishesItsOwnError() throws Exception {
+        Noop target = new Noop();
+        DefaultWorkflowEngine engine = fusedEngine(workflow("broken", chain(4, 2, target)), FusionDetail.CHAIN);
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> engine.execute("broken", Map.of()).join());
+
+        assertInstanceOf(NodeExecutionException.class, rootCause(error));
+        assertEquals(2, target.calls.get(), "members after the failed one should not run");
+        assertEquals(List.of("n2"), events.stream()
+                .filter(e -> e instanceof NodeErrorEvent)
+                .map(e -> ((NodeErrorEvent) e).getNodeName())
+                .toList());
+        assertTrue(events.stream().noneMatch(e -> e instanceof NodeCompleteEvent));
+    }
+
+    @Test
+    void streamingAiNodeStartsPartialConsumerBeforeCompletion() throws Exception {
+        Speaker speaker = new Speaker();
+        Node answer = Node.builder()
+                .name("answer")
+                .type(NodeType.AI)
+                .dependencies(List.of())
+                .config(Node.NodeConfig.builder().streaming(true).systemPrompt("Say hello").build())
+                .inputs(Map.of())
+                .outputs(Map.of())
+                .build();
+        Node speak = Node.builder()
+                .name("speak")
+                .type(NodeType.FUNCTION)
+                .dependencies(List.of("answer"))
+                .config(Node.NodeConfig.builder().async(true).acceptsPartial(true).build())
+                .inputs(Map.of())
+                .outputs(Map.of())
+                .method(Speaker.class.getMethod("speak", PartialText.class))
+                .target(speaker)
+                .build();
+        InMemoryWorkflowRegistry registry = new InMemoryWorkflowRegistry();
+        registry.register(workflow("chat", answer, speak));
+        ExecutorPools pools = ExecutorPools.single(pool);
+        DefaultWorkflowEngine engine = DefaultWorkflowEngine.builder()
+                .workflowRegistry(registry)
+                .nodeExecutor(new CompositeNodeExecutor(null, new ScriptedStreamingModel(speaker),
+                        new DefaultNodeExecutor(pools), pools))
+                .metricsRegistry(Mockito.mock(MetricsRegistry.class))
+                .eventPublisher(events::add)
+                .build();
+
+        WorkflowState state = engine.execute("chat", Map.of()).get(5, TimeUnit.SECONDS);
+
+        assertTrue(speaker.startedBeforeCompletion, "consumer should start while the model is still streaming");
+        assertEquals(List.of("Hel", "lo", " world"), speaker.heard);
+        assertEquals("Hello world", state.getExecutionHistory().get("answer").getOutputs().get("response"));
+        assertEquals(List.of("Hel", "lo", " world"), events.stream()
+                .filter(e -> e instanceof NodeTokenEvent)
+                .map(e -> ((NodeTokenEvent) e).getToken())
+                .toList());
+    }
+
+    @Test
+    void synchronousChainRunsInlineOnTheCallingThread() throws Exception {
+        int length = 100;
+        for (FusionDetail detail : new FusionDetail[]{null, FusionDetail.NODE, FusionDetail.CHAIN}) {
+            Noop target = new Noop();
+            InMemoryWorkflowRegistry registry = new InMemoryWorkflowRegistry();
+            registry.register(workflow("chain", chain(length, -1, target)));
+            DefaultWorkflowEngine engine = DefaultWorkflowEngine.builder()
+                    .workflowRegistry(registry)
+                    .nodeExecutor(new DefaultNodeExecutor(pool))
+                    .metricsRegistry(Mockito.mock(MetricsRegistry.class))
+                    .fusionDetail(detail)
+                    .build();
+
+            CompletableFuture<WorkflowState> result = engine.execute("chain", Map.of());
+            assertTrue(result.isDone(), "synchronous chain should complete before execute returns");
+            assertEquals(WorkflowStatus.COMPLETED, result.join().getStatus());
+            assertEquals(length, result.join().getExecutionHistory().size());
+            assertEquals(length, target.calls.get());
+            assertEquals(Set.of(Thread.currentThread()), target.threads);
+        }
+    }
+
+    /**
+     * 同步FUNCTION节点n0 -> n1 -> ...组成的线性链
+     * @param failing 抛出异常的节点下标，-1表示全部成功
+     */
+    static Node[] chain(int length, int failing) throws Exception {
+        return chain(length, failing, new Noop());
+    }
+
+    static Node[] chain(int length, int failing, Noop target) throws Exception {
+        Node[] nodes = new Node[length];
+        for (int i = 0; i < length; i++) {
+            nodes[i] = Node.builder()
+                    .name("n" + i)
+                    .type(NodeType.FUNCTION)
+                    .dependencies(i == 0 ? List.of() : List.of("n" + (i - 1)))
+                    .config(Node.NodeConfig.builder().build())
+                    .inputs(Map.of())
+                    .outputs(Map.of())
+                    .method(Noop.class.getMethod(i == failing ? "fail" : "noop"))
+                    .target(target)
+                    .build();
+        }
+        return nodes;
+    }
+
+    private DefaultWorkflowEngine fusedEngine(WorkflowDefinition workflow, FusionDetail detail) {
+        InMemoryWorkflowRegistry registry = new InMemoryWorkflowRegistry();
+        registry.register(workflow);
+        return DefaultWorkflowEngine.builder()
+                .workflowRegistry(registry)
+                .nodeExecutor(new DefaultNodeExecutor(pool))
+                .metricsRegistry(Mockito.mock(MetricsRegistry.class))
+                .eventPublisher(events::add)
+                .fusionDetail(detail)
+                .build();
+    }
+
+    private DefaultWorkflowEngine engine(WorkflowDefinition workflow, Duration defaultTimeout) {
+        return engine(workflow, defaultTimeout, null);
+    }
+
+    private DefaultWorkflowEngine engine(
+            WorkflowDefinition workflow,
+            Duration defaultTimeout,
+            CriticalPathEstimator estimator) {
+        InMemoryWorkflowRegistry registry = new InMemoryWorkflowRegistry();
+        registry.register(workflow);
+        return DefaultWorkflowEngine.builder()
+                .workflowRegistry(registry)
+                .nodeExecutor(new DefaultNodeExecutor(pool))
+                .metricsRegistry(Mockito.mock(MetricsRegistry.class))
+                .eventPublisher(events::add)
+                .criticalPathEstimator(estimator)
+                .defaultTimeout(defaultTimeout)
+                .build();
+    }
+
+    private static Node hangingNode(String name, Hanging target, Duration timeout) throws Exception {
+        return Node.builder()
+                .name(name)
+                .type(NodeType.FUNCTION)
+                .dependencies(List.of())
+                .config(Node.NodeConfig.builder().async(true).timeout(timeout).build())
+                .inputs(Map.of())
+                .outputs(Map.of())
+                .method(Hanging.class.getMethod("hang"))
+                .target(target)
+                .build();
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    public static class Speaker {
+        final CountDownLatch firstTokenHeard = new CountDownLatch(1);
+        final List<String> heard = new CopyOnWriteArrayList<>();
+        volatile boolean startedBeforeCompletion;
+
+        public void speak(@StateVariable("answer") PartialText answer) throws InterruptedException {
+            startedBeforeCompletion = !answer.isComplete();
+            answer.forEachToken(token -> {
+                heard.add(token);
+                firstTokenHeard.countDown();
+            });
+        }
+    }
+
+    /**
+     * 先输出第一个令牌，等下游消费后再输出其余令牌，下游未能提前开始时在超时后继续
+     */
+    private static class ScriptedStreamingModel implements StreamingChatLanguageModel {
+        private final Speaker speaker;
+
+        ScriptedStreamingModel(Speaker speaker) {
+            this.speaker = speaker;
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            handler.onNext("Hel");
+            try {
+                speaker.firstTokenHeard.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handler.onNext("lo");
+            handler.onNext(" world");
+            handler.onComplete(Response.from(AiMessage.from("Hello world")));
+        }
+    }
+
+    public static class Noop {
+        final AtomicInteger calls = new AtomicInteger();
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        public void noop() {
+            calls.incrementAndGet();
+            threads.add(Thread.currentThread());
+        }
+
+        public void fail() {
+            throw new IllegalStateException("broken link");
+        }
+    }
+
+    public static class Hanging {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        public String hang() {
+            started.countDown();
+            try {
+                Thread.sleep(30_000);
+                return "done";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IllegalStateException("interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ExecutionCollapserTest {
+
+    private final List<String> launched = new ArrayList<>();
+    private final List<CompletableFuture<WorkflowState>> runs = new ArrayList<>();
+
+    private final Function<String, CompletableFuture<WorkflowState>> launcher = runId -> {
+        launched.add(runId);
+        CompletableFuture<WorkflowState> run = new CompletableFuture<>();
+        runs.add(run);
+        return run;
+    };
+
+    @Test
+    void identicalConcurrentExecutionsShareOneRunWithSeparateResults() {
+        ExecutionCollapser collapser = new ExecutionCollapser(true, mock(MetricsRegistry.class));
+        WorkflowDefinition definition = definition();
+
+        CompletableFuture<WorkflowState> first = collapser.submit(
+                definition, Map.of("q", "hello", "n", 1), null, "e1", launcher);
+        CompletableFuture<WorkflowState> second = collapser.submit(
+                definition, Map.of("n", 1, "q", "hello"), null, "e2", launcher);
+        CompletableFuture<WorkflowState> other = collapser.submit(
+                definition, Map.of("q", "bye"), null, "e3", launcher);
+
+        assertEquals(List.of("e1", "e3"), launched);
+        assertEquals(1.0 / 3, collapser.getCollapseRatio(), 1e-9);
+
+        WorkflowState state = new WorkflowState("qa");
+        state.setVariable("answer", "hi");
+        runs.get(0).complete(state);
+
+        assertSame(state, first.join());
+        WorkflowState copy = second.join();
+        assertNotSame(state, copy);
+        assertEquals("hi", copy.getVariable("answer"));
+        assertFalse(other.isDone());
+
+        // 共享执行完成后，相同输入重新启动
+        collapser.submit(definition, Map.of("q", "hello", "n", 1), null, "e4", launcher);
+        assertEquals(List.of("e1", "e3", "e4"), launched);
+
+        // 定义更新后视为新版本，不会挂到旧定义的执行上
+        collapser.submit(definition(), Map.of("q", "hello", "n", 1), null, "e5", launcher);
+        assertEquals(List.of("e1", "e3", "e4", "e5"), launched);
+    }
+
+    @Test
+    void sharedRunIsStoppedOnlyAfterTheLastCallerReleasesIt() {
+        ExecutionCollapser collapser = new ExecutionCollapser(true, mock(MetricsRegistry.class));
+        WorkflowDefinition definition = definition();
+
+        collapser.submit(definition, Map.of("q", "x"), null, "leader", launcher);
+        CompletableFuture<WorkflowState> follower = collapser.submit(
+                definition, Map.of("q", "x"), null, "follower", launcher);
+
+        assertEquals(Optional.empty(), collapser.release("leader"));
+        assertFalse(runs.get(0).isCancelled());
+
+        assertEquals(Optional.of("leader"), collapser.release("follower"));
+        assertTrue(runs.get(0).isCancelled());
+        assertTrue(follower.isCompletedExceptionally());
+
+        // 已停止的执行不再被新请求挂载
+        collapser.submit(definition, Map.of("q", "x"), null, "next", launcher);
+        assertEquals(List.of("leader", "next"), launched);
+    }
+
+    @Test
+    void disabledCollapserLaunchesEveryExecution() {
+        ExecutionCollapser collapser = new ExecutionCollapser(false, mock(MetricsRegistry.class));
+        WorkflowDefinition definition = definition();
+
+        collapser.submit(definition, Map.of("q", "x"), null, "e1", launcher);
+        collapser.submit(definition, Map.of("q", "x"), null, "e2", launcher);
+
+        assertEquals(List.of("e1", "e2"), launched);
+        assertEquals(Optional.of("e2"), collapser.release("e2"));
+        assertEquals(0.0, collapser.getCollapseRatio());
+    }
+
+    private static WorkflowDefinition definition() {
+        return WorkflowDefinition.builder()
+                .name("qa")
+                .nodes(Map.of())
+                .build();
+    }
+}
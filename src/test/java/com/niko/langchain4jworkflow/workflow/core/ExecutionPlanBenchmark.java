@@ -0,0 +1,57 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Map;
+
+import static com.niko.langchain4jworkflow.workflow.core.ExecutionPlanTest.NOOP;
+import static com.niko.langchain4jworkflow.workflow.core.ExecutionPlanTest.parallelChains;
+
+/**
+ * 调度开销基准：图规模增长25倍时，每个节点的调度开销应基本保持不变。
+ * 只输出测量结果不做断言，默认构建中排除，通过 mvn test -Dgroups=benchmark -Dtest.excludedGroups= 运行
+ */
+@Tag("benchmark")
+class ExecutionPlanBenchmark {
+
+    @Test
+    void perNodeSchedulingOverhead() {
+        int width = 20;
+        int[] lengths = {10, 50, 250};
+        double[] nanosPerNode = new double[lengths.length];
+
+        // 第一轮用于预热
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < lengths.length; i++) {
+                nanosPerNode[i] = measure(width, lengths[i]);
+            }
+        }
+
+        for (int i = 0; i < lengths.length; i++) {
+            System.out.printf("ExecutionPlan benchmark: nodes=%d, %.0f ns/node%n",
+                    width * lengths[i], nanosPerNode[i]);
+        }
+    }
+
+    private static double measure(int width, int length) {
+        int size = width * length;
+        WorkflowDefinition workflow = parallelChains("bench-" + size, width, length);
+        InMemoryWorkflowRegistry registry = new InMemoryWorkflowRegistry();
+        registry.register(workflow);
+        DefaultWorkflowEngine engine = DefaultWorkflowEngine.builder()
+                .workflowRegistry(registry)
+                .nodeExecutor(NOOP)
+                .metricsRegistry(Mockito.mock(MetricsRegistry.class))
+                .build();
+
+        int runs = Math.max(3, 20_000 / size);
+        long start = System.nanoTime();
+        for (int r = 0; r < runs; r++) {
+            engine.execute(workflow.getName(), Map.of()).join();
+        }
+        return (System.nanoTime() - start) / (double) (runs * size);
+    }
+}
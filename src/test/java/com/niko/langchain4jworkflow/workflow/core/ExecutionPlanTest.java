@@ -0,0 +1,191 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.CircularDependencyException;
+import com.niko.langchain4jworkflow.workflow.exceptions.InvalidWorkflowException;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionPlanTest {
+
+    @Test
+    void assignsTopologicalIdsAndCsrAdjacency() {
+        // a -> b, a -> c, (b, c) -> d
+        ExecutionPlan plan = workflow("diamond",
+                node("a"),
+                node("b", "a"),
+                node("c", "a"),
+                node("d", "b", "c")).getExecutionPlan();
+
+        assertEquals(4, plan.size());
+        assertEquals(1, plan.startNodeCount());
+        assertEquals("a", plan.nameOf(plan.startNodeAt(0)));
+
+        int a = plan.idOf("a");
+        int d = plan.idOf("d");
+        assertEquals(2, plan.outDegree(a));
+        assertEquals(2, plan.inDegree(d));
+        assertEquals(-1, plan.idOf("missing"));
+
+        // ID即拓扑序：每条边都从小ID指向大ID
+        for (int id = 0; id < plan.size(); id++) {
+            for (int i = plan.successorStart(id); i < plan.successorEnd(id); i++) {
+                assertTrue(plan.successorAt(i) > id);
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnknownDependency() {
+        WorkflowDefinition workflow = workflow("broken", node("a", "ghost"));
+        assertThrows(InvalidWorkflowException.class, workflow::compile);
+    }
+
+    @Test
+    void declaredStartNodesMustMatchNodesWithoutDependencies() {
+        Map<String, Node> nodes = workflow("declared", node("a"), node("b", "a"), node("c")).getNodes();
+
+        WorkflowDefinition matching = WorkflowDefinition.builder()
+                .name("declared")
+                .nodes(nodes)
+                .startNodes(List.of("c", "a"))
+                .build();
+        assertEquals(2, matching.compile().getExecutionPlan().startNodeCount());
+
+        WorkflowDefinition dependent = WorkflowDefinition.builder()
+                .name("declared")
+                .nodes(nodes)
+                .startNodes(List.of("a", "b", "c"))
+                .build();
+        assertThrows(InvalidWorkflowException.class, dependent::compile);
+
+        WorkflowDefinition partial = WorkflowDefinition.builder()
+                .name("declared")
+                .nodes(nodes)
+                .startNodes(List.of("a"))
+                .build();
+        assertThrows(InvalidWorkflowException.class, partial::compile);
+    }
+
+    @Test
+    void rejectsCycles() {
+        WorkflowDefinition workflow = workflow("cyclic",
+                node("a", "c"),
+                node("b", "a"),
+                node("c", "b"));
+        assertThrows(CircularDependencyException.class, workflow::compile);
+    }
+
+    @Test
+    void fusesMaximalSingleInSingleOutFunctionChains() {
+        // a -> b -> c -> d, a -> x；c -> d -> e 为线性链，但b有两个后继，async节点不可融合
+        ExecutionPlan plan = workflow("chains",
+                node("a"),
+                node("b", "a"),
+                node("x", "b"),
+                node("c", "b"),
+                node("d", "c"),
+                node("e", "d"),
+                Node.builder()
+                        .name("f")
+                        .type(NodeType.FUNCTION)
+                        .dependencies(List.of("e"))
+                        .config(Node.NodeConfig.builder().async(true).build())
+                        .build(),
+                node("g", "x"),
+                node("h", "g", "f")).getExecutionPlan();
+
+        assertEquals(plan.idOf("b"), plan.fusedNext(plan.idOf("a")));
+        assertEquals(-1, plan.fusedNext(plan.idOf("b")));
+        assertEquals(plan.idOf("d"), plan.fusedNext(plan.idOf("c")));
+        assertEquals(plan.idOf("e"), plan.fusedNext(plan.idOf("d")));
+        assertEquals(-1, plan.fusedNext(plan.idOf("e")));
+        assertEquals(-1, plan.fusedNext(plan.idOf("f")));
+        // h有两个前驱，不并入g所在的链
+        assertEquals(-1, plan.fusedNext(plan.idOf("g")));
+        assertEquals(plan.idOf("g"), plan.fusedNext(plan.idOf("x")));
+    }
+
+    @Test
+    void rejectsSynchronousPartialConsumers() {
+        WorkflowDefinition workflow = workflow("stream",
+                node("llm"),
+                Node.builder()
+                        .name("reader")
+                        .type(NodeType.FUNCTION)
+                        .dependencies(List.of("llm"))
+                        .config(Node.NodeConfig.builder().acceptsPartial(true).build())
+                        .build());
+        assertThrows(InvalidWorkflowException.class, workflow::compile);
+    }
+
+    @Test
+    void executesEveryNodeOfAWideGraphOnce() {
+        WorkflowDefinition workflow = parallelChains("wide", 20, 50);
+        assertEquals(20, workflow.getExecutionPlan().startNodeCount());
+
+        InMemoryWorkflowRegistry registry = new InMemoryWorkflowRegistry();
+        registry.register(workflow);
+        DefaultWorkflowEngine engine = DefaultWorkflowEngine.builder()
+                .workflowRegistry(registry)
+                .nodeExecutor(NOOP)
+                .metricsRegistry(Mockito.mock(MetricsRegistry.class))
+                .build();
+
+        WorkflowState state = engine.execute("wide", Map.of()).join();
+        assertEquals(1000, state.getExecutionHistory().size());
+    }
+
+    /**
+     * 只记录开始和完成的节点执行器
+     */
+    static final NodeExecutor NOOP = (node, state, context) -> {
+        state.recordNodeStart(node.getName());
+        state.recordNodeCompletion(node.getName(), Map.of());
+        return CompletableFuture.completedFuture(state);
+    };
+
+    /**
+     * width条相互独立、各有length个节点的线性链
+     */
+    static WorkflowDefinition parallelChains(String name, int width, int length) {
+        List<Node> nodes = new ArrayList<>(width * length);
+        for (int w = 0; w < width; w++) {
+            for (int l = 0; l < length; l++) {
+                String current = "n" + w + "_" + l;
+                nodes.add(l == 0 ? node(current) : node(current, "n" + w + "_" + (l - 1)));
+            }
+        }
+        return workflow(name, nodes.toArray(new Node[0]));
+    }
+
+    static Node node(String name, String... dependencies) {
+        return Node.builder()
+                .name(name)
+                .type(NodeType.FUNCTION)
+                .dependencies(List.of(dependencies))
+                .config(Node.NodeConfig.builder().build())
+                .inputs(new HashMap<>())
+                .outputs(new HashMap<>())
+                .build();
+    }
+
+    static WorkflowDefinition workflow(String name, Node... nodes) {
+        Map<String, Node> nodeMap = new HashMap<>();
+        for (Node node : nodes) {
+            nodeMap.put(node.getName(), node);
+        }
+        return WorkflowDefinition.builder()
+                .name(name)
+                .nodes(nodeMap)
+                .build();
+    }
+}
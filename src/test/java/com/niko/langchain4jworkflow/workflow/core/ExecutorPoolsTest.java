@@ -0,0 +1,127 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.NodeExecutionException;
+import com.niko.langchain4jworkflow.workflow.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ExecutorPoolsTest {
+
+    private final ExecutorService fallback = Executors.newCachedThreadPool();
+    private final MetricsRegistry metrics = mock(MetricsRegistry.class);
+    private final ExecutorPools pools = new ExecutorPools(fallback, metrics)
+            .newPool("cpu", 2, 2, 10, Duration.ofMinutes(1))
+            .newPool("llm", 1, 1, 1, Duration.ofMinutes(1))
+            .map(NodeType.FUNCTION, "cpu");
+    private final Blocking blocking = new Blocking();
+
+    @AfterEach
+    void shutdown() {
+        blocking.release.countDown();
+        pools.shutdown();
+        fallback.shutdownNow();
+    }
+
+    @Test
+    void saturatedPoolRejectsWithoutStallingOtherPools() throws Exception {
+        DefaultNodeExecutor executor = new DefaultNodeExecutor(pools);
+        Node slowCall = node("call", "block", "llm");
+
+        // 一个在运行，一个在排队，第三个被拒绝
+        CompletableFuture<WorkflowState> running = executor.execute(slowCall, new WorkflowState("w"), context());
+        assertTrue(blocking.started.await(2, TimeUnit.SECONDS));
+        CompletableFuture<WorkflowState> queued = executor.execute(slowCall, new WorkflowState("w"), context());
+        CompletableFuture<WorkflowState> rejected = executor.execute(slowCall, new WorkflowState("w"), context());
+
+        Throwable error = assertThrows(Exception.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, rootCause(error));
+        verify(metrics).incrementCounter("pool.rejections", "pool", "llm");
+
+        // cpu池上的节点不受llm池饱和影响
+        WorkflowState state = new WorkflowState("w");
+        executor.execute(node("parse", "parse", null), state, context()).get(2, TimeUnit.SECONDS);
+        assertTrue(blocking.threads.get(0).startsWith("workflow-llm-"));
+        assertTrue(blocking.threads.get(1).startsWith("workflow-cpu-"));
+        assertFalse(running.isDone());
+        assertFalse(queued.isDone());
+
+        blocking.release.countDown();
+        running.get(2, TimeUnit.SECONDS);
+        queued.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void bulkheadPropertyOverridesTypeMapping() {
+        assertEquals("cpu", pools.poolName(node("parse", "parse", null)));
+        assertEquals("llm", pools.poolName(node("call", "block", "llm")));
+        assertNull(pools.poolName(Node.builder().name("judge").type(NodeType.CONDITIONAL).build()));
+
+        Node unknown = node("lost", "parse", "gpu");
+        assertThrows(NodeExecutionException.class, () -> pools.forNode(unknown));
+        assertThrows(IllegalArgumentException.class, () -> pools.map(NodeType.AI, "gpu"));
+    }
+
+    private Node node(String name, String methodName, String pool) {
+        try {
+            return Node.builder()
+                    .name(name)
+                    .type(NodeType.FUNCTION)
+                    .method(Blocking.class.getMethod(methodName))
+                    .target(blocking)
+                    .config(Node.NodeConfig.builder()
+                            .async(true)
+                            .properties(pool != null ? Map.of(ExecutorPools.POOL_PROPERTY, pool) : Map.of())
+                            .build())
+                    .build();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static WorkflowContext context() {
+        return WorkflowContext.builder()
+                .workflowName("w")
+                .build();
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    public static class Blocking {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> threads = new CopyOnWriteArrayList<>();
+
+        public String block() throws InterruptedException {
+            threads.add(Thread.currentThread().getName());
+            started.countDown();
+            release.await();
+            return "done";
+        }
+
+        public String parse() {
+            threads.add(Thread.currentThread().getName());
+            return "parsed";
+        }
+    }
+}
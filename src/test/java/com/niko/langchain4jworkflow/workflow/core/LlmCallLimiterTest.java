@@ -0,0 +1,169 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import dev.ai4j.openai4j.OpenAiHttpException;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmCallLimiterTest {
+
+    @Test
+    void concurrencyLimitHalvesOnThrottleAndGrowsOnSuccess() {
+        LlmCallLimiter limiter = limiter(0, 0, 2);
+        CompletableFuture<LlmCallLimiter.Permit> first = limiter.acquire(null, "w", 10);
+        CompletableFuture<LlmCallLimiter.Permit> second = limiter.acquire(null, "w", 10);
+        CompletableFuture<LlmCallLimiter.Permit> third = limiter.acquire(null, "w", 10);
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+
+        first.join().release(new OpenAiHttpException(429, "Rate limit reached"), null);
+        assertEquals(1.0, limiter.currentLimit("gpt"));
+        // 上限收缩到1，仍有一个调用在进行，第三个继续等待
+        assertFalse(third.isDone());
+
+        second.join().release(null, 10);
+        assertTrue(third.isDone());
+        third.join().release(new TimeoutException("Node 'ask' timed out"), null);
+        assertEquals(1.0, limiter.currentLimit("gpt"));
+
+        limiter.acquire(null, "w", 10).join().release(null, 10);
+        assertEquals(2.0, limiter.currentLimit("gpt"));
+        limiter.acquire(null, "w", 10).join().release(new IllegalArgumentException("bad prompt"), null);
+        assertEquals(2.0, limiter.currentLimit("gpt"));
+    }
+
+    @Test
+    void throttlingIsClassifiedByTypeAndStatusCode() {
+        assertEquals("rate_limit", LlmCallLimiter.throttleReason(new OpenAiHttpException(429, "{}")));
+        assertEquals("timeout", LlmCallLimiter.throttleReason(new OpenAiHttpException(504, "{}")));
+        assertEquals("timeout", LlmCallLimiter.throttleReason(
+                new com.niko.langchain4jworkflow.workflow.exceptions.TimeoutException("Node 'ask' timed out")));
+        assertEquals("rate_limit", LlmCallLimiter.throttleReason(new StatusException(429, "quota")));
+        // 状态码优先于消息，消息中恰好出现429或rate limit的其他错误不收缩
+        assertNull(LlmCallLimiter.throttleReason(new OpenAiHttpException(400, "prompt mentions rate limit 429")));
+        assertNull(LlmCallLimiter.throttleReason(new IllegalArgumentException("invoice #429")));
+        // 没有状态码时才按消息判断
+        assertEquals("rate_limit", LlmCallLimiter.throttleReason(
+                new IllegalStateException("HTTP 429 Too Many Requests")));
+    }
+
+    @Test
+    void waitingCallsAreReleasedRoundRobinAcrossWorkflows() {
+        LlmCallLimiter limiter = limiter(0, 0, 1);
+        LlmCallLimiter.Permit running = limiter.acquire(null, "batch", 10).join();
+
+        List<String> order = new ArrayList<>();
+        List<CompletableFuture<LlmCallLimiter.Permit>> waiting = new ArrayList<>();
+        for (String workflow : List.of("batch", "batch", "batch", "chat")) {
+            CompletableFuture<LlmCallLimiter.Permit> permit = limiter.acquire(null, workflow, 10);
+            permit.thenAccept(granted -> order.add(workflow));
+            waiting.add(permit);
+        }
+
+        running.release(null, 10);
+        for (int i = 0; i < waiting.size(); i++) {
+            // 每次只放行一个，释放后轮到下一个工作流
+            waiting.stream().filter(CompletableFuture::isDone).filter(f -> !f.isCompletedExceptionally())
+                    .forEach(f -> f.join().release(new OpenAiHttpException(429, "Rate limit reached"), null));
+        }
+        assertEquals(List.of("batch", "chat", "batch", "batch"), order);
+    }
+
+    @Test
+    void tokenBucketDelaysCallsUntilRefilled() throws Exception {
+        // 每分钟60000个token，即每毫秒1个
+        LlmCallLimiter limiter = limiter(0, 60_000, 8);
+        limiter.acquire(null, "w", 60_000).join().release(null, null);
+
+        CompletableFuture<LlmCallLimiter.Permit> delayed = limiter.acquire(null, "w", 100);
+        assertFalse(delayed.isDone());
+        delayed.get(2, TimeUnit.SECONDS).release(null, null);
+
+        // 单独配置的模型使用自己的通道和限制
+        limiter.limit("gpt-4o", new LlmCallLimiter.Limits(1, 0, 1, 1, 1, 0.5));
+        assertTrue(limiter.acquire("gpt-4o", "w", 1).isDone());
+        assertFalse(limiter.acquire("gpt-4o", "w", 1).isDone());
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueue() {
+        LlmCallLimiter limiter = limiter(0, 0, 1);
+        LlmCallLimiter.Permit running = limiter.acquire(null, "w", 10).join();
+        CompletableFuture<LlmCallLimiter.Permit> cancelled = limiter.acquire(null, "w", 10);
+        CompletableFuture<LlmCallLimiter.Permit> next = limiter.acquire(null, "w", 10);
+
+        cancelled.cancel(false);
+        running.release(null, 10);
+
+        assertTrue(next.isDone());
+        assertFalse(next.isCompletedExceptionally());
+    }
+
+    @Test
+    void providerThrottlingLowersTheLimitForAiNodes() {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            LlmCallLimiter limiter = limiter(0, 0, 4);
+            ChatLanguageModel throttled = new ChatLanguageModel() {
+                @Override
+                public Response<AiMessage> generate(List<ChatMessage> messages) {
+                    throw new RuntimeException(new OpenAiHttpException(429, "Rate limit reached"));
+                }
+            };
+            AINodeExecutor executor = new AINodeExecutor(
+                    throttled, new DefaultNodeExecutor(pool), ExecutorPools.single(pool), null, null, null, limiter);
+            Node node = Node.builder()
+                    .name("ask")
+                    .type(NodeType.AI)
+                    .inputs(Map.of())
+                    .config(Node.NodeConfig.builder().systemPrompt("Answer").build())
+                    .build();
+
+            CompletableFuture<WorkflowState> future = executor.execute(
+                    node, new WorkflowState("w"), WorkflowContext.builder().workflowName("w").build());
+
+            assertThrows(Exception.class, () -> future.get(2, TimeUnit.SECONDS));
+            assertEquals(2.0, limiter.currentLimit("gpt"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static LlmCallLimiter limiter(int requestsPerMinute, int tokensPerMinute, int concurrency) {
+        return new LlmCallLimiter(
+                "gpt",
+                new LlmCallLimiter.Limits(requestsPerMinute, tokensPerMinute, concurrency, 1, concurrency, 0.5),
+                TimerWheel.shared(),
+                null);
+    }
+
+    /**
+     * 以statusCode()暴露HTTP状态码的其他提供方异常
+     */
+    private static class StatusException extends RuntimeException {
+        private final int status;
+
+        StatusException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int statusCode() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmResponseCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void identicalPromptsHitAndModelParametersArePartOfTheKey() {
+        LlmResponseCache cache = cache(null, 0.0);
+        LlmResponseCache.Key key = cache.keyFor(node(null, null), "classify", "label: invoice");
+        assertNull(cache.get(key));
+        cache.put(key, "finance");
+
+        assertEquals("finance", cache.get(cache.keyFor(node(null, null), "classify", "label: invoice")));
+        assertNull(cache.get(cache.keyFor(node(null, null), "classify", "label: receipt")));
+        assertNull(cache.get(cache(null, 0.2, true).keyFor(node(null, null), "classify", "label: invoice")));
+        assertEquals(0.25, cache.hitRate("classify"), 1e-9);
+        assertEquals(0.0, cache.hitRate("other"));
+    }
+
+    @Test
+    void nodeModelSettingsDoNotAffectTheKey() {
+        // 共享的聊天模型不会应用节点上声明的参数，它们不能拆分缓存键
+        LlmResponseCache cache = cache(null, 0.0);
+        cache.put(cache.keyFor(node(null, null), "w", "prompt"), "answer");
+
+        assertEquals("answer", cache.get(cache.keyFor(node("gpt-4o", 0.9), "w", "prompt")));
+    }
+
+    @Test
+    void samplingCallsBypassUnlessAllowed() {
+        LlmResponseCache cache = cache(null, 0.7);
+        assertNull(cache.keyFor(node(null, null), "w", "prompt"));
+        assertNull(cache.keyFor(node(null, 0.0), "w", "prompt"));
+        assertNotNull(cache(null, 0.7, true).keyFor(node(null, null), "w", "prompt"));
+
+        Node allowed = node(null, null);
+        allowed.getConfig().getProperties().put(LlmResponseCache.ALLOW_SAMPLING_PROPERTY, true);
+        assertNotNull(cache.keyFor(allowed, "w", "prompt"));
+
+        Node disabled = node(null, null);
+        disabled.getConfig().getProperties().put(LlmResponseCache.ENABLED_PROPERTY, false);
+        assertNull(cache(null, 0.0).keyFor(disabled, "w", "prompt"));
+    }
+
+    @Test
+    void diskTierSurvivesRestart() {
+        LlmResponseCache first = cache(directory, 0.0);
+        first.put(first.keyFor(node(null, null), "w", "prompt"), "answer");
+
+        LlmResponseCache restarted = cache(directory, 0.0);
+        assertEquals("answer", restarted.get(restarted.keyFor(node(null, null), "w", "prompt")));
+
+        restarted.clear();
+        assertNull(cache(directory, 0.0).get(restarted.keyFor(node(null, null), "w", "prompt")));
+    }
+
+    @Test
+    void cachedResponseSkipsTheModelCall() {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CountingModel model = new CountingModel();
+            AINodeExecutor executor = new AINodeExecutor(
+                    model, new DefaultNodeExecutor(pool), ExecutorPools.single(pool), null, cache(null, 0.0), null, null);
+            WorkflowContext context = WorkflowContext.builder().workflowName("classify").build();
+
+            for (int i = 0; i < 3; i++) {
+                WorkflowState state = new WorkflowState("classify");
+                executor.execute(node(null, null), state, context).join();
+                assertEquals("label-1", state.getExecutionHistory().get("classify").getOutputs().get("response"));
+            }
+            assertEquals(1, model.calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static LlmResponseCache cache(Path directory, double temperature) {
+        return cache(directory, temperature, false);
+    }
+
+    private static LlmResponseCache cache(Path directory, double temperature, boolean allowSampling) {
+        return LlmResponseCache.builder()
+                .maxSize(100)
+                .ttl(Duration.ofHours(1))
+                .directory(directory)
+                .allowSampling(allowSampling)
+                .defaultModel("gpt-3.5-turbo")
+                .defaultTemperature(temperature)
+                .defaultMaxTokens(2000)
+                .build();
+    }
+
+    private static Node node(String model, Double temperature) {
+        return Node.builder()
+                .name("classify")
+                .type(NodeType.AI)
+                .inputs(Map.of())
+                .config(Node.NodeConfig.builder()
+                        .systemPrompt("Classify the document")
+                        .model(model)
+                        .temperature(temperature)
+                        .properties(new HashMap<>())
+                        .build())
+                .build();
+    }
+
+    private static class CountingModel implements ChatLanguageModel {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return Response.from(AiMessage.from("label-" + calls.incrementAndGet()));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+
+import java.lang.reflect.Method;
+
+import static com.niko.langchain4jworkflow.workflow.core.NodeInvokerTest.invokeReflectively;
+
+/**
+ * 预编译调用器与原反射路径的调用耗时对比，只输出测量结果不做断言
+ * 默认构建中排除，通过 mvn test -Dgroups=benchmark -Dtest.excludedGroups= 运行
+ */
+@Tag("benchmark")
+class NodeInvokerBenchmark {
+
+    @Test
+    void compiledVersusReflectiveInvocation() throws Throwable {
+        Method method = NodeInvokerTest.Transforms.class.getMethod("add", int.class, int.class);
+        NodeInvoker invoker = NodeInvoker.compile(method);
+        ParameterNameDiscoverer discoverer = new DefaultParameterNameDiscoverer();
+        NodeInvokerTest.Transforms target = new NodeInvokerTest.Transforms();
+        WorkflowState state = new WorkflowState("wf");
+        state.setVariable("a", 20);
+        state.setVariable("b", 22);
+
+        int iterations = 200_000;
+        long reflective = 0;
+        long compiled = 0;
+        long sum = 0;
+        // 前两轮用于预热
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sum += (Integer) invokeReflectively(method, discoverer, target, state);
+            }
+            reflective = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sum += (Integer) invoker.invoke(target, invoker.resolveArguments(state, null));
+            }
+            compiled = System.nanoTime() - start;
+        }
+        System.out.printf("node invocation: reflective %d ns/op, compiled %d ns/op (checksum %d)%n",
+                reflective / iterations, compiled / iterations, sum);
+    }
+}
@@ -0,0 +1,132 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.annotation.StateExpression;
+import com.niko.langchain4jworkflow.workflow.annotation.StateVariable;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeInvokerTest {
+
+    @Test
+    void bindsStateContextAndVariablesOnce() throws Throwable {
+        Method method = Transforms.class.getMethod("concat", String.class, int.class, WorkflowState.class,
+                WorkflowContext.class, String.class);
+        NodeInvoker invoker = NodeInvoker.compile(method);
+
+        NodeInvoker.Binding[] bindings = invoker.getBindings();
+        assertEquals(NodeInvoker.InjectionKind.VARIABLE, bindings[0].getKind());
+        assertEquals("prefix", bindings[0].getKey());
+        assertTrue(bindings[0].isRequired());
+        assertEquals(NodeInvoker.InjectionKind.VARIABLE, bindings[1].getKind());
+        assertEquals(NodeInvoker.InjectionKind.STATE, bindings[2].getKind());
+        assertEquals(NodeInvoker.InjectionKind.CONTEXT, bindings[3].getKind());
+        assertFalse(bindings[4].isRequired());
+
+        WorkflowState state = new WorkflowState("wf");
+        state.setVariable("prefix", "item-");
+        state.setVariable("count", 3);
+        WorkflowContext context = WorkflowContext.builder().workflowName("wf").build();
+
+        Object result = invoker.invoke(new Transforms(), invoker.resolveArguments(state, context));
+
+        assertEquals("item-3:wf:null", result);
+    }
+
+    @Test
+    void missingRequiredVariableFailsAndNodeExceptionsPropagateUnwrapped() throws Throwable {
+        NodeInvoker concat = NodeInvoker.compile(Transforms.class.getMethod("concat", String.class, int.class,
+                WorkflowState.class, WorkflowContext.class, String.class));
+        assertThrows(IllegalArgumentException.class,
+                () -> concat.resolveArguments(new WorkflowState(), null));
+
+        NodeInvoker fail = NodeInvoker.compile(Transforms.class.getMethod("fail"));
+        assertThrows(IllegalStateException.class, () -> fail.invoke(new Transforms(), new Object[0]));
+
+        NodeInvoker noop = NodeInvoker.compile(Transforms.class.getMethod("noop"));
+        assertNull(noop.invoke(null, new Object[0]));
+    }
+
+    @Test
+    void expressionParametersAreCompiledOnceAndFallBackWhenTypesChange() throws Throwable {
+        NodeInvoker invoker = NodeInvoker.compile(Transforms.class.getMethod("describe", String.class, int.class));
+        WorkflowState state = new WorkflowState("wf");
+        state.setVariable("score", 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("5/10", invoker.invoke(new Transforms(), invoker.resolveArguments(state, null)));
+        }
+        // 变量类型改变后编译代码中的类型转换失败，表达式退回混合模式继续求值
+        state.setVariable("score", "7");
+        assertEquals("7/14", invoker.invoke(new Transforms(), invoker.resolveArguments(state, null)));
+    }
+
+    /**
+     * 预编译调用器与原反射路径（每次发现参数名、查找注解并调用Method.invoke）的结果一致
+     */
+    @Test
+    void compiledInvokerMatchesReflectivePath() throws Throwable {
+        Method method = Transforms.class.getMethod("add", int.class, int.class);
+        NodeInvoker invoker = NodeInvoker.compile(method);
+        ParameterNameDiscoverer discoverer = new DefaultParameterNameDiscoverer();
+        Transforms target = new Transforms();
+
+        for (int[] values : new int[][]{{20, 22}, {0, 0}, {-5, 3}, {Integer.MAX_VALUE, 1}}) {
+            WorkflowState state = new WorkflowState("wf");
+            state.setVariable("a", values[0]);
+            state.setVariable("b", values[1]);
+            Object[] arguments = invoker.resolveArguments(state, null);
+            assertArrayEquals(new Object[]{values[0], values[1]}, arguments);
+            assertEquals(invokeReflectively(method, discoverer, target, state), invoker.invoke(target, arguments));
+        }
+    }
+
+    static Object invokeReflectively(
+            Method method,
+            ParameterNameDiscoverer discoverer,
+            Object target,
+            WorkflowState state) throws Exception {
+        Parameter[] parameters = method.getParameters();
+        String[] names = discoverer.getParameterNames(method);
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            StateVariable stateVar = parameters[i].getAnnotation(StateVariable.class);
+            String key = stateVar.value().isEmpty() ? names[i] : stateVar.value();
+            args[i] = state.getVariable(key);
+        }
+        return method.invoke(target, args);
+    }
+
+    public static class Transforms {
+        public String concat(
+                @StateVariable("prefix") String prefix,
+                @StateVariable("count") int count,
+                WorkflowState state,
+                WorkflowContext context,
+                @StateVariable(value = "suffix", required = false) String suffix) {
+            return prefix + count + ":" + context.getWorkflowName() + ":" + suffix;
+        }
+
+        public String describe(
+                @StateExpression("var('score').toString()") String score,
+                @StateExpression("2 * T(Integer).parseInt(var('score').toString())") int doubled) {
+            return score + "/" + doubled;
+        }
+
+        public int add(@StateVariable("a") int a, @StateVariable("b") int b) {
+            return a + b;
+        }
+
+        public String fail() {
+            throw new IllegalStateException("boom");
+        }
+
+        public static void noop() {
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.annotation.StateVariable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelNodeExecutorTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final ParallelNodeExecutor executor = new ParallelNodeExecutor(new DefaultNodeExecutor(pool));
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void mapsEveryItemInOrderWithinTheConcurrencyWindow() {
+        // 前4个元素互相等待，只有窗口能同时容纳4个元素时才会全部通过
+        Summaries summaries = new Summaries(4);
+        Node node = node(summaries, "summarise", true, 4, true, null);
+        WorkflowState state = stateWith(documents(200));
+
+        executor.execute(node, state, context()).join();
+
+        List<?> results = (List<?>) state.getVariable("summaries");
+        assertEquals(200, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("summary of doc-" + i, results.get(i));
+        }
+        assertEquals(4, summaries.maxActive.get());
+        assertTrue(state.isNodeCompleted("map"));
+    }
+
+    @Test
+    void synchronousItemsRunConcurrentlyOnThePool() {
+        // 同步方法的元素若在调度线程上依次运行，第一个元素会一直等待其他元素
+        Summaries summaries = new Summaries(4);
+        Node node = node(summaries, "summarise", false, 4, true, null);
+        WorkflowState state = stateWith(documents(8));
+
+        executor.execute(node, state, context()).join();
+
+        assertEquals(8, ((List<?>) state.getVariable("summaries")).size());
+        assertEquals(4, summaries.maxActive.get());
+    }
+
+    @Test
+    void synchronousItemsDoNotRecurseThroughTheWindow() {
+        Node node = node(new Summaries(), "summarise", false, 8, true, null);
+        WorkflowState state = stateWith(documents(5_000));
+
+        executor.execute(node, state, context()).join();
+
+        assertEquals(5_000, ((List<?>) state.getVariable("summaries")).size());
+    }
+
+    @Test
+    void quorumCompletesEarlyAndCancelsStragglers() throws Exception {
+        Summaries summaries = new Summaries();
+        Node node = node(summaries, "slowUnlessFast", true, 0, false, 2);
+        WorkflowState state = stateWith(List.of("slow-a", "fast-b", "slow-c", "fast-d"));
+
+        CompletableFuture<WorkflowState> future = executor.execute(node, state, context());
+        future.get(5, TimeUnit.SECONDS);
+
+        List<?> results = (List<?>) state.getVariable("summaries");
+        assertEquals(List.of("fast-b", "fast-d"), results.stream().filter(r -> r != null).toList());
+        assertNull(results.get(0));
+        assertEquals(2, state.getExecutionHistory().get("map").getOutputs().get("completed"));
+
+        // 未完成的元素被取消：已开始的被中断，未开始的不再运行
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, summaries.slowCompleted.get());
+    }
+
+    @Test
+    void successfulBranchesAreMergedBack() {
+        Node node = node(new Summaries(), "tag", true, 2, false, 2);
+        WorkflowState state = stateWith(List.of("ok", "bad", "ok-2"));
+        state.setVariable("document", "outer");
+
+        executor.execute(node, state, context()).join();
+
+        assertEquals("tagged", state.getVariable("tag:ok"));
+        assertEquals("tagged", state.getVariable("tag:ok-2"));
+        assertFalse(state.hasVariable("tag:bad"));
+        // 元素变量恢复为执行前的值，节点记录只有一次尝试
+        assertEquals("outer", state.getVariable("document"));
+        assertEquals(1, state.getExecutionHistory().get("map").getAttempts());
+        assertEquals(2, state.getExecutionHistory().get("map").getOutputs().get("completed"));
+    }
+
+    @Test
+    void failingItemFailsTheNodeWhenWaitingForAll() {
+        Node node = node(new Summaries(), "rejectBad", false, 2, true, null);
+        WorkflowState state = stateWith(List.of("ok", "bad", "ok"));
+
+        CompletableFuture<WorkflowState> future = executor.execute(node, state, context());
+
+        assertThrows(CompletionException.class, future::join);
+        assertNotNull(state.getExecutionHistory().get("map").getError());
+    }
+
+    private static List<String> documents(int count) {
+        List<String> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add("doc-" + i);
+        }
+        return documents;
+    }
+
+    private static WorkflowState stateWith(List<String> documents) {
+        WorkflowState state = new WorkflowState("batch");
+        state.setVariable("documents", documents);
+        return state;
+    }
+
+    private static Node node(
+            Summaries target,
+            String methodName,
+            boolean async,
+            int maxConcurrency,
+            boolean waitForAll,
+            Integer quorum) {
+        Method method = Arrays.stream(Summaries.class.getMethods())
+                .filter(m -> m.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        return Node.builder()
+                .name("map")
+                .type(NodeType.PARALLEL)
+                .method(method)
+                .target(target)
+                .invoker(NodeInvoker.compile(method))
+                .config(Node.NodeConfig.builder()
+                        .async(async)
+                        .items("documents")
+                        .itemVariable("document")
+                        .resultVariable("summaries")
+                        .maxConcurrency(maxConcurrency)
+                        .waitForAll(waitForAll)
+                        .quorum(quorum)
+                        .build())
+                .build();
+    }
+
+    private static WorkflowContext context() {
+        return WorkflowContext.builder()
+                .workflowName("batch")
+                .build();
+    }
+
+    public static class Summaries {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final AtomicInteger slowCompleted = new AtomicInteger();
+        private final CountDownLatch rendezvous;
+
+        public Summaries() {
+            this(0);
+        }
+
+        /**
+         * @param parties 需要同时到达才能继续的元素数，0表示不等待
+         */
+        public Summaries(int parties) {
+            this.rendezvous = new CountDownLatch(parties);
+        }
+
+        public String summarise(@StateVariable("document") String document) throws InterruptedException {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                rendezvous.countDown();
+                // 超时只在窗口过小时发生，此时maxActive的断言失败
+                rendezvous.await(5, TimeUnit.SECONDS);
+                return "summary of " + document;
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        public String slowUnlessFast(@StateVariable("document") String document) {
+            if (document.startsWith("slow")) {
+                try {
+                    Thread.sleep(10_000);
+                    slowCompleted.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return document;
+        }
+
+        public String tag(@StateVariable("document") String document, WorkflowState branch) {
+            branch.setVariable("tag:" + document, "tagged");
+            if (document.equals("bad")) {
+                throw new IllegalArgumentException("bad document");
+            }
+            return document;
+        }
+
+        public String rejectBad(@StateVariable("document") String document) {
+            if (document.equals("bad")) {
+                throw new IllegalArgumentException("bad document");
+            }
+            return document;
+        }
+    }
+}
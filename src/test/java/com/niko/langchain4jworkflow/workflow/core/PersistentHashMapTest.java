@@ -0,0 +1,84 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentHashMapTest {
+
+    @Test
+    void matchesHashMapUnderRandomOperationsWithCollisions() {
+        Random random = new Random(42);
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+
+        for (int i = 0; i < 20_000; i++) {
+            Key key = new Key(random.nextInt(2_000));
+            PersistentHashMap<Key, Integer> before = map;
+            int sizeBefore = before.size();
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+            // 旧版本不受影响
+            assertEquals(sizeBefore, before.size());
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        Map<Key, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+
+        Map<Key, Integer> iterated = new HashMap<>();
+        for (Map.Entry<Key, Integer> entry : map) {
+            assertNull(iterated.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    void snapshotMapTracksOnlyBranchChanges() {
+        SnapshotMap<String, Object> parent = new SnapshotMap<>();
+        parent.put("a", 1);
+        parent.put("b", 2);
+
+        SnapshotMap<String, Object> branch = parent.snapshot();
+        branch.put("b", 20);
+        branch.put("c", 30);
+        branch.remove("a");
+        parent.put("d", 4);
+
+        assertEquals(Map.of("a", 1, "b", 2, "d", 4), parent);
+        assertEquals(Map.of("b", 20, "c", 30), branch);
+
+        parent.applyChanges(branch);
+        assertEquals(Map.of("b", 20, "c", 30, "d", 4), parent);
+    }
+
+    private static final class Key {
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            // 3的倍数只落在8个哈希值上，强制产生冲突节点
+            return id % 3 == 0 ? id % 8 : id;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.exceptions.InvalidWorkflowException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTemplateTest {
+
+    @Test
+    void rendersNamedPlaceholdersInTemplateOrder() {
+        PromptTemplate template = PromptTemplate.compile("Classify {{ document }} for {{customer}}.{{missing}}");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("customer", new StringBuilder("acme"));
+        variables.put("document", 42);
+
+        PromptTemplate.Rendered rendered = template.render(variables::get);
+
+        assertEquals("Classify 42 for acme.", rendered.text());
+        assertEquals(List.of("document", "customer", "missing"), template.variables());
+        assertTrue(rendered.estimatedTokens() > 0);
+    }
+
+    @Test
+    void systemPromptWithoutPlaceholdersListsInputsInDeclarationOrder() {
+        PromptTemplate template = PromptTemplate.forNode("Summarise", List.of("title", "author", "body"));
+        Map<String, Object> variables = Map.of("title", "Q3", "body", "numbers went up");
+
+        assertEquals("Summarise\n\ntitle: Q3\nbody: numbers went up\n", template.render(variables::get).text());
+        assertEquals("author: Ann\n", PromptTemplate.forNode(null, List.of("author"))
+                .render(Map.<String, Object>of("author", "Ann")::get).text());
+        // 含占位符的系统提示词作为完整模板
+        assertEquals("Summarise Q3", PromptTemplate.forNode("Summarise {{title}}", List.of("title", "body"))
+                .render(variables::get).text());
+    }
+
+    @Test
+    void rejectsMalformedPlaceholders() {
+        assertThrows(InvalidWorkflowException.class, () -> PromptTemplate.compile("Hello {{name"));
+        assertThrows(InvalidWorkflowException.class, () -> PromptTemplate.compile("Hello {{ }}"));
+    }
+
+    @Test
+    void estimatesAsciiByCharacterGroupsAndOtherScriptsPerCharacter() {
+        assertEquals(3, PromptTemplate.estimateTokens("hello world!"));
+        assertEquals(4, PromptTemplate.estimateTokens("工作流程"));
+        assertEquals(0, PromptTemplate.estimateTokens(""));
+    }
+}
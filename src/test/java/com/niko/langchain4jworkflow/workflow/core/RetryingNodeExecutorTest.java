@@ -0,0 +1,113 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import com.niko.langchain4jworkflow.workflow.event.NodeRetryEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryingNodeExecutorTest {
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    void retriesTransientFailuresAndCountsAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+        NodeExecutor flaky = (node, state, context) -> {
+            state.recordNodeStart(node.getName());
+            if (calls.incrementAndGet() < 3) {
+                IllegalStateException error = new IllegalStateException("rate limited");
+                state.recordNodeError(node.getName(), error);
+                return CompletableFuture.failedFuture(error);
+            }
+            state.recordNodeCompletion(node.getName(), Map.of());
+            return CompletableFuture.completedFuture(state);
+        };
+        Node node = node(retry(5, List.of(RuntimeException.class), List.of()));
+        WorkflowState state = new WorkflowState("wf");
+
+        WorkflowState result = retrying(flaky).execute(node, state, context()).join();
+
+        assertSame(state, result);
+        assertEquals(3, calls.get());
+        assertEquals(3, state.getExecutionHistory().get("flaky").getAttempts());
+        assertNull(state.getExecutionHistory().get("flaky").getError());
+        List<Integer> retryAttempts = events.stream()
+                .map(e -> ((NodeRetryEvent) e).getAttemptNumber())
+                .toList();
+        assertEquals(List.of(2, 3), retryAttempts);
+    }
+
+    @Test
+    void noRetryForStopsImmediately() {
+        AtomicInteger calls = new AtomicInteger();
+        NodeExecutor failing = (node, state, context) -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(
+                    new RuntimeException(new IllegalArgumentException("bad input")));
+        };
+        Node node = node(retry(5, List.of(RuntimeException.class), List.of(IllegalArgumentException.class)));
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> retrying(failing).execute(node, new WorkflowState(), context()).join());
+
+        assertInstanceOf(IllegalArgumentException.class, error.getCause().getCause());
+        assertEquals(1, calls.get());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void backoffUsesFullJitterBelowExponentialCap() {
+        Node.RetryConfig config = Node.RetryConfig.builder()
+                .maxAttempts(10)
+                .delay(Duration.ofMillis(100))
+                .multiplier(2.0)
+                .maxDelay(Duration.ofMillis(500))
+                .build();
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(RetryingNodeExecutor.backoff(config, 1).toMillis() <= 100);
+            assertTrue(RetryingNodeExecutor.backoff(config, 2).toMillis() <= 200);
+            assertTrue(RetryingNodeExecutor.backoff(config, 8).toMillis() <= 500);
+        }
+    }
+
+    private RetryingNodeExecutor retrying(NodeExecutor delegate) {
+        return new RetryingNodeExecutor(delegate, Runnable::run, TimerWheel.shared(), events::add, null);
+    }
+
+    private static Node.RetryConfig retry(
+            int maxAttempts,
+            List<Class<? extends Throwable>> retryFor,
+            List<Class<? extends Throwable>> noRetryFor) {
+        return Node.RetryConfig.builder()
+                .maxAttempts(maxAttempts)
+                .delay(Duration.ofMillis(5))
+                .multiplier(2.0)
+                .retryableExceptions(retryFor)
+                .nonRetryableExceptions(noRetryFor)
+                .build();
+    }
+
+    private static Node node(Node.RetryConfig retryConfig) {
+        return Node.builder()
+                .name("flaky")
+                .type(NodeType.FUNCTION)
+                .dependencies(List.of())
+                .config(Node.NodeConfig.builder().retryConfig(retryConfig).build())
+                .build();
+    }
+
+    private static WorkflowContext context() {
+        return WorkflowContext.builder()
+                .workflowId("exec-1")
+                .workflowName("wf")
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticResponseCacheTest {
+
+    private final SemanticResponseCache cache = SemanticResponseCache.builder()
+            .embeddingModel(new BagOfWords())
+            .maxSize(2)
+            .defaultThreshold(0.9)
+            .defaultModel("gpt-3.5-turbo")
+            .defaultTemperature(0.0)
+            .defaultMaxTokens(2000)
+            .build();
+
+    @Test
+    void similarPromptsHitAboveTheNodeThreshold() {
+        Node node = node(0.8, null);
+        SemanticResponseCache.Lookup first = cache.lookup(node, "w", "classify the invoice from acme");
+        assertNull(first.response());
+        cache.put(first, "finance");
+
+        SemanticResponseCache.Lookup spaced = cache.lookup(node, "w", "  classify   the invoice\nfrom acme ");
+        assertEquals("finance", spaced.response());
+        assertEquals(1.0, spaced.similarity(), 1e-6);
+        assertEquals("finance", cache.lookup(node, "w", "please classify the invoice from acme").response());
+
+        // 阈值更高的节点不命中；节点上声明的模型不会被共享的聊天模型使用，不影响命中
+        assertNull(cache.lookup(node(0.99, null), "w", "please classify the invoice from acme").response());
+        assertEquals("finance", cache.lookup(node(0.8, "gpt-4o"), "w", "classify the invoice from acme").response());
+        assertNull(cache.lookup(node, "w", "summarise the meeting notes").response());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyHitEntry() {
+        Node node = node(0.9, null);
+        cache.put(cache.lookup(node, "w", "alpha"), "a");
+        cache.put(cache.lookup(node, "w", "beta"), "b");
+        assertEquals("a", cache.lookup(node, "w", "alpha").response());
+
+        cache.put(cache.lookup(node, "w", "gamma"), "c");
+
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.lookup(node, "w", "alpha").response());
+        assertNull(cache.lookup(node, "w", "beta").response());
+    }
+
+    @Test
+    void samplingModelBypassesUnlessAllowed() {
+        SemanticResponseCache sampling = SemanticResponseCache.builder()
+                .embeddingModel(new BagOfWords())
+                .maxSize(2)
+                .defaultThreshold(0.9)
+                .defaultTemperature(0.7)
+                .build();
+        assertTrue(cache.appliesTo(node(0.9, null), "w"));
+        assertFalse(sampling.appliesTo(node(0.9, null), "w"));
+
+        Node allowed = node(0.9, null);
+        allowed.getConfig().getProperties().put(SemanticResponseCache.ALLOW_SAMPLING_PROPERTY, true);
+        assertTrue(sampling.appliesTo(allowed, "w"));
+
+        Node plain = node(0.9, null);
+        plain.getConfig().getProperties().clear();
+        assertFalse(cache.appliesTo(plain, "w"));
+    }
+
+    @Test
+    void onlyOptedInNodesSkipTheModelForSimilarPrompts() {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CountingModel model = new CountingModel();
+            AINodeExecutor executor = new AINodeExecutor(
+                    model, new DefaultNodeExecutor(pool), ExecutorPools.single(pool), null, null, cache, null);
+            WorkflowContext context = WorkflowContext.builder().workflowName("w").build();
+
+            assertEquals("answer-1", run(executor, node(0.9, null), "Classify  this", context));
+            assertEquals("answer-1", run(executor, node(0.9, null), "classify this", context));
+            assertEquals(1, model.calls.get());
+
+            Node plain = node(0.9, null);
+            plain.getConfig().getProperties().clear();
+            assertEquals("answer-2", run(executor, plain, "classify this", context));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String run(AINodeExecutor executor, Node node, String systemPrompt, WorkflowContext context) {
+        node.getConfig().setSystemPrompt(systemPrompt);
+        WorkflowState state = new WorkflowState("w");
+        executor.execute(node, state, context).join();
+        return (String) state.getExecutionHistory().get(node.getName()).getOutputs().get("response");
+    }
+
+    private static Node node(double threshold, String model) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(SemanticResponseCache.THRESHOLD_PROPERTY, threshold);
+        return Node.builder()
+                .name("classify")
+                .type(NodeType.AI)
+                .inputs(Map.of())
+                .config(Node.NodeConfig.builder()
+                        .model(model)
+                        .properties(properties)
+                        .build())
+                .build();
+    }
+
+    /**
+     * 按单词计数的向量，忽略大小写和空白差异
+     */
+    private static class BagOfWords implements EmbeddingModel {
+        private static final int DIMENSION = 64;
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            return Response.from(segments.stream().map(segment -> vectorOf(segment.text().toLowerCase())).toList());
+        }
+
+        private static Embedding vectorOf(String text) {
+            float[] vector = new float[DIMENSION];
+            for (String word : text.trim().split("\\s+")) {
+                vector[Math.floorMod(word.hashCode(), DIMENSION)] += 1;
+            }
+            return Embedding.from(vector);
+        }
+    }
+
+    private static class CountingModel implements ChatLanguageModel {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return Response.from(AiMessage.from("answer-" + calls.incrementAndGet()));
+        }
+    }
+}
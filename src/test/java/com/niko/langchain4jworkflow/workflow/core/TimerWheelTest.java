@@ -0,0 +1,37 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    @Test
+    void firesNoEarlierThanDeadlineAndSkipsCancelledTasks() throws Exception {
+        try (TimerWheel timer = new TimerWheel(Duration.ofMillis(5), 8, "test-timer")) {
+            CountDownLatch fired = new CountDownLatch(1);
+            AtomicLong firedAt = new AtomicLong();
+            AtomicInteger cancelledRuns = new AtomicInteger();
+
+            long start = System.nanoTime();
+            // 延迟超过一圈（8 * 5ms），验证跨圈任务不会提前触发
+            timer.schedule(() -> {
+                firedAt.set(System.nanoTime());
+                fired.countDown();
+            }, Duration.ofMillis(120));
+            TimerWheel.Task cancelled = timer.schedule(cancelledRuns::incrementAndGet, Duration.ofMillis(20));
+            assertTrue(cancelled.cancel());
+
+            assertTrue(fired.await(2, TimeUnit.SECONDS));
+            assertTrue(firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(120));
+            assertFalse(cancelled.cancel());
+            assertEquals(0, cancelledRuns.get());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 执行状态的内存分配基准，只输出测量结果不做断言
+ * 默认构建中排除，通过 mvn test -Dgroups=benchmark -Dtest.excludedGroups= 运行
+ */
+@Tag("benchmark")
+class WorkflowStateBenchmark {
+
+    private static final int FAN_OUT = 64;
+    private static final int VARIABLES = 10_000;
+
+    /**
+     * 大状态上的扇出：快照分支加增量合并，与原实现的整表复制加putAll对比
+     */
+    @Test
+    void fanOutAllocation() {
+        WorkflowState state = new WorkflowState("wf");
+        Map<String, Object> copyBaseline = new ConcurrentHashMap<>();
+        for (int i = 0; i < VARIABLES; i++) {
+            state.setVariable("var" + i, i);
+            copyBaseline.put("var" + i, i);
+        }
+
+        for (int warmup = 0; warmup < 20; warmup++) {
+            snapshotFanOut(state);
+            copyFanOut(copyBaseline);
+        }
+
+        long snapshotBytes = allocatedBytes(() -> snapshotFanOut(state));
+        long copyBytes = allocatedBytes(() -> copyFanOut(copyBaseline));
+        System.out.printf("%d-way fan-out over %d variables: snapshot+delta merge %d bytes, "
+                + "full copy+putAll %d bytes%n", FAN_OUT, VARIABLES, snapshotBytes, copyBytes);
+    }
+
+    /**
+     * 16个声明变量的执行状态：槽位存储与映射存储对比
+     */
+    @Test
+    void slotStorageAllocation() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            names.add("input" + i);
+        }
+        VariableLayout layout = VariableLayout.of(names);
+        int executions = 10_000;
+
+        for (int warmup = 0; warmup < 5; warmup++) {
+            createStates(executions, names, layout);
+            createStates(executions, names, VariableLayout.empty());
+        }
+        long slotBytes = allocatedBytes(() -> createStates(executions, names, layout));
+        long mapBytes = allocatedBytes(() -> createStates(executions, names, VariableLayout.empty()));
+        System.out.printf("%d executions with %d declared variables: slots %d bytes, map %d bytes%n",
+                executions, names.size(), slotBytes, mapBytes);
+    }
+
+    private static List<WorkflowState> createStates(int count, List<String> names, VariableLayout layout) {
+        List<WorkflowState> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WorkflowState state = new WorkflowState("wf", layout);
+            for (int v = 0; v < names.size(); v++) {
+                state.setVariable(names.get(v), v);
+            }
+            states.add(state);
+        }
+        return states;
+    }
+
+    private static void snapshotFanOut(WorkflowState state) {
+        List<WorkflowState> branches = new ArrayList<>(FAN_OUT);
+        for (int i = 0; i < FAN_OUT; i++) {
+            WorkflowState branch = state.clone();
+            branch.setVariable("branch" + i, new Object());
+            branches.add(branch);
+        }
+        for (WorkflowState branch : branches) {
+            state.merge(branch);
+        }
+    }
+
+    /**
+     * 原实现的开销：每个分支复制完整变量表，合并时再整体putAll回去
+     */
+    private static void copyFanOut(Map<String, Object> variables) {
+        List<Map<String, Object>> branches = new ArrayList<>(FAN_OUT);
+        for (int i = 0; i < FAN_OUT; i++) {
+            Map<String, Object> branch = new ConcurrentHashMap<>(variables);
+            branch.put("branch" + i, new Object());
+            branches.add(branch);
+        }
+        for (Map<String, Object> branch : branches) {
+            variables.putAll(branch);
+        }
+    }
+
+    private static long allocatedBytes(Runnable action) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        action.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,125 @@
+package com.niko.langchain4jworkflow.workflow.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkflowStateTest {
+
+    private static final int FAN_OUT = 64;
+    private static final int VARIABLES = 10_000;
+
+    @Test
+    void branchesAreIsolatedAndMergeOnlyTheirChanges() {
+        WorkflowState state = new WorkflowState("wf");
+        state.setVariable("shared", "root");
+        state.setVariable("doomed", "x");
+        state.recordNodeStart("root");
+
+        WorkflowState left = state.clone();
+        WorkflowState right = state.clone();
+        left.setVariable("left", 1);
+        left.removeVariable("doomed");
+        right.setVariable("right", 2);
+        right.recordNodeStart("r");
+        state.setVariable("shared", "updated");
+
+        assertNull(left.getVariable("right"));
+        assertEquals("root", right.getVariable("shared"));
+
+        state.merge(left);
+        state.merge(right);
+
+        // 分支未修改的shared保留父状态上的新值
+        assertEquals("updated", state.getVariable("shared"));
+        assertEquals(1, state.getVariable("left"));
+        assertEquals(2, state.getVariable("right"));
+        assertFalse(state.hasVariable("doomed"));
+        assertTrue(state.isNodeCompleted("r"));
+        assertTrue(state.isNodeCompleted("root"));
+    }
+
+    @Test
+    void fanOutBranchesShareStateAndMergeOnlyTheirChanges() {
+        WorkflowState state = new WorkflowState("wf");
+        for (int i = 0; i < VARIABLES; i++) {
+            state.setVariable("var" + i, i);
+        }
+
+        List<WorkflowState> branches = new ArrayList<>(FAN_OUT);
+        for (int i = 0; i < FAN_OUT; i++) {
+            WorkflowState branch = state.clone();
+            branch.setVariable("branch" + i, i);
+            branches.add(branch);
+        }
+        // 分支创建后父状态上的写入不会被分支上的旧值覆盖
+        state.setVariable("var0", "updated");
+
+        for (int i = 0; i < FAN_OUT; i++) {
+            WorkflowState branch = branches.get(i);
+            assertEquals(VARIABLES + 1, branch.getVariables().size());
+            assertEquals(0, branch.getVariable("var0"));
+            // 分支只记录自己写入的变量，而不是整张变量表的副本
+            Map<String, Object> changed = new HashMap<>();
+            branch.forEachChangedVariable(changed::put);
+            assertEquals(Map.of("branch" + i, i), changed);
+            state.merge(branch);
+        }
+
+        assertEquals(VARIABLES + FAN_OUT, state.getVariables().size());
+        assertEquals("updated", state.getVariable("var0"));
+        assertEquals(FAN_OUT - 1, state.getVariable("branch" + (FAN_OUT - 1)));
+    }
+
+    @Test
+    void declaredVariablesLiveInSlotsAndMergeLikeDynamicOnes() {
+        VariableLayout layout = VariableLayout.of(List.of("query", "score"));
+        WorkflowState state = new WorkflowState("wf", layout);
+        state.getVariables().putAll(Map.of("query", "q", "extra", 1));
+
+        WorkflowState branch = state.clone();
+        branch.setVariable("score", 0.9);
+        branch.removeVariable("query");
+        branch.setVariable("other", 2);
+        assertEquals("q", state.getVariable("query"));
+        assertNull(state.getVariable("score"));
+
+        Map<String, Object> changed = new HashMap<>();
+        branch.forEachChangedVariable(changed::put);
+        assertEquals(Map.of("score", 0.9, "other", 2), changed);
+
+        state.merge(branch);
+
+        assertEquals(0.9, state.getVariable(layout, layout.slotOf("score"), "score"));
+        assertFalse(state.hasVariable("query"));
+        assertEquals(Map.of("score", 0.9, "extra", 1, "other", 2), Map.copyOf(state.getVariables()));
+        // 其他布局解析出的槽位不会被误用
+        assertEquals(0.9, state.getVariable(VariableLayout.of(List.of("score")), 0, "score"));
+    }
+
+    @Test
+    void slotStorageBehavesLikeMapStorage() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            names.add("input" + i);
+        }
+        VariableLayout layout = VariableLayout.of(names);
+        WorkflowState slotted = new WorkflowState("wf", layout);
+        WorkflowState mapped = new WorkflowState("wf", VariableLayout.empty());
+        for (int v = 0; v < names.size(); v++) {
+            slotted.setVariable(names.get(v), v);
+            mapped.setVariable(names.get(v), v);
+        }
+
+        assertEquals(Map.copyOf(mapped.getVariables()), Map.copyOf(slotted.getVariables()));
+        for (int v = 0; v < names.size(); v++) {
+            assertEquals(v, slotted.getVariable(layout, layout.slotOf(names.get(v)), names.get(v)));
+            assertEquals(v, mapped.getVariable(layout, layout.slotOf(names.get(v)), names.get(v)));
+        }
+    }
+}